@@ -0,0 +1,149 @@
+package com.example.easyspeech;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.google.firebase.Timestamp;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks for {@link NotesStore} against an in-memory database, run on a device.
+ */
+@RunWith(AndroidJUnit4.class)
+public class NotesStoreTest {
+
+    private static final String TAG = "NotesStoreTest";
+
+    private NotesStore store;
+
+    @Before
+    public void setUp() {
+        store = new NotesStore(InstrumentationRegistry.getInstrumentation().getTargetContext(), null);
+    }
+
+    @After
+    public void tearDown() {
+        store.close();
+    }
+
+    @Test
+    public void upsertIsIdempotent() {
+        assertNull(store.getSyncCursor("alice"));
+        store.upsert(Arrays.asList(note("alice", "a", 100), note("alice", "b", 300), note("alice", "c", 200)));
+        store.upsert(Arrays.asList(note("alice", "b", 300))); // Boundary note fetched again
+        store.setSyncCursor("alice", new Timestamp(300, 0));
+
+        List<Note> notes = store.loadOlder("alice", null, 10);
+        assertEquals(3, notes.size());
+        assertEquals("b", notes.get(0).getDocumentId()); // Newest first
+        assertEquals("a", notes.get(2).getDocumentId());
+        assertEquals(new Timestamp(300, 0), store.getSyncCursor("alice"));
+    }
+
+    @Test
+    public void keysetPagesInBothDirections() {
+        // "b" and "c" share a timestamp; the document ID orders them
+        store.upsert(Arrays.asList(note("alice", "a", 100), note("alice", "b", 200), note("alice", "c", 200), note("alice", "d", 300)));
+        List<Note> first = store.loadOlder("alice", null, 2);
+        assertEquals("d", first.get(0).getDocumentId());
+        assertEquals("c", first.get(1).getDocumentId());
+        List<Note> second = store.loadOlder("alice", first.get(1), 2);
+        assertEquals("b", second.get(0).getDocumentId());
+        assertEquals("a", second.get(1).getDocumentId());
+
+        List<Note> newer = store.loadNewer("alice", second.get(1), 2);
+        assertEquals("c", newer.get(0).getDocumentId()); // Closest two, newest first
+        assertEquals("b", newer.get(1).getDocumentId());
+    }
+
+    @Test
+    public void usersAndDeletesAreKeptApart() {
+        store.upsert(Arrays.asList(note("alice", "a", 100)));
+        store.upsert(Arrays.asList(note("bob", "b", 200)));
+        store.delete(Collections.singletonList("a"));
+        assertTrue(store.loadOlder("alice", null, 10).isEmpty());
+        assertEquals(1, store.loadOlder("bob", null, 10).size());
+    }
+
+    @Test
+    public void audioRangeFollowsTheNote() {
+        store.upsert(Arrays.asList(note("alice", "a", 100)));
+        assertNull(store.getAudioRange("a"));
+        store.setAudioRange("a", 16000, 48000);
+        store.upsert(Arrays.asList(note("alice", "a", 150))); // Synced again with the server time
+        assertArrayEquals(new long[]{16000, 48000}, store.getAudioRange("a"));
+        store.delete(Collections.singletonList("a"));
+        assertNull(store.getAudioRange("a"));
+    }
+
+    @Test
+    public void searchFindsPrefixesAndPhrasesAndFollowsEdits() {
+        store.upsert(Arrays.asList(
+                new Note("a", "alice", "meeting about the translation budget", "", 100, 0),
+                new Note("b", "alice", "budget meeting", "reunión de presupuesto", 200, 0),
+                new Note("c", "bob", "translation budget", "", 300, 0)));
+
+        assertEquals(1, store.search("alice", "transl", 10).size()); // Not bob's note
+        assertEquals("b", store.search("alice", "reun", 10).get(0).getDocumentId()); // Translations too
+        List<Note> phrase = store.search("alice", "\"budget meeting\"", 10);
+        assertEquals(1, phrase.size());
+        assertEquals("b", phrase.get(0).getDocumentId());
+
+        // Edits and deletes replace the old index entries
+        store.upsert(Arrays.asList(new Note("a", "alice", "groceries", "", 100, 0)));
+        assertTrue(store.search("alice", "transl", 10).isEmpty());
+        store.delete(Collections.singletonList("b"));
+        assertTrue(store.search("alice", "budget", 10).isEmpty());
+        assertTrue(store.search("alice", "\"\" *", 10).isEmpty());
+    }
+
+    // Latency over a large notebook; numbers go to logcat. A few ms per search, with margin for slow devices
+    @Test
+    public void searchLatencyOnFiftyThousandNotes() {
+        String[] words = {"meeting", "budget", "translation", "doctor", "train", "station", "coffee",
+                "project", "deadline", "weekend", "grocery", "lecture", "airport", "invoice", "garden"};
+        long started = SystemClock.elapsedRealtime();
+        List<Note> batch = new ArrayList<>();
+        for (int i = 0; i < 50_000; i++) {
+            String text = words[i % words.length] + " " + words[(i * 7) % words.length] + " note " + i;
+            batch.add(new Note("n" + i, "alice", text, words[(i * 3) % words.length], 1_000_000 + i, 0));
+            if (batch.size() == 1000) {
+                store.upsert(batch);
+                batch.clear();
+            }
+        }
+        Log.d(TAG, "Indexed 50000 notes in " + (SystemClock.elapsedRealtime() - started) + " ms");
+
+        for (String query : new String[]{"doct", "\"doctor coffee\"", "invoice 4999", "meeting"}) {
+            assertFalse(store.search("alice", query, 50).isEmpty()); // Warms the page cache
+            long[] micros = new long[21];
+            for (int run = 0; run < micros.length; run++) {
+                started = System.nanoTime();
+                store.search("alice", query, 50);
+                micros[run] = (System.nanoTime() - started) / 1000;
+            }
+            Arrays.sort(micros);
+            long median = micros[micros.length / 2];
+            Log.d(TAG, "Search \"" + query + "\": median " + median + " us, max " + micros[micros.length - 1] + " us");
+            assertTrue(query + ": " + median + " us", median < 5_000);
+        }
+    }
+
+    private static Note note(String userId, String id, long seconds) {
+        return new Note(id, userId, "text " + id, "", seconds, 0);
+    }
+}
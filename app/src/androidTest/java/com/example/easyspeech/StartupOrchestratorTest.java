@@ -0,0 +1,45 @@
+package com.example.easyspeech;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Cold-start regression checks for {@link StartupOrchestrator}, run on a device.
+ * The startup trace is logged under the {@code StartupTrace} tag.
+ */
+@RunWith(AndroidJUnit4.class)
+public class StartupOrchestratorTest {
+
+    // Budget for the tasks the splash screen waits on
+    private static final long SPLASH_BUDGET_SECONDS = 2;
+
+    @Test
+    public void authTaskFinishesWithinSplashBudget() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        StartupOrchestrator startup = StartupOrchestrator.getInstance();
+        startup.whenFinished(latch::countDown, StartupOrchestrator.TASK_FIREBASE_AUTH);
+        assertTrue(startup.describeTrace(), latch.await(SPLASH_BUDGET_SECONDS, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void independentTasksRunInParallel() throws InterruptedException {
+        StartupOrchestrator startup = new StartupOrchestrator();
+        CountDownLatch bothRunning = new CountDownLatch(2);
+        StartupOrchestrator.Task task = done -> {
+            bothRunning.countDown();
+            // Blocks until the other task is running too; a sequential runner would stall here
+            bothRunning.await(1, TimeUnit.SECONDS);
+            done.complete();
+        };
+        startup.start("a", task);
+        startup.start("b", task);
+        assertTrue(bothRunning.await(500, TimeUnit.MILLISECONDS));
+    }
+}
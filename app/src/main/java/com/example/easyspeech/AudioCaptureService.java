@@ -0,0 +1,407 @@
+package com.example.easyspeech;
+
+import android.annotation.SuppressLint;
+import android.media.AudioFormat;
+import android.media.AudioRecord;
+import android.media.MediaRecorder;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import org.vosk.Recognizer;
+import org.vosk.android.RecognitionListener;
+
+import java.io.IOException;
+import java.util.Locale;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Microphone-to-recognizer pipeline with a {@link VoiceActivityDetector} in front of
+ * {@link Recognizer#acceptWaveForm}, used in place of Vosk's {@code SpeechService} (which feeds
+ * every sample to the recognizer and has no hook for filtering).
+ *
+ * Capture and decoding run on separate threads joined by an {@link AudioFrameRing}: the
+ * AudioRecord thread only reads into preallocated frames, so a slow decode step delays results
+ * instead of dropping microphone audio (unless the ring itself overflows, which is counted).
+ *
+ * Frames classified as silence are not decoded. When an utterance ends the recognizer is
+ * finalized right away, since it no longer sees the trailing silence its own endpointing
+ * would wait for. Results are delivered on the main thread through the same
+ * {@link RecognitionListener} callbacks as {@code SpeechService}.
+ *
+ * With an {@link AudioJournal} set, the decoder thread also appends every captured frame to it,
+ * silence included, so the recording can be replayed as it was heard. Since silence is not
+ * decoded, the recognizer's clock (which its word times use) runs slower than the journal's; a
+ * listener that also implements {@link AudioResultListener} is told where each result's
+ * stretch of decoded audio starts in both.
+ *
+ * {@link #stop()} only tells the threads to finish and returns; the decoder drains what was
+ * captured and posts {@code onFinalResult} when it is done. A start requested meanwhile begins
+ * right after that, so a run never shares the recognizer with the one before it.
+ *
+ * Partial results are read from the recognizer at most every 100 ms
+ * and posted only when they changed, rather than for every 20 ms frame.
+ *
+ * Every frame is stamped when captured, so the time from audio to partial and to final result,
+ * the real-time factor of each utterance and the main-thread cost of each callback go to
+ * {@link RecognitionMetrics}.
+ */
+public class AudioCaptureService {
+
+    private static final String TAG = "AudioCaptureService";
+    private static final int FRAME_MILLIS = 20;
+    private static final int RING_MILLIS = 5000; // Decoder may fall this far behind
+    private static final int PARTIAL_INTERVAL_MILLIS = 100; // SpeechService: one per 200 ms buffer
+
+    private final Recognizer recognizer;
+    private final int sampleRate;
+    private final int frameSamples;
+    private final AudioRecord recorder;
+    private VoiceActivityDetector vad;
+    private volatile AudioJournal journal;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final RecognitionMetrics metrics = RecognitionMetrics.getInstance();
+    private int realTimeFactorMetric = RecognitionMetrics.REAL_TIME_FACTOR;
+    private int audioToResultMetric = RecognitionMetrics.AUDIO_TO_FINAL;
+
+    private final AudioFrameRing ring;
+
+    /** Optional extension of the {@link RecognitionListener} passed to {@link #startListening}. */
+    public interface AudioResultListener {
+        /**
+         * Called on the main thread right before each {@code onResult} / {@code onFinalResult}:
+         * recognizer time {@code streamSeconds} is journal position {@code journalPosition} (-1
+         * without a journal), and the result's words follow on from there without gaps.
+         */
+        void onResultAudio(long journalPosition, double streamSeconds);
+    }
+
+    // Decoder thread only: start of the current run of decoded audio, on both clocks
+    private long decodedSamples;
+    private long runJournalPosition = -1;
+    private long runDecodedSamples;
+    // Decoder thread only: capture time of the frame being processed, decode cost since the last result
+    private long frameCapturedNanos;
+    private long utteranceDecodeNanos;
+    private long utteranceSamples;
+    // Decoder thread only: partial throttling
+    private int framesSincePartial;
+    private String lastPartial;
+
+    private Thread captureThread;
+    private Thread decoderThread;
+    private volatile boolean running;
+    private volatile boolean captureDone;
+    // Main thread only: a run's threads exist until its decoder posts runFinished()
+    private boolean active;
+    private RecognitionListener pendingListener; // Start requested while the last run drains
+    private VoiceActivityDetector.Config pendingVadConfig;
+    private boolean released;
+
+    // Decode cost, to estimate the CPU time the VAD saved. Written by the decoder thread.
+    private volatile long decodeNanos;
+    private volatile long decodedFrames;
+
+    @SuppressLint("MissingPermission") // Only constructed once RECORD_AUDIO is granted
+    public AudioCaptureService(Recognizer recognizer, float sampleRate, VoiceActivityDetector.Config vadConfig)
+            throws IOException {
+        this.recognizer = recognizer;
+        this.sampleRate = (int) sampleRate;
+        frameSamples = this.sampleRate * FRAME_MILLIS / 1000;
+        int minBuffer = AudioRecord.getMinBufferSize(this.sampleRate,
+                AudioFormat.CHANNEL_IN_MONO, AudioFormat.ENCODING_PCM_16BIT);
+        recorder = new AudioRecord(MediaRecorder.AudioSource.VOICE_RECOGNITION, this.sampleRate,
+                AudioFormat.CHANNEL_IN_MONO, AudioFormat.ENCODING_PCM_16BIT,
+                Math.max(minBuffer, this.sampleRate / 5 * 2)); // At least 200 ms
+        if (recorder.getState() == AudioRecord.STATE_UNINITIALIZED) {
+            recorder.release();
+            throw new IOException("Failed to initialize recorder. Microphone might be already in use.");
+        }
+        vad = new VoiceActivityDetector(vadConfig, this.sampleRate, frameSamples);
+        ring = new AudioFrameRing(RING_MILLIS / FRAME_MILLIS, frameSamples);
+    }
+
+    /**
+     * Starts capturing, or once the previous run has delivered its final result if it is still
+     * draining; returns false if already running.
+     */
+    public boolean startListening(RecognitionListener listener) {
+        if (running || pendingListener != null || released) {
+            return false;
+        }
+        if (active) {
+            pendingListener = listener;
+        } else {
+            launch(listener);
+        }
+        return true;
+    }
+
+    private void launch(RecognitionListener listener) {
+        if (pendingVadConfig != null) {
+            vad = new VoiceActivityDetector(pendingVadConfig, sampleRate, frameSamples);
+            pendingVadConfig = null;
+        }
+        active = true;
+        running = true;
+        captureDone = false;
+        vad.reset();
+        vad.resetStats();
+        ring.clear();
+        decoderThread = new Thread(() -> decodeLoop(listener), "AudioDecoder");
+        captureThread = new Thread(() -> captureLoop(listener), "AudioCapture");
+        captureThread.setPriority(Thread.MAX_PRIORITY);
+        decoderThread.start();
+        captureThread.start();
+    }
+
+    /**
+     * Stops capturing without waiting for the threads; the final result is delivered through
+     * {@code onFinalResult} once the decoder has caught up.
+     */
+    public boolean stop() {
+        if (pendingListener != null) {
+            // Never started: end it the way a run ends, with an empty final result
+            RecognitionListener listener = pendingListener;
+            pendingListener = null;
+            post(() -> listener.onFinalResult("{\"text\" : \"\"}"));
+            return true;
+        }
+        if (!running) {
+            return false;
+        }
+        running = false;
+        return true;
+    }
+
+    /**
+     * Stops capturing, then releases the AudioRecord and closes the recognizer, right away or
+     * once the last run has drained.
+     */
+    public void shutdown() {
+        stop();
+        released = true;
+        if (!active) {
+            releaseNative();
+        }
+    }
+
+    private void releaseNative() {
+        recorder.release();
+        recognizer.close();
+    }
+
+    /** Applies new VAD settings from the next start. */
+    public void setVadConfig(VoiceActivityDetector.Config vadConfig) {
+        if (active) {
+            pendingVadConfig = vadConfig; // The decoder is still using the current one
+        } else {
+            vad = new VoiceActivityDetector(vadConfig, sampleRate, frameSamples);
+        }
+    }
+
+    /** Journal to keep the captured audio in, or null; applied from the next start. */
+    public void setAudioJournal(AudioJournal journal) {
+        this.journal = journal;
+    }
+
+    /** Records the real-time factor and result latency under other metrics, e.g. for command mode. */
+    public void setResultMetrics(int realTimeFactorMetric, int audioToResultMetric) {
+        this.realTimeFactorMetric = realTimeFactorMetric;
+        this.audioToResultMetric = audioToResultMetric;
+    }
+
+    public VoiceActivityDetector getVad() {
+        return vad;
+    }
+
+    /** Estimated decode time avoided by skipping silent frames, in ms. */
+    public long getCpuMillisSaved() {
+        long frames = decodedFrames;
+        if (frames == 0) {
+            return 0;
+        }
+        return decodeNanos / frames * vad.getSkippedFrames() / 1_000_000;
+    }
+
+    public AudioFrameRing getRing() {
+        return ring;
+    }
+
+    public String describeStats() {
+        return String.format(Locale.US, "VAD skipped %d/%d frames (%.0f%%), ~%d ms CPU saved; "
+                        + "ring overruns %d, underruns %d, max depth %d/%d",
+                vad.getSkippedFrames(), vad.getTotalFrames(), vad.getSkippedRatio() * 100, getCpuMillisSaved(),
+                ring.getOverruns(), ring.getUnderruns(), ring.getMaxDepth(), ring.capacity());
+    }
+
+    // Producer: only moves audio from the AudioRecord into the ring
+    private void captureLoop(RecognitionListener listener) {
+        try {
+            recorder.startRecording();
+            if (recorder.getRecordingState() != AudioRecord.RECORDSTATE_RECORDING) {
+                recorder.stop();
+                running = false;
+                post(() -> listener.onError(new IOException("Failed to start recording. Microphone might be already in use.")));
+                return;
+            }
+            while (running) {
+                int read = recorder.read(ring.writeSlot(), 0, frameSamples);
+                if (read < 0) {
+                    running = false;
+                    post(() -> listener.onError(new IOException("Audio read failed: " + read)));
+                    break;
+                }
+                ring.commit(read, System.nanoTime());
+                LockSupport.unpark(decoderThread);
+            }
+            recorder.stop();
+        } finally {
+            captureDone = true;
+            LockSupport.unpark(decoderThread);
+        }
+    }
+
+    // Consumer: VAD and recognizer, at whatever pace decoding allows
+    private void decodeLoop(RecognitionListener listener) {
+        VoiceActivityDetector.FrameSink decodeSink = (buffer, length) -> decode(buffer, length, listener);
+        AudioJournal journal = this.journal;
+        recognizer.reset(); // Drop whatever is left of the previous run
+        decodedSamples = 0;
+        utteranceDecodeNanos = 0;
+        utteranceSamples = 0;
+        runDecodedSamples = 0;
+        framesSincePartial = 0;
+        lastPartial = null;
+        runJournalPosition = journal != null ? journal.getPosition() : -1;
+        while (true) {
+            short[] frame = ring.readSlot();
+            if (frame == null) {
+                if (captureDone && ring.depth() == 0) {
+                    break;
+                }
+                LockSupport.parkNanos(this, FRAME_MILLIS * 1_000_000L);
+                continue;
+            }
+            int length = ring.readLength();
+            frameCapturedNanos = ring.readTimeNanos();
+            long framePosition = journal != null ? journal.getPosition() : -1;
+            if (journal != null) {
+                try {
+                    journal.append(frame, length);
+                } catch (IOException e) {
+                    Log.e(TAG, "Audio journal failed; not keeping the rest of this recording", e);
+                    journal = null;
+                }
+            }
+            switch (vad.process(frame, length)) {
+                case VoiceActivityDetector.SPEECH_START:
+                    runDecodedSamples = decodedSamples;
+                    vad.drainPreRoll(decodeSink);
+                    // The pre-roll is the audio right before this frame
+                    runJournalPosition = framePosition < 0 ? -1
+                            : framePosition - (decodedSamples - runDecodedSamples);
+                    decode(frame, length, listener);
+                    break;
+                case VoiceActivityDetector.SPEECH:
+                    decode(frame, length, listener);
+                    break;
+                case VoiceActivityDetector.SPEECH_END:
+                    postResult(listener, recognizer.getResult(), false);
+                    break;
+                default:
+                    break; // Silence: not decoded
+            }
+            ring.release();
+        }
+
+        if (journal != null) {
+            journal.flush();
+        }
+        postResult(listener, recognizer.getFinalResult(), true);
+        Log.d(TAG, describeStats());
+        post(this::runFinished);
+    }
+
+    // Main thread, after the run's onFinalResult: both threads are done with the recorder and recognizer
+    private void runFinished() {
+        active = false;
+        captureThread = null;
+        decoderThread = null;
+        if (released) {
+            releaseNative();
+        } else if (pendingListener != null) {
+            RecognitionListener listener = pendingListener;
+            pendingListener = null;
+            launch(listener);
+        }
+    }
+
+    private void decode(short[] buffer, int length, RecognitionListener listener) {
+        long start = System.nanoTime();
+        boolean endOfUtterance = recognizer.acceptWaveForm(buffer, length);
+        long elapsed = System.nanoTime() - start;
+        decodeNanos += elapsed;
+        decodedFrames++;
+        decodedSamples += length;
+        utteranceDecodeNanos += elapsed;
+        utteranceSamples += length;
+        if (endOfUtterance) {
+            postResult(listener, recognizer.getResult(), false);
+        } else if (++framesSincePartial * FRAME_MILLIS >= PARTIAL_INTERVAL_MILLIS) {
+            framesSincePartial = 0;
+            String partial = recognizer.getPartialResult();
+            if (partial.equals(lastPartial)) {
+                return; // Nothing new to show
+            }
+            lastPartial = partial;
+            long captured = frameCapturedNanos;
+            post(() -> {
+                long delivered = System.nanoTime();
+                metrics.span(RecognitionMetrics.AUDIO_TO_PARTIAL, captured, delivered);
+                listener.onPartialResult(partial);
+                metrics.span(RecognitionMetrics.UI_CALLBACK, delivered, System.nanoTime());
+            });
+        }
+    }
+
+    // Latency and real-time factor only count when audio was decoded since the previous result
+    private void postResult(RecognitionListener listener, String result, boolean last) {
+        boolean measured = utteranceSamples > 0;
+        if (measured) {
+            long audioNanos = utteranceSamples * 1_000_000_000L / sampleRate;
+            metrics.record(realTimeFactorMetric, utteranceDecodeNanos * 1000 / audioNanos);
+        }
+        utteranceDecodeNanos = 0;
+        utteranceSamples = 0;
+        framesSincePartial = 0;
+        lastPartial = null; // The next utterance starts from an empty partial
+        postResultAudio(listener);
+        long captured = frameCapturedNanos;
+        int latencyMetric = audioToResultMetric;
+        post(() -> {
+            long delivered = System.nanoTime();
+            if (measured) {
+                metrics.span(latencyMetric, captured, delivered);
+            }
+            if (last) {
+                listener.onFinalResult(result);
+            } else {
+                listener.onResult(result);
+            }
+            metrics.span(RecognitionMetrics.UI_CALLBACK, delivered, System.nanoTime());
+        });
+    }
+
+    private void postResultAudio(RecognitionListener listener) {
+        if (listener instanceof AudioResultListener) {
+            long journalPosition = runJournalPosition;
+            double streamSeconds = (double) runDecodedSamples / sampleRate;
+            post(() -> ((AudioResultListener) listener).onResultAudio(journalPosition, streamSeconds));
+        }
+    }
+
+    private void post(Runnable callback) {
+        mainHandler.post(callback);
+    }
+}
@@ -0,0 +1,292 @@
+package com.example.easyspeech;
+
+import android.util.Log;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Append-only journal of the microphone audio, so a saved note can be played back or
+ * transcribed again later.
+ *
+ * Samples are stored as 8-bit µ-law (half the size of 16-bit PCM, good enough for speech and
+ * for the recognizer) in fixed-size segment files that are memory-mapped: appends and reads
+ * are plain buffer accesses and nothing is copied onto the heap beyond the caller's block.
+ * Audio is addressed by a sample position that keeps growing across segments and restarts;
+ * notes keep the [start, end) positions of their audio (see {@link NotesStore#setAudioRange}).
+ * When the segments outgrow {@code maxBytes} the oldest are deleted, and their positions read
+ * as unavailable.
+ *
+ * One thread appends; any thread may read positions below {@link #getPosition()}.
+ *
+ * Segment file: [int magic][int sampleRate][int segmentSamples][int samples used][µ-law bytes].
+ */
+public class AudioJournal implements Closeable {
+
+    private static final String TAG = "AudioJournal";
+
+    static final int HEADER_BYTES = 16;
+    private static final int MAGIC = 0x554c4157; // "ULAW"
+    private static final int USED_OFFSET = 12;
+    private static final String SUFFIX = ".ulaw";
+
+    // G.711 µ-law
+    private static final int BIAS = 0x84;
+    private static final int CLIP = 32635;
+    private static final short[] DECODE = new short[256];
+
+    static {
+        for (int i = 0; i < 256; i++) {
+            DECODE[i] = decodeSlow((byte) i);
+        }
+    }
+
+    private final File dir;
+    private final int sampleRate;
+    private final int segmentSamples;
+    private final long maxBytes;
+
+    // Segment index -> mapping; guarded by this
+    private final TreeMap<Long, MappedByteBuffer> segments = new TreeMap<>();
+    private long firstSegment;
+
+    // Writer thread only
+    private MappedByteBuffer writeBuffer;
+    private long writeSegment = -1;
+    private int writeUsed;
+
+    private volatile long position; // Published after the samples are written
+
+    /**
+     * Opens the journal in {@code dir}, continuing after the audio already in it.
+     *
+     * @param segmentSamples samples per segment file
+     * @param maxBytes       disk budget; at least one segment is always kept
+     */
+    public AudioJournal(File dir, int sampleRate, int segmentSamples, long maxBytes) throws IOException {
+        this.dir = dir;
+        this.sampleRate = sampleRate;
+        this.segmentSamples = segmentSamples;
+        this.maxBytes = maxBytes;
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Cannot create " + dir);
+        }
+        TreeMap<Long, File> files = new TreeMap<>();
+        File[] listed = dir.listFiles();
+        if (listed != null) {
+            for (File file : listed) {
+                String name = file.getName();
+                if (name.endsWith(SUFFIX)) {
+                    try {
+                        files.put(Long.parseLong(name.substring(0, name.length() - SUFFIX.length())), file);
+                    } catch (NumberFormatException e) {
+                        Log.w(TAG, "Ignoring " + file);
+                    }
+                }
+            }
+        }
+        firstSegment = files.isEmpty() ? 0 : files.firstKey();
+        if (!files.isEmpty()) {
+            long last = files.lastKey();
+            MappedByteBuffer buffer = map(files.get(last), FileChannel.MapMode.READ_WRITE);
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(8) != segmentSamples) {
+                throw new IOException("Audio journal segment " + last + " has another format");
+            }
+            writeBuffer = buffer;
+            writeSegment = last;
+            writeUsed = Math.min(segmentSamples, Math.max(0, buffer.getInt(USED_OFFSET)));
+            segments.put(last, buffer);
+            position = last * segmentSamples + writeUsed;
+        }
+    }
+
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    /** Position the next appended sample will get. */
+    public long getPosition() {
+        return position;
+    }
+
+    /** Oldest position still on disk. */
+    public synchronized long getFirstAvailable() {
+        return Math.min(firstSegment * segmentSamples, position);
+    }
+
+    /** Whether all of [from, to) can still be read. */
+    public boolean isAvailable(long from, long to) {
+        return from >= getFirstAvailable() && to <= position && from <= to;
+    }
+
+    public synchronized long getDiskBytes() {
+        return (long) segments.size() * (HEADER_BYTES + segmentSamples);
+    }
+
+    public String describeStats() {
+        return String.format(Locale.US, "audio journal %.1f min, %d KB on disk",
+                (position - getFirstAvailable()) / (double) sampleRate / 60, getDiskBytes() / 1024);
+    }
+
+    /** Appends {@code length} 16-bit samples from {@code pcm}. Writer thread only. */
+    public void append(short[] pcm, int length) throws IOException {
+        int done = 0;
+        while (done < length) {
+            if (writeBuffer == null || writeUsed == segmentSamples) {
+                startSegment();
+            }
+            int n = Math.min(length - done, segmentSamples - writeUsed);
+            int base = HEADER_BYTES + writeUsed;
+            for (int i = 0; i < n; i++) {
+                writeBuffer.put(base + i, encode(pcm[done + i]));
+            }
+            writeUsed += n;
+            writeBuffer.putInt(USED_OFFSET, writeUsed);
+            done += n;
+            position += n;
+        }
+    }
+
+    /**
+     * Copies up to {@code count} samples from position {@code from} into {@code out}.
+     *
+     * @return the number of samples copied; 0 past the end or once the audio has been evicted
+     */
+    public int read(long from, short[] out, int count) {
+        long end = Math.min(position, from + count);
+        int copied = 0;
+        while (from + copied < end) {
+            long at = from + copied;
+            MappedByteBuffer buffer = segment(at / segmentSamples);
+            if (buffer == null) {
+                break;
+            }
+            int offset = (int) (at % segmentSamples);
+            int n = (int) Math.min(end - at, segmentSamples - offset);
+            int base = HEADER_BYTES + offset;
+            for (int i = 0; i < n; i++) {
+                out[copied + i] = DECODE[buffer.get(base + i) & 0xff];
+            }
+            copied += n;
+        }
+        return copied;
+    }
+
+    /** Writes the current segment back to disk, e.g. when recording stops. */
+    public void flush() {
+        MappedByteBuffer buffer = writeBuffer;
+        if (buffer != null) {
+            buffer.force();
+        }
+    }
+
+    @Override
+    public void close() {
+        flush();
+        synchronized (this) {
+            segments.clear(); // Mappings are unmapped when collected
+        }
+    }
+
+    private void startSegment() throws IOException {
+        if (writeBuffer != null) {
+            writeBuffer.force();
+        }
+        long index = writeSegment + 1;
+        if (writeSegment < 0) {
+            index = position / segmentSamples;
+        }
+        MappedByteBuffer buffer = map(segmentFile(index), FileChannel.MapMode.READ_WRITE);
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, sampleRate);
+        buffer.putInt(8, segmentSamples);
+        buffer.putInt(USED_OFFSET, 0);
+        writeBuffer = buffer;
+        writeSegment = index;
+        writeUsed = 0;
+        synchronized (this) {
+            if (segments.isEmpty()) {
+                firstSegment = index;
+            }
+            segments.put(index, buffer);
+            evict();
+        }
+    }
+
+    // Deletes the oldest segments while over budget; guarded by this
+    private void evict() {
+        long segmentBytes = HEADER_BYTES + segmentSamples;
+        while (firstSegment < writeSegment && (writeSegment - firstSegment + 1) * segmentBytes > maxBytes) {
+            segments.remove(firstSegment);
+            File file = segmentFile(firstSegment);
+            if (file.exists() && !file.delete()) {
+                Log.w(TAG, "Cannot delete " + file);
+            }
+            firstSegment++;
+        }
+    }
+
+    // Mapping of a readable segment, mapped on first use; null if evicted
+    private synchronized MappedByteBuffer segment(long index) {
+        if (index < firstSegment) {
+            return null;
+        }
+        MappedByteBuffer buffer = segments.get(index);
+        if (buffer == null) {
+            try {
+                buffer = map(segmentFile(index), FileChannel.MapMode.READ_ONLY);
+                segments.put(index, buffer);
+            } catch (IOException e) {
+                Log.w(TAG, "Cannot map audio segment " + index, e);
+                return null;
+            }
+        }
+        return buffer;
+    }
+
+    private MappedByteBuffer map(File file, FileChannel.MapMode mode) throws IOException {
+        String access = mode == FileChannel.MapMode.READ_ONLY ? "r" : "rw";
+        try (RandomAccessFile raf = new RandomAccessFile(file, access)) {
+            MappedByteBuffer buffer = raf.getChannel().map(mode, 0, HEADER_BYTES + segmentSamples);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            return buffer; // Stays valid after the channel is closed
+        }
+    }
+
+    private File segmentFile(long index) {
+        return new File(dir, String.format(Locale.US, "%010d%s", index, SUFFIX));
+    }
+
+    static byte encode(short pcm) {
+        int sample = pcm;
+        int sign = (sample >> 8) & 0x80;
+        if (sign != 0) {
+            sample = -sample;
+        }
+        if (sample > CLIP) {
+            sample = CLIP;
+        }
+        sample += BIAS;
+        int exponent = Math.max(0, 31 - Integer.numberOfLeadingZeros((sample >> 7) & 0xff));
+        int mantissa = (sample >> (exponent + 3)) & 0x0f;
+        return (byte) ~(sign | (exponent << 4) | mantissa);
+    }
+
+    static short decode(byte ulaw) {
+        return DECODE[ulaw & 0xff];
+    }
+
+    private static short decodeSlow(byte ulaw) {
+        int u = ~ulaw & 0xff;
+        int magnitude = ((((u & 0x0f) << 3) + BIAS) << ((u >> 4) & 0x07)) - BIAS;
+        return (short) ((u & 0x80) != 0 ? -magnitude : magnitude);
+    }
+}
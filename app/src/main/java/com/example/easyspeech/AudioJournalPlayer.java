@@ -0,0 +1,102 @@
+package com.example.easyspeech;
+
+import android.media.AudioAttributes;
+import android.media.AudioFormat;
+import android.media.AudioTrack;
+import android.util.Log;
+
+/**
+ * Plays a range of the {@link AudioJournal} through a streaming AudioTrack, decoding one small
+ * block at a time straight from the mapped segments. One playback at a time; starting another
+ * stops the current one.
+ */
+public class AudioJournalPlayer {
+
+    private static final String TAG = "AudioJournalPlayer";
+    private static final int BLOCK_SAMPLES = 4000; // 0.25 s at 16 kHz
+
+    private Playback current;
+
+    // One playback: its track, and the thread feeding it
+    private static final class Playback {
+        final AudioTrack track;
+        Thread thread;
+        volatile boolean playing = true;
+        private boolean released; // Guarded by this
+
+        Playback(AudioTrack track) {
+            this.track = track;
+        }
+
+        // Any thread. Pausing makes a blocked write() return, so the feeding thread notices at once
+        synchronized void halt() {
+            playing = false;
+            if (!released) {
+                track.pause();
+                track.flush();
+            }
+        }
+
+        synchronized void release() {
+            released = true;
+            track.release();
+        }
+    }
+
+    /** Plays samples [from, to) of {@code journal}. Call from the main thread. */
+    public void play(AudioJournal journal, long from, long to) {
+        stop();
+        int sampleRate = journal.getSampleRate();
+        int minBuffer = AudioTrack.getMinBufferSize(sampleRate, AudioFormat.CHANNEL_OUT_MONO, AudioFormat.ENCODING_PCM_16BIT);
+        AudioTrack track = new AudioTrack.Builder()
+                .setAudioAttributes(new AudioAttributes.Builder()
+                        .setUsage(AudioAttributes.USAGE_MEDIA)
+                        .setContentType(AudioAttributes.CONTENT_TYPE_SPEECH)
+                        .build())
+                .setAudioFormat(new AudioFormat.Builder()
+                        .setSampleRate(sampleRate)
+                        .setChannelMask(AudioFormat.CHANNEL_OUT_MONO)
+                        .setEncoding(AudioFormat.ENCODING_PCM_16BIT)
+                        .build())
+                .setBufferSizeInBytes(Math.max(minBuffer, BLOCK_SAMPLES * 2))
+                .setTransferMode(AudioTrack.MODE_STREAM)
+                .build();
+        Playback playback = new Playback(track);
+        playback.thread = new Thread(() -> {
+            short[] block = new short[BLOCK_SAMPLES];
+            try {
+                track.play();
+                long position = from;
+                while (playback.playing && position < to) {
+                    int n = journal.read(position, block, (int) Math.min(BLOCK_SAMPLES, to - position));
+                    if (n <= 0) {
+                        break; // Evicted meanwhile
+                    }
+                    track.write(block, 0, n); // Blocks while the track's buffer is full
+                    position += n;
+                }
+                if (playback.playing) {
+                    track.stop(); // Plays out what is buffered
+                }
+            } catch (IllegalStateException e) {
+                Log.e(TAG, "Playback failed", e);
+            } finally {
+                playback.release();
+            }
+        }, "AudioJournalPlayer");
+        current = playback;
+        playback.thread.start();
+    }
+
+    public boolean isPlaying() {
+        return current != null && current.playing && current.thread.isAlive();
+    }
+
+    /** Silences the current playback right away; its thread releases the track without being waited for. */
+    public void stop() {
+        if (current != null) {
+            current.halt();
+            current = null;
+        }
+    }
+}
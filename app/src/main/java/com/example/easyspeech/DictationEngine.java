@@ -0,0 +1,426 @@
+package com.example.easyspeech;
+
+import android.content.Context;
+import android.os.Debug;
+import android.util.Log;
+
+import org.vosk.Model;
+import org.vosk.android.RecognitionListener;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Process-wide dictation state: the {@link RecognitionSession}, the {@link Transcript} it fills
+ * and the audio range of that transcript. Owned by {@link EasySpeechApplication}, so recognition
+ * keeps running and the transcript survives while MainActivity is recreated (rotation, theme
+ * change) or covered by another screen such as NotesActivity.
+ *
+ * Activities only attach as {@link Observer}s: on {@link #addObserver} they are brought up to
+ * date (model ready, listening, current partial) and afterwards told about every change. All
+ * methods and callbacks are on the main thread.
+ *
+ * In command mode a second session, restricted to the {@link CommandGrammar} phrases, listens
+ * whenever dictation doesn't; recognized commands go to the observers to act on. Dictation
+ * takes the microphone over from it and hands it back when it stops. While dictating, an
+ * utterance that is exactly a command phrase ("save note", "stop") is taken as that command
+ * instead of text, so command mode stays hands-free; "stop" stops dictation.
+ *
+ * While recording, the Java heap allocation rate is sampled at every result into
+ * {@link RecognitionMetrics#ALLOCATION_RATE}.
+ */
+public class DictationEngine implements RecognitionListener, AudioCaptureService.AudioResultListener {
+
+    private static final String TAG = "DictationEngine";
+    private static final String SESSION_LOG_FILE = "dictation_session.log";
+    private static final int TRANSCRIPT_WINDOW = 200; // Segments kept on the heap for display
+
+    public interface Observer {
+        /** The model is loaded; recording can start. */
+        void onModelReady(Model model);
+
+        void onModelError(Exception e);
+
+        void onListeningChanged(boolean listening);
+
+        void onPartialResult(String hypothesis);
+
+        /** A segment was appended to {@link #getTranscript()}; {@code evicted} as in {@link TranscriptAdapter#notifySegmentAppended}. */
+        void onSegmentAppended(String text, boolean evicted);
+
+        /** The transcript was emptied; {@code windowCount} rows were shown before. */
+        void onTranscriptCleared(int windowCount);
+
+        void onError(Exception error);
+
+        /** Command mode was switched on or off. */
+        void onCommandModeChanged(boolean commandMode);
+
+        /** A command was spoken in command mode. */
+        void onCommand(CommandGrammar.Command command);
+    }
+
+    private final Context appContext;
+    private final List<Observer> observers = new ArrayList<>();
+    private final Transcript transcript;
+    private final HypothesisParser hypothesisParser = new HypothesisParser();
+
+    private boolean modelRequested;
+    private Model model;
+    private Exception modelError;
+    private RecognitionSession recognitionSession;
+    private boolean listening;
+    private boolean continuousDictation = true;
+    private String lastPartial;
+
+    // Command mode: grammar-restricted session that listens while dictation doesn't
+    private final HypothesisParser commandParser = new HypothesisParser();
+    private CommandGrammar commandGrammar;
+    private RecognitionSession commandSession;
+    private boolean commandMode;
+
+    private long transcriptAudioStart = -1; // Journal position where the transcript's audio begins
+    // Where the next result's word times start, from onResultAudio()
+    private long resultJournalPosition = -1;
+    private double resultStreamSeconds;
+
+    // Allocation rate: process-wide bytes allocated at the last sample, and when
+    private long allocatedBytes = -1;
+    private long allocatedAtNanos;
+
+    DictationEngine(Context context) {
+        appContext = context.getApplicationContext();
+        transcript = new Transcript(new File(appContext.getFilesDir(), SESSION_LOG_FILE), TRANSCRIPT_WINDOW);
+    }
+
+    /**
+     * Attaches {@code observer} and replays the current state to it. Loading the model is left to
+     * {@link #loadModel()}, since it needs the microphone permission first.
+     */
+    public void addObserver(Observer observer) {
+        observers.add(observer);
+        if (model != null) {
+            observer.onModelReady(model);
+        } else if (modelError != null) {
+            observer.onModelError(modelError);
+        }
+        observer.onListeningChanged(listening);
+        observer.onCommandModeChanged(commandMode);
+        if (listening && lastPartial != null) {
+            observer.onPartialResult(lastPartial);
+        }
+    }
+
+    public void removeObserver(Observer observer) {
+        observers.remove(observer);
+    }
+
+    /** Loads the shared model once; observers get {@code onModelReady} or {@code onModelError}. */
+    public void loadModel() {
+        if (modelRequested) {
+            return;
+        }
+        modelRequested = true;
+        // ModelHolder unpacks the assets only when their manifest changed and keeps one Model per process
+        ModelHolder.getInstance(appContext).acquire(new ModelHolder.Callback() {
+            @Override
+            public void onModelReady(Model loaded) {
+                model = loaded;
+                recognitionSession = new RecognitionSession(loaded, VadSettings.load(appContext));
+                recognitionSession.setAudioJournal(((EasySpeechApplication) appContext).getAudioJournal());
+                commandGrammar = new CommandGrammar(appContext.getResources().getStringArray(R.array.translation_languages));
+                commandSession = new RecognitionSession(loaded, VadSettings.load(appContext), commandGrammar.toJson());
+                for (Observer observer : new ArrayList<>(observers)) {
+                    observer.onModelReady(loaded);
+                }
+            }
+
+            @Override
+            public void onModelError(Exception e) {
+                modelError = e;
+                modelRequested = false; // Retried by the next loadModel()
+                for (Observer observer : new ArrayList<>(observers)) {
+                    observer.onModelError(e);
+                }
+            }
+        });
+    }
+
+    /** The loaded model, or null. */
+    public Model getModel() {
+        return model;
+    }
+
+    public Transcript getTranscript() {
+        return transcript;
+    }
+
+    public boolean isListening() {
+        return listening;
+    }
+
+    /**
+     * Starts recording with the current settings, continuing the transcript.
+     *
+     * @throws IOException if the audio pipeline cannot be created
+     */
+    public void start() throws IOException {
+        if (recognitionSession == null || listening) {
+            return;
+        }
+        // Pick up settings changed in SettingsActivity
+        recognitionSession.setVadConfig(VadSettings.load(appContext));
+        continuousDictation = DictationSettings.isContinuous(appContext);
+        if (transcriptAudioStart < 0) {
+            transcriptAudioStart = recognitionSession.getAudioPosition();
+        }
+        lastPartial = null;
+        if (commandSession != null) {
+            commandSession.stop(); // One microphone; command mode resumes when dictation stops
+        }
+        sampleAllocationRate(); // Starts the first interval
+        // Reuses the warm Recognizer and AudioRecord after the first recording
+        recognitionSession.start(this);
+        setListening(true);
+    }
+
+    /** Stops recording; the last result arrives through the observers. */
+    public void stop() {
+        if (recognitionSession != null) {
+            recognitionSession.stop();
+        }
+        setListening(false);
+    }
+
+    public boolean isInCommandMode() {
+        return commandMode;
+    }
+
+    /**
+     * Listens for commands, now if dictation isn't running or else once it stops.
+     *
+     * @throws IOException if the audio pipeline cannot be created
+     */
+    public void startCommandMode() throws IOException {
+        if (commandSession == null || commandMode) {
+            return;
+        }
+        if (!listening) {
+            startCommandSession();
+        }
+        setCommandMode(true);
+    }
+
+    public void stopCommandMode() {
+        if (commandSession != null) {
+            commandSession.stop();
+        }
+        setCommandMode(false);
+    }
+
+    /** Appends text from elsewhere, e.g. a transcribed file. */
+    public void appendSegment(String text) {
+        appendSegment(text, WordTimings.EMPTY);
+    }
+
+    /** {start, end} journal positions of the transcript's audio, or null if none was kept. */
+    public long[] getTranscriptAudioRange() {
+        long end = recognitionSession != null ? recognitionSession.getAudioPosition() : -1;
+        return transcriptAudioStart >= 0 && end > transcriptAudioStart ? new long[]{transcriptAudioStart, end} : null;
+    }
+
+    public void clearTranscript() {
+        int count = transcript.getWindowCount();
+        transcript.clear();
+        // Audio still being recorded belongs to the next note
+        transcriptAudioStart = listening ? recognitionSession.getAudioPosition() : -1;
+        for (Observer observer : new ArrayList<>(observers)) {
+            observer.onTranscriptCleared(count);
+        }
+    }
+
+    // --- RecognitionListener, from the session ---
+
+    @Override
+    public void onPartialResult(String hypothesis) {
+        lastPartial = hypothesis;
+        for (Observer observer : new ArrayList<>(observers)) {
+            observer.onPartialResult(hypothesis);
+        }
+    }
+
+    @Override
+    public void onResultAudio(long journalPosition, double streamSeconds) {
+        resultJournalPosition = journalPosition;
+        resultStreamSeconds = streamSeconds;
+    }
+
+    @Override
+    public void onResult(String hypothesis) {
+        CommandGrammar.Command command = appendResult(hypothesis, commandMode);
+        sampleAllocationRate();
+        if (!continuousDictation) {
+            recognitionSession.stop(); // One utterance per tap; onFinalResult follows
+        }
+        setListening(recognitionSession.isListening());
+        if (command != null) {
+            onCommand(command);
+        }
+    }
+
+    @Override
+    public void onFinalResult(String hypothesis) {
+        appendResult(hypothesis, false); // What was said before stopping is text
+        sampleAllocationRate();
+        allocatedBytes = -1; // Time between recordings doesn't count
+        resumeCommandMode();
+        setListening(false);
+        DictationSettings.saveLastStats(appContext, recognitionSession.describeCaptureStats());
+    }
+
+    @Override
+    public void onError(Exception error) {
+        setListening(false); // The session already stopped listening
+        setCommandMode(false); // Would most likely fail the same way
+        for (Observer observer : new ArrayList<>(observers)) {
+            observer.onError(error);
+        }
+    }
+
+    @Override
+    public void onTimeout() {
+        setListening(false);
+        resumeCommandMode();
+    }
+
+    // Hypothesis is a JSON string with the "text" and, per word, "result" timings
+    // Example: {"result" : [{"conf" : 1.0, "end" : 0.51, "start" : 0.21, "word" : "hello"}], "text" : "hello"}
+    // Returns the command the result consists of instead of appending it, if matchCommands
+    private CommandGrammar.Command appendResult(String hypothesis, boolean matchCommands) {
+        lastPartial = null;
+        if (hypothesisParser.parse(hypothesis)) {
+            if (!hypothesisParser.isEmpty()) { // The VAD finalizes at every pause, possibly with nothing said
+                CommandGrammar.Command command = matchCommands ? commandGrammar.match(hypothesisParser.text()) : null;
+                if (command != null) {
+                    return command;
+                }
+                String text = hypothesisParser.getText();
+                appendSegment(text, WordTimings.from(hypothesisParser, text, resultJournalPosition, resultStreamSeconds));
+            }
+        } else {
+            Log.e(TAG, "Error parsing Vosk result JSON: " + hypothesis);
+            appendSegment(hypothesis); // Fallback to raw hypothesis
+        }
+        return null;
+    }
+
+    private void appendSegment(String text, WordTimings words) {
+        int windowStart = transcript.getWindowStart();
+        transcript.append(text, words);
+        boolean evicted = transcript.getWindowStart() > windowStart;
+        for (Observer observer : new ArrayList<>(observers)) {
+            observer.onSegmentAppended(text, evicted);
+        }
+    }
+
+    // Gives the microphone back to command mode once dictation has stopped
+    private void resumeCommandMode() {
+        if (!commandMode || listening) {
+            return;
+        }
+        try {
+            startCommandSession();
+        } catch (IOException e) {
+            onError(e);
+        }
+    }
+
+    private void startCommandSession() throws IOException {
+        commandSession.setVadConfig(VadSettings.load(appContext));
+        commandSession.start(commandListener);
+    }
+
+    // Results of the command session. Only onResult counts: a final result follows a stop, when
+    // dictation took the microphone over or command mode ended.
+    private final RecognitionListener commandListener = new RecognitionListener() {
+        @Override
+        public void onPartialResult(String hypothesis) {
+        }
+
+        @Override
+        public void onResult(String hypothesis) {
+            if (!commandParser.parse(hypothesis) || commandParser.isEmpty()) {
+                return;
+            }
+            CommandGrammar.Command command = commandGrammar.match(commandParser.text());
+            if (command == null) {
+                Log.d(TAG, "Not a command: " + commandParser.getText());
+                return;
+            }
+            onCommand(command);
+        }
+
+        @Override
+        public void onFinalResult(String hypothesis) {
+        }
+
+        @Override
+        public void onError(Exception exception) {
+            setCommandMode(false); // The session already stopped listening
+            DictationEngine.this.onError(exception);
+        }
+
+        @Override
+        public void onTimeout() {
+            setCommandMode(false);
+        }
+    };
+
+    // From either session
+    private void onCommand(CommandGrammar.Command command) {
+        if (command.getAction() == CommandGrammar.STOP) {
+            stop(); // Nothing to do unless dictating; command mode takes over again when it stops
+        }
+        for (Observer observer : new ArrayList<>(observers)) {
+            observer.onCommand(command);
+        }
+    }
+
+    private void setCommandMode(boolean commandMode) {
+        if (this.commandMode == commandMode) {
+            return;
+        }
+        this.commandMode = commandMode;
+        for (Observer observer : new ArrayList<>(observers)) {
+            observer.onCommandModeChanged(commandMode);
+        }
+    }
+
+    private void sampleAllocationRate() {
+        long bytes;
+        try {
+            bytes = Long.parseLong(Debug.getRuntimeStat("art.gc.bytes-allocated"));
+        } catch (NumberFormatException e) {
+            return; // Not reported by this runtime
+        }
+        long now = System.nanoTime();
+        if (allocatedBytes >= 0 && now > allocatedAtNanos) {
+            long kilobytesPerSecond = (bytes - allocatedBytes) * 1_000_000_000L / 1024 / (now - allocatedAtNanos);
+            RecognitionMetrics.getInstance().record(RecognitionMetrics.ALLOCATION_RATE, kilobytesPerSecond);
+        }
+        allocatedBytes = bytes;
+        allocatedAtNanos = now;
+    }
+
+    private void setListening(boolean listening) {
+        if (this.listening == listening) {
+            return;
+        }
+        this.listening = listening;
+        for (Observer observer : new ArrayList<>(observers)) {
+            observer.onListeningChanged(listening);
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.easyspeech;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+/**
+ * Persists the dictation mode and the metrics overlay switch edited in SettingsActivity, and the
+ * capture stats of the last recording so they can be shown there.
+ */
+public final class DictationSettings {
+
+    private static final String PREFS = "vad_settings"; // Where these lived with the VAD tunables; kept for existing installs
+    private static final String KEY_CONTINUOUS = "continuous_dictation";
+    private static final String KEY_METRICS_OVERLAY = "metrics_overlay";
+    private static final String KEY_LAST_STATS = "last_stats";
+
+    private DictationSettings() {
+    }
+
+    /** Whether recording goes on across utterances until stopped, rather than ending after the first. */
+    public static boolean isContinuous(Context context) {
+        return prefs(context).getBoolean(KEY_CONTINUOUS, true);
+    }
+
+    public static void setContinuous(Context context, boolean continuous) {
+        prefs(context).edit().putBoolean(KEY_CONTINUOUS, continuous).apply();
+    }
+
+    /** Whether MainActivity shows the {@link RecognitionMetrics} overlay. */
+    public static boolean isMetricsOverlay(Context context) {
+        return prefs(context).getBoolean(KEY_METRICS_OVERLAY, false);
+    }
+
+    public static void setMetricsOverlay(Context context, boolean shown) {
+        prefs(context).edit().putBoolean(KEY_METRICS_OVERLAY, shown).apply();
+    }
+
+    public static void saveLastStats(Context context, String stats) {
+        prefs(context).edit().putString(KEY_LAST_STATS, stats).apply();
+    }
+
+    public static String getLastStats(Context context) {
+        return prefs(context).getString(KEY_LAST_STATS, null);
+    }
+
+    private static SharedPreferences prefs(Context context) {
+        return context.getApplicationContext().getSharedPreferences(PREFS, Context.MODE_PRIVATE);
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.easyspeech;
+
+import android.app.Application;
+import android.util.Log;
+
+import com.airbnb.lottie.LottieCompositionFactory;
+import com.airbnb.lottie.LottieResult;
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.firestore.FirebaseFirestore;
+
+import org.vosk.Model;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.Executors;
+
+public class EasySpeechApplication extends Application {
+
+    private static final String TAG = "EasySpeechApplication";
+    static final String SPLASH_ANIMATION_ASSET = "splash_animation.json";
+    private static final String TRANSLATION_MEMORY_FILE = "translation_memory.bin";
+    private static final int TRANSLATION_MEMORY_ENTRIES = 256;
+    private static final long TRANSLATION_MEMORY_BYTES = 2 * 1024 * 1024;
+
+    private static final String NOTE_OUTBOX_FILE = "note_outbox.journal";
+    private static final long NOTE_OUTBOX_COALESCE_MILLIS = 500;
+    private static final long NOTE_OUTBOX_BASE_BACKOFF_MILLIS = 2000;
+    private static final long NOTE_OUTBOX_MAX_BACKOFF_MILLIS = 5 * 60 * 1000;
+
+    private static final String AUDIO_JOURNAL_DIR = "audio_journal";
+    private static final int AUDIO_JOURNAL_SEGMENT_SAMPLES = 16000 * 60 * 4; // 4 min, ~3.7 MB
+    private static final long AUDIO_JOURNAL_MAX_BYTES = 128L * 1024 * 1024;  // ~2.3 h of audio
+
+    private volatile TranslationMemory translationMemory;
+    private NoteOutbox noteOutbox;
+    private AudioJournal audioJournal;
+    private DictationEngine dictationEngine;
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        startStartupTasks();
+    }
+
+    /** Shared translation memory, or null while it is still being loaded. */
+    public TranslationMemory getTranslationMemory() {
+        return translationMemory;
+    }
+
+    /** Process-wide outbox for saved notes; flushes what a previous run left pending on creation. */
+    public synchronized NoteOutbox getNoteOutbox() {
+        if (noteOutbox == null) {
+            noteOutbox = new NoteOutbox(new File(getFilesDir(), NOTE_OUTBOX_FILE),
+                    new FirestoreNoteSink(FirebaseFirestore.getInstance()),
+                    Executors.newSingleThreadScheduledExecutor(),
+                    NOTE_OUTBOX_COALESCE_MILLIS, NOTE_OUTBOX_BASE_BACKOFF_MILLIS, NOTE_OUTBOX_MAX_BACKOFF_MILLIS);
+        }
+        return noteOutbox;
+    }
+
+    /** Process-wide journal of recorded audio, or null if it cannot be opened. */
+    public synchronized AudioJournal getAudioJournal() {
+        if (audioJournal == null) {
+            try {
+                audioJournal = new AudioJournal(new File(getFilesDir(), AUDIO_JOURNAL_DIR),
+                        (int) RecognitionSession.SAMPLE_RATE, AUDIO_JOURNAL_SEGMENT_SAMPLES, AUDIO_JOURNAL_MAX_BYTES);
+            } catch (IOException e) {
+                Log.e(TAG, "Cannot open the audio journal; recordings won't be kept", e);
+            }
+        }
+        return audioJournal;
+    }
+
+    /**
+     * Process-wide recognition engine and transcript, which outlive MainActivity so dictation
+     * keeps going through configuration changes and while other screens are shown. Main thread only.
+     */
+    public DictationEngine getDictationEngine() {
+        if (dictationEngine == null) {
+            dictationEngine = new DictationEngine(this);
+        }
+        return dictationEngine;
+    }
+
+    // Kick off the independent cold-start work in parallel; SplashActivity and MainActivity
+    // only wait for the tasks they need.
+    private void startStartupTasks() {
+        StartupOrchestrator startup = StartupOrchestrator.getInstance();
+
+        startup.start(StartupOrchestrator.TASK_FIREBASE_AUTH, done -> {
+            // Restores the persisted user so getCurrentUser() is cheap on the main thread
+            if (FirebaseAuth.getInstance().getCurrentUser() != null) {
+                getNoteOutbox(); // Resumes flushing notes saved while offline
+            }
+            done.complete();
+        });
+
+        startup.start(StartupOrchestrator.TASK_SPLASH_ANIMATION, done -> {
+            // Parsed into Lottie's composition cache, which setAnimation() reads from
+            LottieResult<?> result = LottieCompositionFactory.fromAssetSync(this, SPLASH_ANIMATION_ASSET);
+            if (result.getException() != null) {
+                done.fail(new Exception(result.getException()));
+            } else {
+                done.complete();
+            }
+        });
+
+        startup.start(StartupOrchestrator.TASK_VOSK_MODEL, done ->
+                ModelHolder.getInstance(this).acquire(new ModelHolder.Callback() {
+                    @Override
+                    public void onModelReady(Model model) {
+                        done.complete();
+                    }
+
+                    @Override
+                    public void onModelError(Exception e) {
+                        done.fail(e);
+                    }
+                }));
+
+        startup.start(StartupOrchestrator.TASK_TRANSLATION_MEMORY, done -> {
+            translationMemory = new TranslationMemory(new File(getFilesDir(), TRANSLATION_MEMORY_FILE),
+                    TRANSLATION_MEMORY_ENTRIES, TRANSLATION_MEMORY_BYTES);
+            done.complete();
+        });
+    }
+}
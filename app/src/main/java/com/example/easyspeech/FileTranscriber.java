@@ -0,0 +1,158 @@
+package com.example.easyspeech;
+
+import android.util.Log;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Transcribes recorded audio faster than real time: the file is split at silences, the chunks
+ * are decoded in parallel on a bounded pool of decoders (one Vosk Recognizer each, all sharing
+ * one Model) and the texts are merged back in order.
+ */
+public class FileTranscriber {
+
+    private static final String TAG = "FileTranscriber";
+
+    /** Decodes one chunk. Instances are used by one thread at a time. */
+    public interface ChunkDecoder extends Closeable {
+        String decode(PcmAudio audio, int fromFrame, int toFrame) throws IOException;
+    }
+
+    public interface DecoderFactory {
+        ChunkDecoder create(int sampleRate) throws IOException;
+    }
+
+    /** Outcome of {@link #transcribe}. */
+    public static final class Result {
+        private final List<String> chunkTexts;
+        private final double audioSeconds;
+        private final long elapsedMillis;
+
+        Result(List<String> chunkTexts, double audioSeconds, long elapsedMillis) {
+            this.chunkTexts = chunkTexts;
+            this.audioSeconds = audioSeconds;
+            this.elapsedMillis = elapsedMillis;
+        }
+
+        /** Non-empty chunk texts in audio order. */
+        public List<String> getChunkTexts() {
+            return chunkTexts;
+        }
+
+        public String getText() {
+            StringBuilder sb = new StringBuilder();
+            for (String text : chunkTexts) {
+                if (sb.length() > 0) {
+                    sb.append(' ');
+                }
+                sb.append(text);
+            }
+            return sb.toString();
+        }
+
+        public double getAudioSeconds() {
+            return audioSeconds;
+        }
+
+        public long getElapsedMillis() {
+            return elapsedMillis;
+        }
+
+        /** Processing time over audio time; below 1 is faster than real time. */
+        public double getRealTimeFactor() {
+            return audioSeconds > 0 ? elapsedMillis / 1000.0 / audioSeconds : 0;
+        }
+    }
+
+    private final DecoderFactory decoderFactory;
+    private final int parallelism;
+    private final SilenceSplitter splitter;
+
+    public FileTranscriber(DecoderFactory decoderFactory) {
+        this(decoderFactory, defaultParallelism(), new SilenceSplitter());
+    }
+
+    public FileTranscriber(DecoderFactory decoderFactory, int parallelism, SilenceSplitter splitter) {
+        this.decoderFactory = decoderFactory;
+        this.parallelism = Math.max(1, parallelism);
+        this.splitter = splitter;
+    }
+
+    // Leave a core for the UI thread; recognizers are memory hungry, so cap the pool
+    static int defaultParallelism() {
+        return Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() - 1));
+    }
+
+    public Result transcribe(PcmAudio audio) throws IOException {
+        long start = System.nanoTime();
+        int[] bounds = splitter.split(audio);
+        int chunks = bounds.length - 1;
+        int threads = Math.min(parallelism, chunks);
+
+        BlockingQueue<ChunkDecoder> pool = new ArrayBlockingQueue<>(threads);
+        List<ChunkDecoder> created = new ArrayList<>(threads);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            for (int i = 0; i < threads; i++) {
+                ChunkDecoder decoder = decoderFactory.create(audio.getSampleRate());
+                created.add(decoder);
+                pool.add(decoder);
+            }
+
+            List<Future<String>> futures = new ArrayList<>(chunks);
+            for (int i = 0; i < chunks; i++) {
+                int from = bounds[i];
+                int to = bounds[i + 1];
+                futures.add(executor.submit(() -> {
+                    ChunkDecoder decoder = pool.take();
+                    try {
+                        return decoder.decode(audio, from, to);
+                    } finally {
+                        pool.put(decoder);
+                    }
+                }));
+            }
+
+            List<String> texts = new ArrayList<>(chunks);
+            for (Future<String> future : futures) {
+                String text = future.get();
+                if (text != null && !text.isEmpty()) {
+                    texts.add(text);
+                }
+            }
+            long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+            Result result = new Result(texts, audio.getDurationSeconds(), elapsedMillis);
+            Log.i(TAG, String.format(Locale.US, "%.1f s of audio in %d chunks on %d threads: %d ms, RTF %.3f",
+                    result.getAudioSeconds(), chunks, threads, elapsedMillis, result.getRealTimeFactor()));
+            return result;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Transcription interrupted", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException("Chunk decoding failed", cause);
+        } finally {
+            executor.shutdownNow();
+            for (ChunkDecoder decoder : created) {
+                try {
+                    decoder.close();
+                } catch (IOException e) {
+                    Log.w(TAG, "Failed to close decoder", e);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.easyspeech;
+
+import com.google.firebase.firestore.CollectionReference;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.WriteBatch;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes outbox notes to the {@code notes} collection in one {@link WriteBatch}.
+ *
+ * Each note is {@code set} at its client-generated document ID, so writing the same note twice
+ * leaves one document. The timestamp is the server's commit time rather than the time of the
+ * save: notes can reach Firestore long after they were taken, and the notes sync only asks
+ * for timestamps newer than the last one it saw. Commit latency goes to {@link RecognitionMetrics}.
+ */
+public class FirestoreNoteSink implements NoteOutbox.Sink {
+
+    private final CollectionReference notes;
+
+    public FirestoreNoteSink(FirebaseFirestore db) {
+        notes = db.collection("notes");
+    }
+
+    @Override
+    public void write(List<Note> batchNotes, NoteOutbox.Callback callback) {
+        WriteBatch batch = notes.getFirestore().batch();
+        for (Note note : batchNotes) {
+            Map<String, Object> data = new HashMap<>();
+            data.put("userId", note.getUserId());
+            data.put("transcribedText", note.getTranscribedText());
+            data.put("translatedText", note.getTranslatedText()); // Can be empty if not translated
+            data.put("timestamp", FieldValue.serverTimestamp());
+            batch.set(notes.document(note.getDocumentId()), data);
+        }
+        long start = System.nanoTime();
+        batch.commit()
+                .addOnSuccessListener(aVoid -> {
+                    RecognitionMetrics.getInstance().span(RecognitionMetrics.NOTE_SAVE, start, System.nanoTime());
+                    callback.onSuccess();
+                })
+                .addOnFailureListener(callback::onFailure);
+    }
+}
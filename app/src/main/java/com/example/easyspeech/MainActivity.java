@@ -3,17 +3,21 @@ package com.example.easyspeech;
 import android.Manifest;
 import android.content.Intent;
 import android.content.pm.PackageManager;
+import android.net.Uri;
 import android.os.Bundle;
-import android.text.method.ScrollingMovementMethod;
+import android.os.ParcelFileDescriptor;
 import android.util.Log;
 import android.view.MenuItem;
 import android.view.View;
+import android.widget.AdapterView;
 import android.widget.Button;
 import android.widget.EditText;
 import android.widget.Spinner;
 import android.widget.TextView;
 import android.widget.Toast;
 
+import androidx.activity.result.ActivityResultLauncher;
+import androidx.activity.result.contract.ActivityResultContracts;
 import androidx.annotation.NonNull;
 import androidx.appcompat.app.ActionBarDrawerToggle;
 import androidx.appcompat.app.AppCompatActivity;
@@ -21,41 +25,66 @@ import androidx.appcompat.widget.Toolbar;
 import androidx.core.app.ActivityCompat;
 import androidx.core.content.ContextCompat;
 import androidx.drawerlayout.widget.DrawerLayout;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
 
 import com.google.android.material.bottomnavigation.BottomNavigationView;
 import com.google.android.material.navigation.NavigationView;
+import com.google.firebase.Timestamp;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
 import com.google.firebase.firestore.FirebaseFirestore;
 
-import org.vosk.LibVosk;
-import org.vosk.LogLevel;
 import org.vosk.Model;
-import org.vosk.Recognizer;
-import org.vosk.android.RecognitionListener;
-import org.vosk.android.SpeechService;
-import org.vosk.android.SpeechStreamService;
-import org.vosk.android.StorageService;
 
+import java.io.FileInputStream;
 import java.io.IOException;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
-public class MainActivity extends AppCompatActivity implements RecognitionListener, NavigationView.OnNavigationItemSelectedListener {
+public class MainActivity extends AppCompatActivity implements DictationEngine.Observer,
+        NavigationView.OnNavigationItemSelectedListener {
 
     private static final String TAG = "EasySpeechApp";
     private static final int PERMISSIONS_REQUEST_RECORD_AUDIO = 1;
-
-    private Model model;
-    private SpeechService speechService;
-    private SpeechStreamService speechStreamService;
-
-    private TextView resultView;
+    private static final long METRICS_OVERLAY_REFRESH_MILLIS = 500;
+
+    // Recognition and the transcript live in the application; this activity only observes them
+    private DictationEngine dictationEngine;
+
+    // Offline transcription of existing recordings
+    private final ExecutorService fileTranscriptionExecutor = Executors.newSingleThreadExecutor();
+    private final ActivityResultLauncher<String[]> pickAudioFile =
+            registerForActivityResult(new ActivityResultContracts.OpenDocument(), this::transcribeFile);
+
+    private RecyclerView resultView;
+    private Transcript transcript; // The engine's
+    // Reads transcript snapshots; a long session's older segments come from the session log
+    private final ExecutorService transcriptExecutor = Executors.newSingleThreadExecutor();
+    private Transcript.Snapshot savingNote; // Being read for saveNote(), until it is saved
+    private final AudioJournalPlayer audioPlayer = new AudioJournalPlayer();
+    private TranscriptAdapter transcriptAdapter;
     private TextView partialResultView;
+    private TextView metricsOverlay;
+    private final Runnable refreshMetricsOverlay = new Runnable() {
+        @Override
+        public void run() {
+            metricsOverlay.setText(RecognitionMetrics.getInstance().describe());
+            metricsOverlay.postDelayed(this, METRICS_OVERLAY_REFRESH_MILLIS);
+        }
+    };
+    private PartialResultRenderer partialResultRenderer;
     private EditText translatedTextView;
     private Button recordButton;
     private Button translateButton;
     private Spinner targetLanguageSpinner;
+    private TranslationPipeline translationPipeline; // Live while translation is switched on
+    private int translationLanguage = -1; // Spinner position translationPipeline translates into
+    private Transcript.Snapshot translationBacklog; // Segments still being read for translationPipeline
+    private boolean showingRecording;
     
     private FirebaseAuth mAuth;
     private FirebaseFirestore db;
@@ -78,12 +107,21 @@ public class MainActivity extends AppCompatActivity implements RecognitionListen
 
         resultView = findViewById(R.id.result_view);
         partialResultView = findViewById(R.id.partial_result_view);
+        metricsOverlay = findViewById(R.id.metrics_overlay);
         translatedTextView = findViewById(R.id.translated_text_view);
         recordButton = findViewById(R.id.record_button);
         translateButton = findViewById(R.id.translate_button);
         targetLanguageSpinner = findViewById(R.id.target_language_spinner);
         
-        resultView.setMovementMethod(new ScrollingMovementMethod());
+        LinearLayoutManager transcriptLayoutManager = new LinearLayoutManager(this);
+        transcriptLayoutManager.setStackFromEnd(true); // Keep the latest utterance in view
+        resultView.setLayoutManager(transcriptLayoutManager);
+        dictationEngine = ((EasySpeechApplication) getApplication()).getDictationEngine();
+        transcript = dictationEngine.getTranscript();
+        transcriptAdapter = new TranscriptAdapter(transcript);
+        transcriptAdapter.setOnWordTapListener(this::playFromWord);
+        resultView.setAdapter(transcriptAdapter);
+        partialResultRenderer = new PartialResultRenderer(partialResultView);
 
         drawerLayout = findViewById(R.id.drawer_layout);
         navigationView = findViewById(R.id.nav_view);
@@ -107,45 +145,39 @@ public class MainActivity extends AppCompatActivity implements RecognitionListen
         }
 
         recordButton.setOnClickListener(view -> {
-            if (speechService != null) {
+            if (dictationEngine.getModel() != null) {
                 recognizeMicrophone();
             } else {
                 Toast.makeText(this, "Vosk Model not initialized yet.", Toast.LENGTH_SHORT).show();
             }
         });
 
-        translateButton.setOnClickListener(view -> {
-            String textToTranslate = resultView.getText().toString();
-            if (!textToTranslate.isEmpty()) {
-                // TODO: Implement actual translation API call
-                // For now, just a placeholder
-                String targetLang = targetLanguageSpinner.getSelectedItem().toString();
-                translatedTextView.setText("Translating '" + textToTranslate + "' to " + targetLang + " (Not Implemented)");
-                 Toast.makeText(this, "Translation API call not implemented.", Toast.LENGTH_SHORT).show();
-            } else {
-                Toast.makeText(this, "No text to translate.", Toast.LENGTH_SHORT).show();
+        translateButton.setOnClickListener(view -> translate());
+        targetLanguageSpinner.setOnItemSelectedListener(new AdapterView.OnItemSelectedListener() {
+            @Override
+            public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
+                if (translationPipeline != null && position != translationLanguage) {
+                    startTranslation(); // Retranslate everything into the new language
+                }
+            }
+
+            @Override
+            public void onNothingSelected(AdapterView<?> parent) {
             }
         });
 
         Button saveNoteButton = findViewById(R.id.save_note_button);
         saveNoteButton.setOnClickListener(v -> saveNote());
+
+        // Catches up with a recording that went on while this activity was being recreated
+        dictationEngine.addObserver(this);
     }
 
     private void initVoskModel() {
-        LibVosk.setLogLevel(LogLevel.INFO);
-        // Unpack the model first if it's not unpacked yet.
-        // Model path: "file:///android_asset/vosk-model-small-en-us-0.15"
-        // This path assumes the model is in app/src/main/assets/vosk-model-small-en-us-0.15
-        // You might need to adjust based on your actual model name and location.
-        StorageService.unpack(this, "vosk-model-small-en-us-0.15", "model",
-                (model) -> {
-                    this.model = model;
-                    setUiState(true);
-                },
-                (exception) -> {
-                    setErrorState("Failed to unpack the model: " + exception.getMessage());
-                    Log.e(TAG, "Failed to unpack model", exception);
-                });
+        // The model lives in app/src/main/assets/vosk-model-small-en-us-0.15. The engine loads it
+        // once per process, so recreating this activity (rotation, coming back from
+        // NotesActivity) reuses the same Model and the recording in progress.
+        dictationEngine.loadModel();
     }
     
     private void setupBottomNavigation() {
@@ -182,104 +214,258 @@ public class MainActivity extends AppCompatActivity implements RecognitionListen
     }
 
     private void recognizeMicrophone() {
-        if (speechService != null) {
-            setUiState(false);
-            speechService.stop();
-            speechService = null;
+        if (dictationEngine.isListening()) {
+            dictationEngine.stop();
         } else {
-            setUiState(true); // Enable buttons
+            audioPlayer.stop();
             try {
-                Recognizer rec = new Recognizer(model, 16000.0f);
-                speechService = new SpeechService(rec, 16000.0f);
-                speechService.startListening(this);
-                recordButton.setText(R.string.stop_recording);
+                dictationEngine.start();
             } catch (IOException e) {
                 setErrorState(e.getMessage());
             }
         }
     }
 
+    // --- DictationEngine.Observer ---
+
     @Override
-    public void onPartialResult(String hypothesis) {
-        partialResultView.setText(hypothesis);
+    public void onModelReady(Model model) {
+        setUiState(dictationEngine.isListening());
+        StartupOrchestrator.getInstance().mark(StartupOrchestrator.MILESTONE_RECORD_READY);
     }
 
     @Override
-    public void onResult(String hypothesis) {
-        // Hypothesis is a JSON string, parse it to get the "text" field
-        // Example: {"text" : "hello world"}
-        try {
-            org.json.JSONObject jsonObject = new org.json.JSONObject(hypothesis);
-            String text = jsonObject.getString("text");
-            resultView.append(text + "\n");
-        } catch (org.json.JSONException e) {
-            Log.e(TAG, "Error parsing Vosk result JSON", e);
-            resultView.append(hypothesis + "\n"); // Fallback to raw hypothesis
-        }
-        setUiState(false); // Stop listening after final result
-        recordButton.setText(R.string.start_recording);
+    public void onModelError(Exception exception) {
+        setErrorState("Failed to unpack the model: " + exception.getMessage());
+        Log.e(TAG, "Failed to unpack model", exception);
     }
 
     @Override
-    public void onFinalResult(String hypothesis) {
-        // Similar to onResult, but for the very final recognition result of an utterance
-         try {
-            org.json.JSONObject jsonObject = new org.json.JSONObject(hypothesis);
-            String text = jsonObject.getString("text");
-            if (!text.isEmpty()) { // Only append if there's actual text
-                 resultView.append(text + "\n");
-            }
-        } catch (org.json.JSONException e) {
-            Log.e(TAG, "Error parsing Vosk final result JSON", e);
-             if (!hypothesis.trim().equals("{\"text\" : \"\"}")) { // Avoid empty results
-                resultView.append(hypothesis + "\n");
-            }
+    public void onListeningChanged(boolean listening) {
+        setUiState(listening);
+        boolean stopped = showingRecording && !listening;
+        showingRecording = listening;
+        if (stopped) {
+            Log.d(TAG, partialResultRenderer.describeStats());
+            partialResultRenderer.resetStats();
         }
-        setUiState(false);
-        recordButton.setText(R.string.start_recording);
-        if (speechService != null) {
-            speechService.stop(); // Ensure service is stopped
-            speechService = null;
+    }
+
+    @Override
+    public void onPartialResult(String hypothesis) {
+        partialResultRenderer.submit(hypothesis); // Applied on the next frame
+    }
+
+    @Override
+    public void onSegmentAppended(String text, boolean evicted) {
+        transcriptAdapter.notifySegmentAppended(evicted);
+        resultView.scrollToPosition(transcript.getWindowCount() - 1);
+        if (translationPipeline != null && translationBacklog == null) {
+            translationPipeline.submit(text); // Else submitted after the backlog, in order
         }
+        setUiState(dictationEngine.isListening());
+    }
+
+    @Override
+    public void onTranscriptCleared(int windowCount) {
+        transcriptAdapter.notifyItemRangeRemoved(0, windowCount);
+        savingNote = null; // What was being saved is gone
+        stopTranslation();
     }
 
     @Override
     public void onError(Exception error) {
-        setErrorState(error.getMessage());
-        if (speechService != null) { // Ensure service is stopped on error
-            speechService.stop();
-            speechService = null;
+        setErrorState(error.getMessage()); // The session already stopped listening
+    }
+
+    @Override
+    public void onCommandModeChanged(boolean commandMode) {
+        if (getSupportActionBar() != null) {
+            getSupportActionBar().setSubtitle(commandMode ? "Listening for commands" : null);
         }
-        setUiState(false);
-        recordButton.setText(R.string.start_recording);
     }
 
+    // Voice commands run the same actions as the buttons
     @Override
-    public void onTimeout() {
-        setUiState(false);
-        recordButton.setText(R.string.start_recording);
-         if (speechService != null) { // Ensure service is stopped on timeout
-            speechService.stop();
-            speechService = null;
+    public void onCommand(CommandGrammar.Command command) {
+        partialResultRenderer.clear(); // The command itself, as heard while dictating
+        switch (command.getAction()) {
+            case CommandGrammar.START_DICTATION:
+                if (!dictationEngine.isListening()) {
+                    recognizeMicrophone();
+                }
+                break;
+            case CommandGrammar.SAVE_NOTE:
+                saveNote();
+                break;
+            case CommandGrammar.TRANSLATE:
+                if (command.getLanguageIndex() >= 0) {
+                    targetLanguageSpinner.setSelection(command.getLanguageIndex());
+                }
+                translate();
+                break;
+            case CommandGrammar.STOP:
+                audioPlayer.stop(); // Dictation was already stopped by the engine
+                break;
+            default:
+                break;
         }
     }
 
+    private void toggleCommandMode() {
+        if (dictationEngine.isInCommandMode()) {
+            dictationEngine.stopCommandMode();
+            return;
+        }
+        try {
+            dictationEngine.startCommandMode();
+            Toast.makeText(this, "Say \"start recording\", \"save note\", \"translate to French\" or \"stop\".",
+                    Toast.LENGTH_LONG).show();
+        } catch (IOException e) {
+            setErrorState(e.getMessage());
+        }
+    }
+
+    // Tap-to-seek: plays the rest of the utterance from the tapped word
+    private void playFromWord(int segmentIndex, int wordIndex) {
+        AudioJournal journal = ((EasySpeechApplication) getApplication()).getAudioJournal();
+        WordTimings words = transcript.get(segmentIndex).getWords();
+        if (journal == null || words.getAudioPosition() < 0 || dictationEngine.isListening()) {
+            return;
+        }
+        long from = words.getAudioPosition(wordIndex, journal.getSampleRate());
+        long to = words.getAudioPosition() + Math.round(words.getEnd(words.size() - 1) * journal.getSampleRate());
+        if (journal.isAvailable(from, to)) {
+            audioPlayer.play(journal, from, to);
+        }
+    }
+
+    private void translate() {
+        if (!transcript.isEmpty()) {
+            // Translates what we have, then every new segment as soon as it is final
+            startTranslation();
+        } else {
+            Toast.makeText(this, "No text to translate.", Toast.LENGTH_SHORT).show();
+        }
+    }
+
+    private void startTranslation() {
+        stopTranslation();
+        String[] codes = getResources().getStringArray(R.array.translation_language_codes);
+        translationLanguage = targetLanguageSpinner.getSelectedItemPosition();
+        String target = codes[translationLanguage];
+        translatedTextView.setText("");
+        TranslationPipeline pipeline = new TranslationPipeline(
+                TranslationClient.getApi(TranslationSettings.getServerUrl(this)), TranslationSettings.getApiKey(this),
+                ContextCompat.getMainExecutor(this), new TranslationPipeline.Listener() {
+                    private boolean failureShown; // One Toast per pipeline, not per segment
+
+                    @Override
+                    public void onTranslated(int sequence, String translation) {
+                        if (translatedTextView.length() > 0) {
+                            translatedTextView.append("\n");
+                        }
+                        translatedTextView.append(translation);
+                    }
+
+                    @Override
+                    public void onTranslationFailed(int sequence, Exception error) {
+                        Log.e(TAG, "Translation of segment " + sequence + " failed", error);
+                        if (!failureShown) {
+                            failureShown = true;
+                            Toast.makeText(MainActivity.this, "Translation failed: " + error.getMessage()
+                                    + ". Check the translation server in Settings.", Toast.LENGTH_LONG).show();
+                        }
+                    }
+                }, "en", target, // The Vosk model is English
+                ((EasySpeechApplication) getApplication()).getTranslationMemory());
+        translationPipeline = pipeline;
+        // Submits what we have off the main thread, then what arrived meanwhile, then (in
+        // onSegmentAppended) every new segment
+        Transcript.Snapshot backlog = transcript.snapshot();
+        translationBacklog = backlog;
+        transcriptExecutor.execute(() -> {
+            List<String> texts;
+            try {
+                texts = backlog.getTexts();
+            } catch (IOException e) {
+                Log.e(TAG, "Cannot read the transcript for translation", e);
+                texts = Collections.emptyList();
+            }
+            List<String> read = texts;
+            runOnUiThread(() -> {
+                if (translationPipeline != pipeline) {
+                    return; // Stopped or restarted meanwhile
+                }
+                translationBacklog = null;
+                for (String text : read) {
+                    pipeline.submit(text);
+                }
+                for (int i = backlog.size(); i < transcript.size(); i++) {
+                    pipeline.submit(transcript.get(i).getText()); // Recent, so in the window
+                }
+            });
+        });
+    }
+
+    private void stopTranslation() {
+        if (translationPipeline != null) {
+            translationPipeline.close();
+            translationPipeline = null;
+            translationBacklog = null;
+            TranslationMemory memory = ((EasySpeechApplication) getApplication()).getTranslationMemory();
+            if (memory != null) {
+                Log.d(TAG, "Translation memory: " + memory.describeStats());
+            }
+        }
+    }
+
+    private void transcribeFile(Uri uri) {
+        if (uri == null) {
+            return; // Picker cancelled
+        }
+        Model sharedModel = dictationEngine.getModel();
+        DictationEngine engine = dictationEngine;
+        Toast.makeText(this, "Transcribing file...", Toast.LENGTH_SHORT).show();
+        fileTranscriptionExecutor.execute(() -> {
+            try (ParcelFileDescriptor pfd = getContentResolver().openFileDescriptor(uri, "r");
+                 FileInputStream in = new FileInputStream(pfd.getFileDescriptor())) {
+                PcmAudio audio = PcmAudio.map(in.getChannel());
+                FileTranscriber.Result result =
+                        new FileTranscriber(VoskChunkDecoder.factory(sharedModel)).transcribe(audio);
+                runOnUiThread(() -> {
+                    // Kept by the engine even if this activity was recreated meanwhile
+                    for (String text : result.getChunkTexts()) {
+                        engine.appendSegment(text);
+                    }
+                    if (isDestroyed()) {
+                        return;
+                    }
+                    Toast.makeText(this, String.format(Locale.US, "Transcribed %.0f s of audio (RTF %.2f)",
+                            result.getAudioSeconds(), result.getRealTimeFactor()), Toast.LENGTH_LONG).show();
+                });
+            } catch (IOException | RuntimeException e) {
+                Log.e(TAG, "File transcription failed", e);
+                runOnUiThread(() -> Toast.makeText(this, "Transcription failed: " + e.getMessage(),
+                        Toast.LENGTH_LONG).show());
+            }
+        });
+    }
+
     private void setUiState(boolean isRecording) {
         recordButton.setText(isRecording ? R.string.stop_recording : R.string.start_recording);
-        translateButton.setEnabled(!isRecording && !resultView.getText().toString().isEmpty());
+        translateButton.setEnabled(!isRecording && !transcript.isEmpty());
     }
 
     private void setErrorState(String message) {
-        resultView.setText(message);
-        partialResultView.setText("");
+        Toast.makeText(this, message, Toast.LENGTH_LONG).show();
+        partialResultRenderer.clear();
         Log.e(TAG, message);
         setUiState(false);
         recordButton.setText(R.string.start_recording);
     }
     
     private void saveNote() {
-        String transcribedText = resultView.getText().toString().trim();
-        String translatedText = translatedTextView.getText().toString().trim();
         FirebaseUser currentUser = mAuth.getCurrentUser();
 
         if (currentUser == null) {
@@ -288,29 +474,90 @@ public class MainActivity extends AppCompatActivity implements RecognitionListen
             return;
         }
 
-        if (transcribedText.isEmpty()) {
+        if (transcript.isEmpty()) {
             Toast.makeText(this, "No transcribed text to save.", Toast.LENGTH_SHORT).show();
             return;
         }
+        if (savingNote != null) {
+            return; // Already reading it
+        }
 
-        Map<String, Object> note = new HashMap<>();
-        note.put("userId", currentUser.getUid());
-        note.put("transcribedText", transcribedText);
-        note.put("translatedText", translatedText); // Can be empty if not translated
-        note.put("timestamp", com.google.firebase.Timestamp.now());
-
-        db.collection("notes")
-                .add(note)
-                .addOnSuccessListener(documentReference -> {
-                    Toast.makeText(MainActivity.this, "Note saved successfully!", Toast.LENGTH_SHORT).show();
-                    resultView.setText(""); // Clear text after saving
-                    translatedTextView.setText("");
-                    partialResultView.setText("");
-                })
-                .addOnFailureListener(e -> {
-                    Toast.makeText(MainActivity.this, "Error saving note: " + e.getMessage(), Toast.LENGTH_LONG).show();
-                    Log.e(TAG, "Error saving note", e);
+        String uid = currentUser.getUid();
+        String translatedText = translatedTextView.getText().toString().trim();
+        Transcript.Snapshot snapshot = transcript.snapshot();
+        savingNote = snapshot;
+        transcriptExecutor.execute(() -> {
+            String text;
+            try {
+                text = snapshot.getText();
+            } catch (IOException e) {
+                Log.e(TAG, "Cannot read the transcript to save", e);
+                runOnUiThread(() -> {
+                    savingNote = null;
+                    Toast.makeText(this, "Cannot save note: " + e.getMessage(), Toast.LENGTH_LONG).show();
                 });
+                return;
+            }
+            runOnUiThread(() -> saveNote(snapshot, text, uid, translatedText));
+        });
+    }
+
+    // Main thread, once snapshot has been read into text
+    private void saveNote(Transcript.Snapshot snapshot, String text, String uid, String translatedText) {
+        if (savingNote != snapshot) {
+            return; // Cleared meanwhile
+        }
+        savingNote = null;
+        StringBuilder sb = new StringBuilder(text);
+        for (int i = snapshot.size(); i < transcript.size(); i++) {
+            sb.append('\n').append(transcript.get(i).getText()); // Arrived while reading; cleared below too
+        }
+        String transcribedText = sb.toString().trim();
+        if (transcribedText.isEmpty()) {
+            Toast.makeText(this, "No transcribed text to save.", Toast.LENGTH_SHORT).show();
+            return;
+        }
+
+        // The document ID is picked here and doubles as the idempotency key for retried writes
+        String documentId = db.collection("notes").document().getId();
+        Timestamp now = Timestamp.now();
+        Note note = new Note(documentId, uid, transcribedText, translatedText,
+                now.getSeconds(), now.getNanoseconds());
+        ((EasySpeechApplication) getApplication()).getNoteOutbox().enqueue(note);
+        long[] audioRange = dictationEngine.getTranscriptAudioRange();
+        NotesStore notesStore = NotesStore.getInstance(this);
+        notesStore.getExecutor().execute(() -> {
+            notesStore.upsert(Collections.singletonList(note));
+            if (audioRange != null) {
+                notesStore.setAudioRange(documentId, audioRange[0], audioRange[1]);
+            }
+        });
+
+        dictationEngine.clearTranscript(); // Clear text after saving
+        if (isDestroyed()) {
+            return; // Saved all the same
+        }
+        Toast.makeText(MainActivity.this, "Note saved successfully!", Toast.LENGTH_SHORT).show();
+        translatedTextView.setText("");
+        partialResultRenderer.clear();
+    }
+
+    @Override
+    protected void onResume() {
+        super.onResume();
+        // The switch may have changed in SettingsActivity
+        if (DictationSettings.isMetricsOverlay(this)) {
+            metricsOverlay.setVisibility(View.VISIBLE);
+            refreshMetricsOverlay.run();
+        } else {
+            metricsOverlay.setVisibility(View.GONE);
+        }
+    }
+
+    @Override
+    protected void onPause() {
+        super.onPause();
+        metricsOverlay.removeCallbacks(refreshMetricsOverlay);
     }
 
     @Override
@@ -318,6 +565,18 @@ public class MainActivity extends AppCompatActivity implements RecognitionListen
         int id = item.getItemId();
         if (id == R.id.nav_home) {
             // Already on home
+        } else if (id == R.id.nav_transcribe_file) {
+            if (dictationEngine.getModel() != null) {
+                pickAudioFile.launch(new String[]{"audio/wav", "audio/x-wav", "application/octet-stream"});
+            } else {
+                Toast.makeText(this, "Vosk Model not initialized yet.", Toast.LENGTH_SHORT).show();
+            }
+        } else if (id == R.id.nav_voice_commands) {
+            if (dictationEngine.getModel() != null) {
+                toggleCommandMode();
+            } else {
+                Toast.makeText(this, "Vosk Model not initialized yet.", Toast.LENGTH_SHORT).show();
+            }
         } else if (id == R.id.nav_notes_drawer) {
             startActivity(new Intent(this, NotesActivity.class));
         } else if (id == R.id.nav_profile_drawer) {
@@ -336,13 +595,18 @@ public class MainActivity extends AppCompatActivity implements RecognitionListen
     @Override
     protected void onDestroy() {
         super.onDestroy();
-        if (speechService != null) {
-            speechService.stop();
-            speechService.shutdown();
-        }
-        if (speechStreamService != null) {
-            speechStreamService.stop();
+        dictationEngine.removeObserver(this);
+        partialResultRenderer.cancel(); // Drop any frame callback still holding the view
+        if (isFinishing() && !isChangingConfigurations()) {
+            // Leaving the app ends the session; a recreation carries on with it
+            dictationEngine.stopCommandMode(); // First, so stopping dictation doesn't resume it
+            dictationEngine.stop();
+            dictationEngine.clearTranscript(); // Closes the session log
         }
+        fileTranscriptionExecutor.shutdown(); // Lets a file being transcribed finish into the engine
+        transcriptExecutor.shutdown(); // Lets a note being read finish saving
+        audioPlayer.stop();
+        stopTranslation();
     }
 
     @Override
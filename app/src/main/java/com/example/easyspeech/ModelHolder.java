@@ -0,0 +1,312 @@
+package com.example.easyspeech;
+
+import android.content.Context;
+import android.content.pm.PackageInfo;
+import android.content.pm.PackageManager;
+import android.content.res.AssetManager;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import org.vosk.LibVosk;
+import org.vosk.LogLevel;
+import org.vosk.Model;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.CRC32;
+
+/**
+ * Process-wide owner of the Vosk {@link Model}.
+ *
+ * The model is unpacked from the APK assets into app storage and loaded once, on a background
+ * thread, no matter how many activities ask for it or how often they are recreated. A manifest
+ * written next to the unpacked files (model version plus a checksum of the unpacked tree) lets
+ * later process starts skip the copy entirely.
+ */
+public class ModelHolder {
+
+    private static final String TAG = "ModelHolder";
+
+    static final String MODEL_ASSET = "vosk-model-small-en-us-0.15";
+    private static final String MODEL_DIR = "model";
+    private static final String MANIFEST_FILE = "model.manifest";
+
+    public interface Callback {
+        void onModelReady(Model model);
+
+        void onModelError(Exception e);
+    }
+
+    private static ModelHolder instance;
+
+    private final Context appContext;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    // Guarded by this
+    private final List<Callback> callbacks = new ArrayList<>();
+    private Model model;
+    private boolean loading;
+
+    private volatile long unpackMillis = -1;
+    private volatile long loadMillis = -1;
+    private volatile boolean unpackSkipped;
+
+    private ModelHolder(Context context) {
+        appContext = context.getApplicationContext();
+    }
+
+    public static synchronized ModelHolder getInstance(Context context) {
+        if (instance == null) {
+            instance = new ModelHolder(context);
+        }
+        return instance;
+    }
+
+    /** Starts unpacking and loading in the background if that has not happened yet. */
+    public synchronized void preload() {
+        if (model != null || loading) {
+            return;
+        }
+        loading = true;
+        executor.execute(this::loadInBackground);
+    }
+
+    /**
+     * Delivers the shared model to {@code callback} on the main thread, loading it first if needed.
+     * Call {@link #release} when the caller goes away before the model is ready.
+     */
+    public synchronized void acquire(Callback callback) {
+        if (model != null) {
+            Model ready = model;
+            mainHandler.post(() -> callback.onModelReady(ready));
+            return;
+        }
+        callbacks.add(callback);
+        preload();
+    }
+
+    public synchronized void release(Callback callback) {
+        callbacks.remove(callback);
+    }
+
+    /** The loaded model, or null while it is still loading. */
+    public synchronized Model getModel() {
+        return model;
+    }
+
+    public synchronized boolean isReady() {
+        return model != null;
+    }
+
+    /** Time spent checking the manifest and, if needed, copying the assets; -1 before the first load. */
+    public long getUnpackMillis() {
+        return unpackMillis;
+    }
+
+    public long getLoadMillis() {
+        return loadMillis;
+    }
+
+    public boolean wasUnpackSkipped() {
+        return unpackSkipped;
+    }
+
+    private void loadInBackground() {
+        LibVosk.setLogLevel(LogLevel.INFO);
+        Model loaded = null;
+        Exception failure = null;
+        try {
+            File modelDir = new File(appContext.getFilesDir(), MODEL_DIR);
+            long start = SystemClock.elapsedRealtime();
+            unpackSkipped = !unpackIfNeeded(modelDir);
+            unpackMillis = SystemClock.elapsedRealtime() - start;
+
+            start = SystemClock.elapsedRealtime();
+            loaded = new Model(modelDir.getAbsolutePath());
+            loadMillis = SystemClock.elapsedRealtime() - start;
+            Log.i(TAG, "Model ready: unpack " + (unpackSkipped ? "skipped" : unpackMillis + " ms")
+                    + ", load " + loadMillis + " ms");
+        } catch (IOException | RuntimeException e) {
+            Log.e(TAG, "Failed to prepare model", e);
+            failure = e;
+        }
+
+        List<Callback> pending;
+        synchronized (this) {
+            loading = false;
+            model = loaded;
+            pending = new ArrayList<>(callbacks);
+            callbacks.clear();
+        }
+        Model result = loaded;
+        Exception exception = failure;
+        mainHandler.post(() -> {
+            for (Callback callback : pending) {
+                if (result != null) {
+                    callback.onModelReady(result);
+                } else {
+                    callback.onModelError(exception);
+                }
+            }
+        });
+    }
+
+    // --- Unpacking ---
+
+    /**
+     * Copies the model assets into {@code modelDir} unless the manifest there matches.
+     *
+     * @return true if the assets were copied
+     */
+    private boolean unpackIfNeeded(File modelDir) throws IOException {
+        String version = expectedVersion();
+        File manifest = new File(modelDir, MANIFEST_FILE);
+        String[] stored = readManifest(manifest);
+        if (stored != null && stored[0].equals(version)
+                && stored[1].equals(Long.toHexString(treeChecksum(modelDir)))) {
+            return false;
+        }
+
+        Log.i(TAG, "Unpacking model " + MODEL_ASSET + " (" + version + ")");
+        File tmpDir = new File(appContext.getFilesDir(), MODEL_DIR + ".tmp");
+        deleteRecursively(tmpDir);
+        copyAssets(appContext.getAssets(), MODEL_ASSET, tmpDir);
+        deleteRecursively(modelDir);
+        if (!tmpDir.renameTo(modelDir)) {
+            throw new IOException("Cannot move unpacked model to " + modelDir);
+        }
+        writeManifest(manifest, version, Long.toHexString(treeChecksum(modelDir)));
+        return true;
+    }
+
+    /**
+     * Version of the bundled model: the model's own uuid file when it ships one (as Vosk models
+     * do), otherwise the APK install time, so reinstalling with new assets triggers an unpack.
+     */
+    private String expectedVersion() {
+        try (InputStream in = appContext.getAssets().open(MODEL_ASSET + "/uuid")) {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+            String uuid = reader.readLine();
+            if (uuid != null && !uuid.trim().isEmpty()) {
+                return MODEL_ASSET + ":" + uuid.trim();
+            }
+        } catch (IOException e) {
+            // No uuid in the assets, fall back to the APK version
+        }
+        try {
+            PackageInfo info = appContext.getPackageManager().getPackageInfo(appContext.getPackageName(), 0);
+            return MODEL_ASSET + ":" + info.getLongVersionCode() + ":" + info.lastUpdateTime;
+        } catch (PackageManager.NameNotFoundException e) {
+            return MODEL_ASSET;
+        }
+    }
+
+    /** CRC32 over the relative path and size of every unpacked file, manifest excluded. */
+    private static long treeChecksum(File dir) {
+        CRC32 crc = new CRC32();
+        addToChecksum(crc, dir, "");
+        return crc.getValue();
+    }
+
+    private static void addToChecksum(CRC32 crc, File dir, String prefix) {
+        String[] names = dir.list();
+        if (names == null) {
+            return;
+        }
+        Arrays.sort(names);
+        for (String name : names) {
+            if (prefix.isEmpty() && name.equals(MANIFEST_FILE)) {
+                continue;
+            }
+            File file = new File(dir, name);
+            String path = prefix + name;
+            if (file.isDirectory()) {
+                addToChecksum(crc, file, path + "/");
+            } else {
+                crc.update(path.getBytes(StandardCharsets.UTF_8));
+                long length = file.length();
+                for (int i = 0; i < 8; i++) {
+                    crc.update((int) (length >>> (i * 8)));
+                }
+            }
+        }
+    }
+
+    private static String[] readManifest(File manifest) {
+        if (!manifest.isFile()) {
+            return null;
+        }
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(manifest), StandardCharsets.UTF_8))) {
+            String version = reader.readLine();
+            String checksum = reader.readLine();
+            if (version == null || checksum == null) {
+                return null;
+            }
+            return new String[]{version, checksum};
+        } catch (IOException e) {
+            Log.w(TAG, "Unreadable model manifest", e);
+            return null;
+        }
+    }
+
+    private static void writeManifest(File manifest, String version, String checksum) throws IOException {
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(manifest), StandardCharsets.UTF_8)) {
+            writer.write(version + "\n" + checksum + "\n");
+        }
+    }
+
+    private static void copyAssets(AssetManager assets, String assetPath, File target) throws IOException {
+        String[] children = assets.list(assetPath);
+        if (children == null || children.length == 0) {
+            // A file (list() is empty for files)
+            File parent = target.getParentFile();
+            if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+                throw new IOException("Cannot create " + parent);
+            }
+            byte[] buffer = new byte[64 * 1024];
+            try (InputStream in = assets.open(assetPath); OutputStream out = new FileOutputStream(target)) {
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    out.write(buffer, 0, read);
+                }
+            }
+            return;
+        }
+        if (!target.isDirectory() && !target.mkdirs()) {
+            throw new IOException("Cannot create " + target);
+        }
+        for (String child : children) {
+            copyAssets(assets, assetPath + "/" + child, new File(target, child));
+        }
+    }
+
+    private static void deleteRecursively(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        if (file.exists() && !file.delete()) {
+            Log.w(TAG, "Cannot delete " + file);
+        }
+    }
+}
@@ -0,0 +1,379 @@
+package com.example.easyspeech;
+
+import android.util.Log;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Durable write-behind queue for saved notes.
+ *
+ * {@link #enqueue} appends the note to a local journal (synced to disk) and returns; a background
+ * flusher writes whatever is pending to the {@link Sink} in batches of up to {@link #MAX_BATCH}.
+ * Saves made while a batch is in flight, or within {@code coalesceMillis} of each other, share
+ * the next batch. Failed batches are retried with exponential backoff and jitter; notes are
+ * written by their own document ID, so a retry of a batch that actually went through overwrites
+ * the same documents instead of creating duplicates. Notes still pending after a restart are
+ * flushed when the outbox is created again.
+ *
+ * Journal: records of [byte type][fields]; {@code ADD} carries a whole note, {@code ACK} the ID
+ * of a note the sink accepted. The file is truncated whenever nothing is pending.
+ */
+public class NoteOutbox {
+
+    private static final String TAG = "NoteOutbox";
+
+    static final int MAX_BATCH = 500; // Firestore's limit per WriteBatch
+    private static final byte RECORD_ADD = 1;
+    private static final byte RECORD_ACK = 2;
+    private static final long MAX_JOURNAL_BYTES = 1024 * 1024; // Rewritten with only the pending notes past this
+
+    /** Destination of flushed notes, e.g. Firestore. */
+    public interface Sink {
+        /** Writes {@code notes} keyed by document ID, then calls {@code callback} once, on any thread. */
+        void write(List<Note> notes, Callback callback);
+    }
+
+    public interface Callback {
+        void onSuccess();
+
+        void onFailure(Exception e);
+    }
+
+    private final File file;
+    private final Sink sink;
+    private final ScheduledExecutorService executor;
+    private final long coalesceMillis;
+    private final long baseBackoffMillis;
+    private final long maxBackoffMillis;
+    private final Random random = new Random();
+
+    // Executor thread only
+    private final LinkedHashMap<String, Note> pending = new LinkedHashMap<>();
+    private final Map<String, Long> enqueuedAt = new HashMap<>(); // Since this process start
+    private long journalBytes;
+    private ScheduledFuture<?> scheduledFlush;
+    private boolean inFlight;
+    private int failedAttempts;
+
+    // Stats, read from any thread
+    private volatile int depth;
+    private volatile long flushes;
+    private volatile long failures;
+    private volatile long lastFlushMillis = -1;   // Round trip of the last successful batch
+    private volatile long maxSaveToAckMillis = -1;
+
+    public NoteOutbox(File file, Sink sink, ScheduledExecutorService executor,
+                      long coalesceMillis, long baseBackoffMillis, long maxBackoffMillis) {
+        this.file = file;
+        this.sink = sink;
+        this.executor = executor;
+        this.coalesceMillis = coalesceMillis;
+        this.baseBackoffMillis = baseBackoffMillis;
+        this.maxBackoffMillis = maxBackoffMillis;
+        executor.execute(() -> {
+            load();
+            if (!pending.isEmpty()) {
+                scheduleFlush(0);
+            }
+        });
+    }
+
+    /** Queues {@code note} for writing. The note is on disk once the outbox thread has run. */
+    public void enqueue(Note note) {
+        executor.execute(() -> {
+            try {
+                append(RECORD_ADD, encodeNote(note));
+            } catch (IOException e) {
+                // Still flushed from memory; only a crash before then would lose it
+                Log.e(TAG, "Cannot journal note " + note.getDocumentId(), e);
+            }
+            pending.put(note.getDocumentId(), note);
+            enqueuedAt.put(note.getDocumentId(), System.nanoTime());
+            depth = pending.size();
+            if (!inFlight && scheduledFlush == null) {
+                scheduleFlush(coalesceMillis);
+            }
+        });
+    }
+
+    /** Flushes now instead of waiting for the coalescing delay or backoff, e.g. when back online. */
+    public void flushNow() {
+        executor.execute(() -> {
+            failedAttempts = 0;
+            if (!inFlight) {
+                scheduleFlush(0);
+            }
+        });
+    }
+
+    // --- Stats ---
+
+    /** Notes not yet accepted by the sink. */
+    public int getDepth() {
+        return depth;
+    }
+
+    public long getFlushCount() {
+        return flushes;
+    }
+
+    public long getFailureCount() {
+        return failures;
+    }
+
+    public long getLastFlushMillis() {
+        return lastFlushMillis;
+    }
+
+    public long getMaxSaveToAckMillis() {
+        return maxSaveToAckMillis;
+    }
+
+    public String describeStats() {
+        return String.format(Locale.US, "outbox depth %d, %d flushes, %d failed, last flush %d ms, max save-to-ack %d ms",
+                depth, flushes, failures, lastFlushMillis, maxSaveToAckMillis);
+    }
+
+    /** Delay before retry {@code attempt} (1-based): doubling from the base, capped, with jitter. */
+    long backoffMillis(int attempt) {
+        long delay = baseBackoffMillis << Math.min(attempt - 1, 30);
+        if (delay <= 0 || delay > maxBackoffMillis) {
+            delay = maxBackoffMillis;
+        }
+        // Between half and all of it, so clients that failed together don't retry together
+        return delay / 2 + (long) (random.nextDouble() * (delay / 2));
+    }
+
+    // --- Flushing, on the executor thread ---
+
+    private void scheduleFlush(long delayMillis) {
+        if (scheduledFlush != null) {
+            scheduledFlush.cancel(false);
+        }
+        scheduledFlush = executor.schedule(this::flush, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void flush() {
+        scheduledFlush = null;
+        if (inFlight || pending.isEmpty()) {
+            return;
+        }
+        List<Note> batch = new ArrayList<>(Math.min(MAX_BATCH, pending.size()));
+        for (Note note : pending.values()) {
+            batch.add(note);
+            if (batch.size() == MAX_BATCH) {
+                break;
+            }
+        }
+        inFlight = true;
+        long started = System.nanoTime();
+        sink.write(batch, new Callback() {
+            @Override
+            public void onSuccess() {
+                executor.execute(() -> onFlushed(batch, started));
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                executor.execute(() -> onFlushFailed(e));
+            }
+        });
+    }
+
+    private void onFlushed(List<Note> batch, long started) {
+        long now = System.nanoTime();
+        inFlight = false;
+        failedAttempts = 0;
+        flushes++;
+        lastFlushMillis = (now - started) / 1_000_000;
+        for (Note note : batch) {
+            pending.remove(note.getDocumentId());
+            Long queued = enqueuedAt.remove(note.getDocumentId());
+            if (queued != null) {
+                maxSaveToAckMillis = Math.max(maxSaveToAckMillis, (now - queued) / 1_000_000);
+            }
+        }
+        depth = pending.size();
+        try {
+            if (pending.isEmpty()) {
+                truncate();
+            } else {
+                for (Note note : batch) {
+                    append(RECORD_ACK, encodeString(note.getDocumentId()));
+                }
+                if (journalBytes > MAX_JOURNAL_BYTES) {
+                    rewrite();
+                }
+            }
+        } catch (IOException e) {
+            // Worst case the notes are written again after a restart, which is harmless
+            Log.w(TAG, "Cannot journal acknowledgement", e);
+        }
+        Log.d(TAG, "Flushed " + batch.size() + " notes; " + describeStats());
+        if (!pending.isEmpty()) {
+            scheduleFlush(0);
+        }
+    }
+
+    private void onFlushFailed(Exception e) {
+        inFlight = false;
+        failures++;
+        long delay = backoffMillis(++failedAttempts);
+        Log.w(TAG, "Flush failed, retry " + failedAttempts + " in " + delay + " ms", e);
+        scheduleFlush(delay);
+    }
+
+    // --- Journal ---
+
+    private void load() {
+        if (!file.isFile()) {
+            return;
+        }
+        long good = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            long offset = 0;
+            while (true) {
+                int type;
+                int length;
+                byte[] payload;
+                try {
+                    type = in.read();
+                    if (type < 0) {
+                        break;
+                    }
+                    length = in.readInt();
+                    payload = new byte[length];
+                    in.readFully(payload);
+                } catch (EOFException e) {
+                    break; // Torn last record from a crash mid-append
+                }
+                DataInputStream record = new DataInputStream(new ByteArrayInputStream(payload));
+                if (type == RECORD_ADD) {
+                    Note note = decodeNote(record);
+                    pending.put(note.getDocumentId(), note);
+                    enqueuedAt.put(note.getDocumentId(), System.nanoTime());
+                } else if (type == RECORD_ACK) {
+                    String documentId = readString(record);
+                    pending.remove(documentId);
+                    enqueuedAt.remove(documentId);
+                }
+                offset += 5 + length;
+                good = offset;
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Outbox journal damaged after " + good + " bytes", e);
+        }
+        journalBytes = good;
+        depth = pending.size();
+        try {
+            if (good < file.length()) {
+                try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                    raf.setLength(good); // Drop the torn tail so appends follow a whole record
+                }
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Cannot repair outbox journal", e);
+        }
+        if (!pending.isEmpty()) {
+            Log.d(TAG, pending.size() + " notes pending from a previous run");
+        }
+    }
+
+    private void append(byte type, byte[] payload) throws IOException {
+        try (FileOutputStream stream = new FileOutputStream(file, true)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream));
+            out.writeByte(type);
+            out.writeInt(payload.length);
+            out.write(payload);
+            out.flush();
+            stream.getFD().sync();
+        }
+        journalBytes += 5 + payload.length;
+    }
+
+    private void truncate() throws IOException {
+        if (journalBytes > 0) {
+            new FileOutputStream(file).close();
+            journalBytes = 0;
+        }
+    }
+
+    // Replaces the journal with ADD records for the pending notes only
+    private void rewrite() throws IOException {
+        File tmp = new File(file.getPath() + ".tmp");
+        long written = 0;
+        try (FileOutputStream stream = new FileOutputStream(tmp)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream));
+            for (Note note : pending.values()) {
+                byte[] payload = encodeNote(note);
+                out.writeByte(RECORD_ADD);
+                out.writeInt(payload.length);
+                out.write(payload);
+                written += 5 + payload.length;
+            }
+            out.flush();
+            stream.getFD().sync();
+        }
+        if (!tmp.renameTo(file)) {
+            throw new IOException("Cannot replace " + file);
+        }
+        journalBytes = written;
+    }
+
+    private static byte[] encodeNote(Note note) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        writeString(out, note.getDocumentId());
+        writeString(out, note.getUserId());
+        writeString(out, note.getTranscribedText());
+        writeString(out, note.getTranslatedText());
+        out.writeLong(note.getTimestampSeconds());
+        out.writeInt(note.getTimestampNanos());
+        return bytes.toByteArray();
+    }
+
+    private static Note decodeNote(DataInputStream in) throws IOException {
+        return new Note(readString(in), readString(in), readString(in), readString(in), in.readLong(), in.readInt());
+    }
+
+    private static byte[] encodeString(String value) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        writeString(new DataOutputStream(bytes), value);
+        return bytes.toByteArray();
+    }
+
+    // Length-prefixed UTF-8; writeUTF caps at 64 KB, less than an hour of dictation
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
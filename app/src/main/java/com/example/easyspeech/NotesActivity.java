@@ -1,30 +1,84 @@
 package com.example.easyspeech;
 
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.text.Editable;
+import android.text.TextWatcher;
 import android.util.Log;
+import android.view.View;
+import android.widget.Button;
+import android.widget.EditText;
+import android.widget.TextView;
 import android.widget.Toast;
+import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.core.content.ContextCompat;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
+import com.google.firebase.Timestamp;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
+import com.google.firebase.firestore.DocumentChange;
+import com.google.firebase.firestore.DocumentSnapshot;
 import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.ListenerRegistration;
 import com.google.firebase.firestore.Query;
-import com.google.firebase.firestore.QueryDocumentSnapshot;
+import com.google.firebase.firestore.WriteBatch;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.vosk.Model;
 
+/**
+ * The signed-in user's notes, paged from {@link NotesStore} through a {@link NotesPager} and
+ * brought up to date with the notes written to Firestore since the last sync. While the screen
+ * is started, a snapshot listener on the notes newer than that sync applies each added, modified
+ * or removed note as it happens. Text in the search box switches the list to ranked results from
+ * the store's full-text index. Tapping a note recorded on this device plays its audio from the
+ * {@link AudioJournal}; "Transcribe again" decodes that audio anew and saves the new text.
+ */
 public class NotesActivity extends AppCompatActivity {
 
     private static final String TAG = "NotesActivity";
 
+    private static final int PAGE_SIZE = 30;
+    private static final int PREFETCH_DISTANCE = 10; // Rows from either end of the window
+    private static final int MAX_PAGES = 5;          // Window kept in memory
+    private static final int SYNC_PAGE_SIZE = 100;
+    private static final int MAX_BATCH_WRITES = 500; // Firestore's limit per WriteBatch
+    private static final int SEARCH_LIMIT = 100;
+    private static final long SEARCH_DEBOUNCE_MILLIS = 150;
+
+    private TextView notesTitle;
     private RecyclerView notesRecyclerView;
+    private Button deleteSelectedButton;
     private NotesAdapter notesAdapter;
-    private List<Map<String, Object>> notesList;
+    private NotesPager<Note> notesPager;
+    private boolean firstRowLogged;
 
     private FirebaseFirestore db;
     private FirebaseAuth mAuth;
+    private NotesStore notesStore;
+    private Executor storeExecutor;
+    private String userId;
+    private final AudioJournalPlayer audioPlayer = new AudioJournalPlayer();
+    // Decodes journal audio again; off the store executor so paging and search don't wait on it
+    private final ExecutorService transcribeExecutor = Executors.newSingleThreadExecutor();
+    private ListenerRegistration notesListener; // Live while started
+    private int syncGeneration;                 // Bumped on stop; stale sync callbacks are ignored
+
+    // Search box; while it has text the list shows ranked search results instead of the pages
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Runnable runSearch = this::search;
+    private String searchQuery = "";
+    private int searchGeneration;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -33,12 +87,31 @@ public class NotesActivity extends AppCompatActivity {
 
         db = FirebaseFirestore.getInstance();
         mAuth = FirebaseAuth.getInstance();
+        notesStore = NotesStore.getInstance(this);
+        storeExecutor = notesStore.getExecutor();
 
+        notesTitle = findViewById(R.id.notes_title);
         notesRecyclerView = findViewById(R.id.notes_recycler_view);
         notesRecyclerView.setLayoutManager(new LinearLayoutManager(this));
-        notesList = new ArrayList<>();
-        notesAdapter = new NotesAdapter(notesList, this::deleteNote); // Pass delete callback
-        notesRecyclerView.setAdapter(notesAdapter);
+        deleteSelectedButton = findViewById(R.id.delete_selected_button);
+        deleteSelectedButton.setOnClickListener(v -> deleteSelectedNotes());
+        EditText searchEditText = findViewById(R.id.notes_search_edit_text);
+        searchEditText.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+            }
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {
+            }
+
+            @Override
+            public void afterTextChanged(Editable s) {
+                searchQuery = s.toString().trim();
+                mainHandler.removeCallbacks(runSearch);
+                mainHandler.postDelayed(runSearch, SEARCH_DEBOUNCE_MILLIS);
+            }
+        });
 
         loadNotes();
     }
@@ -51,47 +124,441 @@ public class NotesActivity extends AppCompatActivity {
             finish();
             return;
         }
+        String userId = currentUser.getUid();
+        this.userId = userId;
 
-        db.collection("notes")
-                .whereEqualTo("userId", currentUser.getUid())
-                .orderBy("timestamp", Query.Direction.DESCENDING)
-                .get()
-                .addOnCompleteListener(task -> {
-                    if (task.isSuccessful()) {
-                        notesList.clear();
-                        for (QueryDocumentSnapshot document : task.getResult()) {
-                            Map<String, Object> note = document.getData();
-                            note.put("documentId", document.getId()); // Store document ID for deletion
-                            notesList.add(note);
-                        }
-                        notesAdapter.notifyDataSetChanged();
-                        if (notesList.isEmpty()) {
-                            Toast.makeText(NotesActivity.this, "No notes found.", Toast.LENGTH_SHORT).show();
+        // Pages come from disk; Firestore only fills the store with what was written since the last sync
+        notesPager = new NotesPager<>(new NotesPager.PageSource<Note>() {
+            @Override
+            public List<Note> loadOlder(Note anchor, int limit) {
+                return notesStore.loadOlder(userId, anchor, limit);
+            }
+
+            @Override
+            public List<Note> loadNewer(Note anchor, int limit) {
+                return notesStore.loadNewer(userId, anchor, limit);
+            }
+        }, storeExecutor, ContextCompat.getMainExecutor(this), PAGE_SIZE, PREFETCH_DISTANCE, MAX_PAGES);
+        notesAdapter = new NotesAdapter(this::deleteNote); // Pass delete callback
+        notesAdapter.setOnNoteClickListener(this::playNote);
+        notesAdapter.setOnTranscribeClickListener(this::transcribeAgain);
+        notesAdapter.setOnSelectionChangedListener(count -> {
+            deleteSelectedButton.setVisibility(count > 0 ? View.VISIBLE : View.GONE);
+            notesTitle.setText(count > 0 ? count + " selected" : getString(R.string.title_activity_notes));
+        });
+        notesRecyclerView.setAdapter(notesAdapter);
+        notesPager.setListener(new NotesPager.Listener() {
+            @Override
+            public void onItemsInserted(int position, int count) {
+                submitWindow();
+                if (!firstRowLogged) {
+                    firstRowLogged = true;
+                    Log.d(TAG, "Time to first row: " + notesPager.getFirstPageMillis() + " ms");
+                }
+            }
+
+            @Override
+            public void onItemsRemoved(int position, int count) {
+                submitWindow();
+            }
+        });
+        notesRecyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                if (isSearching()) {
+                    return; // Results are one ranked list, not pages
+                }
+                LinearLayoutManager layoutManager = (LinearLayoutManager) recyclerView.getLayoutManager();
+                notesPager.onScrolled(layoutManager.findFirstVisibleItemPosition(),
+                        layoutManager.findLastVisibleItemPosition());
+            }
+        });
+        notesPager.loadFirst();
+    }
+
+    @Override
+    protected void onStart() {
+        super.onStart();
+        if (userId == null) {
+            return;
+        }
+        int generation = ++syncGeneration;
+        storeExecutor.execute(() -> {
+            Timestamp cursor = notesStore.getSyncCursor(userId);
+            runOnUiThread(() -> syncPage(generation, cursor, null, null));
+        });
+    }
+
+    @Override
+    protected void onStop() {
+        super.onStop();
+        audioPlayer.stop();
+        syncGeneration++;
+        if (notesListener != null) {
+            notesListener.remove();
+            notesListener = null;
+        }
+    }
+
+    // The adapter diffs the snapshot against what it shows, off the main thread
+    private void submitWindow() {
+        if (!isSearching()) {
+            notesAdapter.submitList(new ArrayList<>(notesPager.getItems()));
+        }
+    }
+
+    private boolean isSearching() {
+        return !searchQuery.isEmpty();
+    }
+
+    // Runs the search box query against the local index, or goes back to the pages when it is empty
+    private void search() {
+        if (userId == null) {
+            return;
+        }
+        int generation = ++searchGeneration;
+        if (!isSearching()) {
+            submitWindow();
+            return;
+        }
+        String query = searchQuery;
+        storeExecutor.execute(() -> {
+            long started = SystemClock.elapsedRealtime();
+            List<Note> results = notesStore.search(userId, query, SEARCH_LIMIT);
+            Log.d(TAG, "Search \"" + query + "\": " + results.size() + " results in "
+                    + (SystemClock.elapsedRealtime() - started) + " ms");
+            runOnUiThread(() -> {
+                if (generation == searchGeneration) { // Not overtaken by newer typing
+                    notesAdapter.submitList(results);
+                }
+            });
+        });
+    }
+
+    // Notes of the user newer than cursor, newest first
+    private Query newerThan(Timestamp cursor) {
+        Query query = db.collection("notes").whereEqualTo("userId", userId);
+        if (cursor != null) {
+            query = query.whereGreaterThan("timestamp", cursor);
+        }
+        // Same direction as the full listing, so the existing composite index serves both
+        return query.orderBy("timestamp", Query.Direction.DESCENDING);
+    }
+
+    /**
+     * Fetches one page of the notes newer than {@code cursor}, newest first, starting after
+     * {@code after}. The cursor only moves once the last page is stored, so an interrupted sync
+     * is redone from the same point. After the last page, listens for changes from there on.
+     */
+    private void syncPage(int generation, Timestamp cursor, DocumentSnapshot after, Timestamp newest) {
+        Query query = newerThan(cursor).limit(SYNC_PAGE_SIZE);
+        if (after != null) {
+            query = query.startAfter(after);
+        }
+        query.get().addOnCompleteListener(task -> {
+            if (generation != syncGeneration) {
+                return; // Stopped meanwhile; the next start syncs again
+            }
+            if (!task.isSuccessful()) {
+                // The stored notes stay on screen; only the delta is missing
+                Log.w(TAG, "Error getting documents.", task.getException());
+                Toast.makeText(NotesActivity.this, "Error syncing notes: " + task.getException().getMessage(), Toast.LENGTH_LONG).show();
+                return;
+            }
+            List<DocumentSnapshot> documents = task.getResult().getDocuments();
+            boolean more = documents.size() == SYNC_PAGE_SIZE;
+            Timestamp pageNewest = newest != null || documents.isEmpty() ? newest
+                    : documents.get(0).getTimestamp("timestamp");
+            storeExecutor.execute(() -> {
+                List<Note> fetched = new ArrayList<>(documents.size());
+                for (DocumentSnapshot document : documents) {
+                    Note note = toNote(document);
+                    if (note != null) {
+                        fetched.add(note);
+                    }
+                }
+                notesStore.upsert(fetched);
+                if (!more && pageNewest != null) {
+                    notesStore.setSyncCursor(userId, pageNewest);
+                }
+                runOnUiThread(() -> {
+                    if (!fetched.isEmpty()) {
+                        notesPager.refreshNewest();
+                        if (isSearching()) {
+                            search();
                         }
+                    } else if (pageNewest == null && notesPager.getItems().isEmpty() && !notesPager.isLoading()) {
+                        Toast.makeText(NotesActivity.this, "No notes found.", Toast.LENGTH_SHORT).show();
+                    }
+                    if (generation != syncGeneration) {
+                        return;
+                    }
+                    if (more) {
+                        syncPage(generation, cursor, documents.get(documents.size() - 1), pageNewest);
                     } else {
-                        Log.w(TAG, "Error getting documents.", task.getException());
-                        Toast.makeText(NotesActivity.this, "Error loading notes: " + task.getException().getMessage(), Toast.LENGTH_LONG).show();
+                        listen(pageNewest != null ? pageNewest : cursor);
                     }
                 });
+            });
+        });
+    }
+
+    /**
+     * Listens to the notes newer than {@code cursor}. The first snapshot only has what was written
+     * since the sync; after that each snapshot carries just the changed documents, which are
+     * written to the store and applied to the window one by one.
+     */
+    private void listen(Timestamp cursor) {
+        if (notesListener != null) {
+            notesListener.remove();
+        }
+        notesListener = newerThan(cursor).addSnapshotListener((snapshots, e) -> {
+            if (e != null) {
+                Log.w(TAG, "Notes listener failed", e);
+                return;
+            }
+            List<Note> changed = new ArrayList<>();
+            List<String> removed = new ArrayList<>();
+            for (DocumentChange change : snapshots.getDocumentChanges()) {
+                if (change.getType() == DocumentChange.Type.REMOVED) {
+                    removed.add(change.getDocument().getId());
+                    applyRemoved(change.getDocument().getId());
+                } else {
+                    Note note = toNote(change.getDocument());
+                    if (note != null) { // Own pending save; comes back modified with its server time
+                        changed.add(note);
+                        applyChanged(note);
+                    }
+                }
+            }
+            // Only what the server confirmed moves the cursor
+            Timestamp newest = snapshots.getMetadata().isFromCache() || snapshots.isEmpty()
+                    ? null : snapshots.getDocuments().get(0).getTimestamp("timestamp");
+            if (changed.isEmpty() && removed.isEmpty() && newest == null) {
+                return;
+            }
+            storeExecutor.execute(() -> {
+                notesStore.upsert(changed);
+                notesStore.delete(removed);
+                if (newest != null) {
+                    notesStore.setSyncCursor(userId, newest);
+                }
+            });
+            if (isSearching()) {
+                search(); // Queued after the store writes
+            }
+        });
     }
 
-    private void deleteNote(Map<String, Object> note) {
-        String documentId = (String) note.get("documentId");
-        if (documentId == null || documentId.isEmpty()) {
-            Toast.makeText(this, "Error: Note ID not found.", Toast.LENGTH_SHORT).show();
+    // Moves a new or edited note to its place in the window, if the window covers it
+    private void applyChanged(Note note) {
+        Note shown = findInWindow(note.getDocumentId());
+        if (note.equals(shown)) {
             return;
         }
+        if (shown != null) {
+            notesPager.removeAll(Collections.singleton(shown));
+        }
+        notesPager.insertSorted(Collections.singletonList(note), Note.NEWEST_FIRST);
+    }
 
-        db.collection("notes").document(documentId)
-            .delete()
-            .addOnSuccessListener(aVoid -> {
-                Toast.makeText(NotesActivity.this, "Note deleted successfully.", Toast.LENGTH_SHORT).show();
-                notesList.remove(note); // Remove from local list
-                notesAdapter.notifyDataSetChanged(); // Refresh RecyclerView
-            })
-            .addOnFailureListener(e -> {
-                Toast.makeText(NotesActivity.this, "Error deleting note: " + e.getMessage(), Toast.LENGTH_LONG).show();
-                Log.e(TAG, "Error deleting note", e);
+    private void applyRemoved(String documentId) {
+        Note shown = findInWindow(documentId);
+        if (shown != null) {
+            notesPager.removeAll(Collections.singleton(shown));
+        }
+    }
+
+    private Note findInWindow(String documentId) {
+        for (Note note : notesPager.getItems()) {
+            if (note.getDocumentId().equals(documentId)) {
+                return note;
+            }
+        }
+        return null;
+    }
+
+    /** Maps a Firestore note document; null if it has no timestamp yet. */
+    static Note toNote(DocumentSnapshot document) {
+        Timestamp timestamp = document.getTimestamp("timestamp");
+        if (timestamp == null) {
+            return null; // Server timestamp not resolved yet; the next sync picks it up
+        }
+        return new Note(document.getId(), document.getString("userId"), document.getString("transcribedText"),
+                document.getString("translatedText"), timestamp.getSeconds(), timestamp.getNanoseconds());
+    }
+
+    // Plays the note's recording, or stops the one playing
+    private void playNote(Note note) {
+        if (audioPlayer.isPlaying()) {
+            audioPlayer.stop();
+            return;
+        }
+        AudioJournal journal = ((EasySpeechApplication) getApplication()).getAudioJournal();
+        storeExecutor.execute(() -> {
+            long[] range = notesStore.getAudioRange(note.getDocumentId());
+            runOnUiThread(() -> {
+                if (journal == null || range == null) {
+                    Toast.makeText(this, "No recording for this note.", Toast.LENGTH_SHORT).show();
+                } else if (!journal.isAvailable(range[0], range[1])) {
+                    Toast.makeText(this, "This recording was removed to save space.", Toast.LENGTH_SHORT).show();
+                } else {
+                    audioPlayer.play(journal, range[0], range[1]);
+                }
+            });
+        });
+    }
+
+    /**
+     * Decodes the note's recording from the journal again with the shared model and writes the
+     * text to Firestore; the snapshot listener brings the edit into the store and the list.
+     */
+    private void transcribeAgain(Note note) {
+        AudioJournal journal = ((EasySpeechApplication) getApplication()).getAudioJournal();
+        ModelHolder modelHolder = ModelHolder.getInstance(this);
+        Model model = modelHolder.getModel();
+        if (model == null) {
+            modelHolder.preload();
+            Toast.makeText(this, "Speech model is still loading.", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        storeExecutor.execute(() -> {
+            long[] range = notesStore.getAudioRange(note.getDocumentId());
+            runOnUiThread(() -> {
+                if (journal == null || range == null) {
+                    Toast.makeText(this, "No recording for this note.", Toast.LENGTH_SHORT).show();
+                } else if (!journal.isAvailable(range[0], range[1])) {
+                    Toast.makeText(this, "This recording was removed to save space.", Toast.LENGTH_SHORT).show();
+                } else {
+                    Toast.makeText(this, "Transcribing again...", Toast.LENGTH_SHORT).show();
+                    transcribeExecutor.execute(() -> decodeAndSave(note, journal, model, range));
+                }
             });
+        });
+    }
+
+    // Background thread
+    private void decodeAndSave(Note note, AudioJournal journal, Model model, long[] range) {
+        String text;
+        long started = SystemClock.elapsedRealtime();
+        try (VoskChunkDecoder decoder = new VoskChunkDecoder(model, journal.getSampleRate())) {
+            text = decoder.decode(journal, range[0], range[1]);
+        } catch (IOException | RuntimeException e) {
+            Log.e(TAG, "Transcribing " + note.getDocumentId() + " again failed", e);
+            runOnUiThread(() -> Toast.makeText(this, "Transcription failed: " + e.getMessage(),
+                    Toast.LENGTH_LONG).show());
+            return;
+        }
+        Log.d(TAG, "Transcribed " + (range[1] - range[0]) / journal.getSampleRate() + " s again in "
+                + (SystemClock.elapsedRealtime() - started) + " ms");
+        runOnUiThread(() -> {
+            if (text.isEmpty()) {
+                Toast.makeText(this, "Nothing was recognized.", Toast.LENGTH_SHORT).show();
+            } else if (!text.equals(note.getTranscribedText())) {
+                db.collection("notes").document(note.getDocumentId()).update("transcribedText", text)
+                        .addOnFailureListener(e -> {
+                            Log.e(TAG, "Error updating note", e);
+                            Toast.makeText(this, "Error saving note: " + e.getMessage(), Toast.LENGTH_LONG).show();
+                        });
+            }
+        });
+    }
+
+    private void deleteNote(Note note) {
+        deleteNotes(Collections.singletonList(note));
+    }
+
+    private void deleteSelectedNotes() {
+        List<Note> selected = notesAdapter.getSelectedNotes();
+        notesAdapter.clearSelection();
+        deleteNotes(selected);
+    }
+
+    /**
+     * Removes {@code notes} from the list and the store right away, then deletes them in
+     * Firestore with one batched write per {@link #MAX_BATCH_WRITES} notes. The notes of a
+     * batch that fails are put back where they were.
+     */
+    private void deleteNotes(List<Note> notes) {
+        if (notes.isEmpty()) {
+            return;
+        }
+        List<String> documentIds = new ArrayList<>(notes.size());
+        for (Note note : notes) {
+            documentIds.add(note.getDocumentId());
+        }
+        notesPager.removeAll(new HashSet<>(notes));
+        storeExecutor.execute(() -> notesStore.delete(documentIds));
+        if (isSearching()) {
+            search(); // Queued after the delete, so the results no longer have these notes
+        }
+
+        DeleteRun run = new DeleteRun(notes.size(), (notes.size() + MAX_BATCH_WRITES - 1) / MAX_BATCH_WRITES);
+        for (int start = 0; start < notes.size(); start += MAX_BATCH_WRITES) {
+            List<Note> chunk = notes.subList(start, Math.min(notes.size(), start + MAX_BATCH_WRITES));
+            WriteBatch batch = db.batch();
+            for (Note note : chunk) {
+                batch.delete(db.collection("notes").document(note.getDocumentId()));
+            }
+            batch.commit().addOnCompleteListener(task -> {
+                if (!task.isSuccessful()) {
+                    Log.e(TAG, "Error deleting notes", task.getException());
+                    run.failed += chunk.size();
+                    run.error = task.getException();
+                    storeExecutor.execute(() -> notesStore.upsert(chunk));
+                    notesPager.insertSorted(chunk, Note.NEWEST_FIRST);
+                    if (isSearching()) {
+                        search();
+                    }
+                }
+                if (--run.pendingBatches == 0) {
+                    reportDelete(run);
+                }
+            });
+        }
+    }
+
+    private void reportDelete(DeleteRun run) {
+        long millis = SystemClock.elapsedRealtime() - run.startedAt;
+        Log.d(TAG, "Deleted " + (run.total - run.failed) + "/" + run.total + " notes in "
+                + run.batches + " round trips, " + millis + " ms");
+        if (run.failed > 0) {
+            Toast.makeText(this, "Error deleting " + run.failed + " notes: " + run.error.getMessage(), Toast.LENGTH_LONG).show();
+        } else if (run.total == 1) {
+            Toast.makeText(this, "Note deleted successfully.", Toast.LENGTH_SHORT).show();
+        } else {
+            Toast.makeText(this, run.total + " notes deleted in " + run.batches + " requests.", Toast.LENGTH_SHORT).show();
+        }
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        transcribeExecutor.shutdown(); // A note being decoded still gets its text saved
+    }
+
+    @Override
+    public void onBackPressed() {
+        if (notesAdapter != null && notesAdapter.isSelectionMode()) {
+            notesAdapter.clearSelection();
+        } else {
+            super.onBackPressed();
+        }
+    }
+
+    // Progress of one deleteNotes() call; only touched on the main thread
+    private static final class DeleteRun {
+        final int total;
+        final int batches;
+        final long startedAt = SystemClock.elapsedRealtime();
+        int pendingBatches;
+        int failed;
+        Exception error;
+
+        DeleteRun(int total, int batches) {
+            this.total = total;
+            this.batches = batches;
+            pendingBatches = batches;
+        }
     }
 }
@@ -6,78 +6,193 @@ import android.view.ViewGroup;
 import android.widget.Button;
 import android.widget.TextView;
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
-import com.google.firebase.Timestamp;
-import java.text.SimpleDateFormat;
+import com.google.android.material.card.MaterialCardView;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Locale;
 import java.util.Map;
 
-public class NotesAdapter extends RecyclerView.Adapter<NotesAdapter.NoteViewHolder> {
+/**
+ * Notes list bound from immutable {@link Note}s. New lists are diffed against the current one
+ * on a background thread ({@link #submitList}), so only rows whose note changed are rebound.
+ *
+ * A long press starts selection mode, in which taps toggle rows; selected document IDs are
+ * kept here so the selection survives rows being rebound or paged out.
+ */
+public class NotesAdapter extends ListAdapter<Note, NotesAdapter.NoteViewHolder> {
+
+    private static final Object PAYLOAD_SELECTION = new Object();
 
-    private List<Map<String, Object>> notesList;
     private final OnNoteDeleteListener deleteListener;
+    private final Map<String, Note> selected = new LinkedHashMap<>();
+    private OnSelectionChangedListener selectionListener;
+    private OnNoteClickListener clickListener;
+    private OnNoteClickListener transcribeListener;
 
     public interface OnNoteDeleteListener {
-        void onDelete(Map<String, Object> note);
+        void onDelete(Note note);
+    }
+
+    public interface OnNoteClickListener {
+        /** A row was tapped outside selection mode. */
+        void onClick(Note note);
     }
 
-    public NotesAdapter(List<Map<String, Object>> notesList, OnNoteDeleteListener deleteListener) {
-        this.notesList = notesList;
+    public interface OnSelectionChangedListener {
+        /** Called when a row is (de)selected; {@code count} 0 means selection mode ended. */
+        void onSelectionChanged(int count);
+    }
+
+    private static final DiffUtil.ItemCallback<Note> DIFF_CALLBACK = new DiffUtil.ItemCallback<Note>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull Note oldItem, @NonNull Note newItem) {
+            return oldItem.getDocumentId().equals(newItem.getDocumentId());
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull Note oldItem, @NonNull Note newItem) {
+            return oldItem.equals(newItem);
+        }
+    };
+
+    public NotesAdapter(OnNoteDeleteListener deleteListener) {
+        super(DIFF_CALLBACK);
         this.deleteListener = deleteListener;
+        setHasStableIds(true);
+    }
+
+    public void setOnSelectionChangedListener(OnSelectionChangedListener selectionListener) {
+        this.selectionListener = selectionListener;
+    }
+
+    public void setOnNoteClickListener(OnNoteClickListener clickListener) {
+        this.clickListener = clickListener;
+    }
+
+    /** Called when a row's "Transcribe again" button is tapped. */
+    public void setOnTranscribeClickListener(OnNoteClickListener transcribeListener) {
+        this.transcribeListener = transcribeListener;
+    }
+
+    public boolean isSelectionMode() {
+        return !selected.isEmpty();
+    }
+
+    /** Selected notes, in the order they were selected. */
+    public List<Note> getSelectedNotes() {
+        return new ArrayList<>(selected.values());
+    }
+
+    public void clearSelection() {
+        if (selected.isEmpty()) {
+            return;
+        }
+        selected.clear();
+        notifyItemRangeChanged(0, getItemCount(), PAYLOAD_SELECTION);
+        if (selectionListener != null) {
+            selectionListener.onSelectionChanged(0);
+        }
+    }
+
+    private void toggleSelection(int position) {
+        Note note = getItem(position);
+        if (selected.remove(note.getDocumentId()) == null) {
+            selected.put(note.getDocumentId(), note);
+        }
+        notifyItemChanged(position, PAYLOAD_SELECTION);
+        if (selectionListener != null) {
+            selectionListener.onSelectionChanged(selected.size());
+        }
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return getItem(position).getStableId();
     }
 
     @NonNull
     @Override
     public NoteViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
         View view = LayoutInflater.from(parent.getContext()).inflate(R.layout.item_note, parent, false);
-        return new NoteViewHolder(view);
+        NoteViewHolder holder = new NoteViewHolder(view);
+        holder.deleteButton.setOnClickListener(v -> {
+            int position = holder.getBindingAdapterPosition();
+            if (deleteListener != null && position != RecyclerView.NO_POSITION) {
+                deleteListener.onDelete(getItem(position));
+            }
+        });
+        holder.transcribeButton.setOnClickListener(v -> {
+            int position = holder.getBindingAdapterPosition();
+            if (transcribeListener != null && position != RecyclerView.NO_POSITION) {
+                transcribeListener.onClick(getItem(position));
+            }
+        });
+        holder.itemView.setOnLongClickListener(v -> {
+            int position = holder.getBindingAdapterPosition();
+            if (position == RecyclerView.NO_POSITION) {
+                return false;
+            }
+            toggleSelection(position);
+            return true;
+        });
+        holder.itemView.setOnClickListener(v -> {
+            int position = holder.getBindingAdapterPosition();
+            if (position == RecyclerView.NO_POSITION) {
+                return;
+            }
+            if (isSelectionMode()) {
+                toggleSelection(position);
+            } else if (clickListener != null) {
+                clickListener.onClick(getItem(position));
+            }
+        });
+        return holder;
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull NoteViewHolder holder, int position, @NonNull List<Object> payloads) {
+        if (payloads.contains(PAYLOAD_SELECTION) && payloads.size() == 1) {
+            holder.card.setChecked(selected.containsKey(getItem(position).getDocumentId()));
+        } else {
+            onBindViewHolder(holder, position);
+        }
     }
 
     @Override
     public void onBindViewHolder(@NonNull NoteViewHolder holder, int position) {
-        Map<String, Object> note = notesList.get(position);
-        holder.transcribedText.setText((String) note.get("transcribedText"));
-        
-        String translated = (String) note.get("translatedText");
-        if (translated != null && !translated.isEmpty()) {
+        Note note = getItem(position);
+        holder.card.setChecked(selected.containsKey(note.getDocumentId()));
+        holder.transcribedText.setText(note.getTranscribedText());
+
+        String translated = note.getTranslatedText();
+        if (!translated.isEmpty()) {
             holder.translatedText.setText("Translation: " + translated);
             holder.translatedText.setVisibility(View.VISIBLE);
         } else {
             holder.translatedText.setVisibility(View.GONE);
         }
 
-        Timestamp timestamp = (Timestamp) note.get("timestamp");
-        if (timestamp != null) {
-            SimpleDateFormat sdf = new SimpleDateFormat("MMM dd, yyyy HH:mm", Locale.getDefault());
-            holder.timestampText.setText(sdf.format(timestamp.toDate()));
-        } else {
-            holder.timestampText.setText("No date");
-        }
-
-        holder.deleteButton.setOnClickListener(v -> {
-            if (deleteListener != null) {
-                deleteListener.onDelete(note);
-            }
-        });
-    }
-
-    @Override
-    public int getItemCount() {
-        return notesList.size();
+        holder.timestampText.setText(note.getDisplayTimestamp());
     }
 
     static class NoteViewHolder extends RecyclerView.ViewHolder {
+        MaterialCardView card;
         TextView transcribedText;
         TextView translatedText;
         TextView timestampText;
+        Button transcribeButton;
         Button deleteButton;
 
         public NoteViewHolder(@NonNull View itemView) {
             super(itemView);
+            card = (MaterialCardView) itemView;
             transcribedText = itemView.findViewById(R.id.note_transcribed_text);
             translatedText = itemView.findViewById(R.id.note_translated_text);
             timestampText = itemView.findViewById(R.id.note_timestamp_text);
+            transcribeButton = itemView.findViewById(R.id.note_transcribe_button);
             deleteButton = itemView.findViewById(R.id.note_delete_button);
         }
     }
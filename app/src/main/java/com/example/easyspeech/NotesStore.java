@@ -0,0 +1,293 @@
+package com.example.easyspeech;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
+
+import com.google.firebase.Timestamp;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * On-device copy of the user's Firestore notes, so NotesActivity can render from disk before
+ * (and without) the network.
+ *
+ * Notes are read a page at a time with keyset cursors (see {@link NotesPager}). Alongside them
+ * the store keeps a per-user sync cursor: the newest note timestamp already merged, so a sync
+ * only has to ask Firestore for notes written after it. An FTS4 index over both texts, updated
+ * with every upsert and delete, backs {@link #search}. Notes recorded on this device also get
+ * the {@link AudioJournal} range of their audio, which is never synced.
+ *
+ * Blocking; call from a background thread such as {@link #getExecutor()}, which outlives the
+ * activities so a write queued just before one is destroyed still completes.
+ */
+public class NotesStore extends SQLiteOpenHelper {
+
+    private static final String DATABASE_NAME = "notes.db";
+    private static final int DATABASE_VERSION = 3; // 2: full-text index, 3: audio ranges
+
+    private static final String TABLE_NOTES = "notes";
+    private static final String TABLE_SYNC = "sync_state";
+    private static final String TABLE_FTS = "notes_fts";
+    private static final String TABLE_AUDIO = "note_audio";
+
+    // Search weight of transcribed_text and translated_text, in FTS column order
+    private static final double[] FTS_COLUMN_WEIGHTS = {1.0, 0.5};
+    // Matches ranked per search, most recently stored first; bounds the matchinfo work on a common word
+    private static final int SEARCH_CANDIDATES = 200;
+
+    private static final String ORDER_NEWEST_FIRST = "timestamp_seconds DESC, timestamp_nanos DESC, document_id DESC";
+    private static final String ORDER_OLDEST_FIRST = "timestamp_seconds ASC, timestamp_nanos ASC, document_id ASC";
+
+    private static NotesStore instance;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    public static synchronized NotesStore getInstance(Context context) {
+        if (instance == null) {
+            instance = new NotesStore(context.getApplicationContext(), DATABASE_NAME);
+        }
+        return instance;
+    }
+
+    /** @param name database file, or null for an in-memory database (tests) */
+    NotesStore(Context context, String name) {
+        super(context, name, null, DATABASE_VERSION);
+    }
+
+    /** Single background thread for store access. */
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE_NOTES + " ("
+                + "document_id TEXT PRIMARY KEY, "
+                + "user_id TEXT NOT NULL, "
+                + "transcribed_text TEXT, "
+                + "translated_text TEXT, "
+                + "timestamp_seconds INTEGER NOT NULL, "
+                + "timestamp_nanos INTEGER NOT NULL)");
+        db.execSQL("CREATE INDEX notes_user_time ON " + TABLE_NOTES
+                + " (user_id, timestamp_seconds DESC, timestamp_nanos DESC)");
+        db.execSQL("CREATE TABLE " + TABLE_SYNC + " ("
+                + "user_id TEXT PRIMARY KEY, "
+                + "cursor_seconds INTEGER NOT NULL, "
+                + "cursor_nanos INTEGER NOT NULL)");
+        // External content: the text lives in notes only; upsert() and delete() keep the index in step
+        db.execSQL("CREATE VIRTUAL TABLE " + TABLE_FTS + " USING fts4("
+                + "content=\"" + TABLE_NOTES + "\", transcribed_text, translated_text, tokenize=unicode61)");
+        // Only on this device, so it survives upgrades
+        db.execSQL("CREATE TABLE IF NOT EXISTS " + TABLE_AUDIO + " ("
+                + "document_id TEXT PRIMARY KEY, "
+                + "audio_start INTEGER NOT NULL, "
+                + "audio_end INTEGER NOT NULL)");
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        // Only a cache of Firestore: start over and let the next sync refill it
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_NOTES);
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_SYNC);
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_FTS);
+        onCreate(db);
+    }
+
+    /**
+     * Up to {@code limit} notes of {@code userId} older than {@code anchor} (a note from a
+     * previous page, or null for the newest), newest first.
+     */
+    public List<Note> loadOlder(String userId, Note anchor, int limit) {
+        if (anchor == null) {
+            return query(userId, "", new String[]{userId}, ORDER_NEWEST_FIRST, limit);
+        }
+        return query(userId, " AND " + keysetCondition("<"), keysetArgs(userId, anchor),
+                ORDER_NEWEST_FIRST, limit);
+    }
+
+    /** Up to {@code limit} notes of {@code userId} newer than {@code anchor}, closest first, returned newest first. */
+    public List<Note> loadNewer(String userId, Note anchor, int limit) {
+        List<Note> notes = query(userId, " AND " + keysetCondition(">"),
+                keysetArgs(userId, anchor), ORDER_OLDEST_FIRST, limit);
+        Collections.reverse(notes);
+        return notes;
+    }
+
+    /**
+     * Up to {@code limit} notes of {@code userId} matching {@code text} (see {@link FtsQuery}),
+     * best match first. Only the {@link #SEARCH_CANDIDATES} most recently stored matches (or
+     * {@code limit}, if more) are ranked, which FTS4 reads in docid order without a sort.
+     */
+    public List<Note> search(String userId, String text, int limit) {
+        String match = FtsQuery.toMatchExpression(text);
+        List<Note> notes = new ArrayList<>();
+        if (match == null) {
+            return notes;
+        }
+        try (Cursor cursor = getReadableDatabase().rawQuery("SELECT n.document_id, n.transcribed_text, "
+                + "n.translated_text, n.timestamp_seconds, n.timestamp_nanos, "
+                + "matchinfo(" + TABLE_FTS + ", '" + FtsQuery.MATCHINFO_FORMAT + "') "
+                + "FROM " + TABLE_FTS + " JOIN " + TABLE_NOTES + " n ON n.rowid = " + TABLE_FTS + ".docid "
+                + "WHERE " + TABLE_FTS + " MATCH ? AND n.user_id = ? "
+                + "ORDER BY " + TABLE_FTS + ".docid DESC LIMIT ?",
+                new String[]{match, userId, String.valueOf(Math.max(limit, SEARCH_CANDIDATES))})) {
+            // One forward pass over the candidates, keeping the best: worst on top
+            PriorityQueue<ScoredNote> best = new PriorityQueue<>(limit + 1, (a, b) -> Double.compare(a.score, b.score));
+            while (cursor.moveToNext()) {
+                double score = FtsQuery.bm25(cursor.getBlob(5), FTS_COLUMN_WEIGHTS);
+                if (best.size() == limit && score <= best.peek().score) {
+                    continue;
+                }
+                best.add(new ScoredNote(score, new Note(cursor.getString(0), userId, cursor.getString(1),
+                        cursor.getString(2), cursor.getLong(3), cursor.getInt(4))));
+                if (best.size() > limit) {
+                    best.poll();
+                }
+            }
+            while (!best.isEmpty()) {
+                notes.add(best.poll().note);
+            }
+        }
+        Collections.reverse(notes);
+        return notes;
+    }
+
+    /** Inserts or replaces {@code notes} and their index entries, in one transaction. */
+    public void upsert(List<Note> notes) {
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try (SQLiteStatement index = db.compileStatement("INSERT INTO " + TABLE_FTS
+                + " (docid, transcribed_text, translated_text) VALUES (?, ?, ?)")) {
+            for (Note note : notes) {
+                unindex(db, note.getDocumentId());
+                long rowId = db.insertWithOnConflict(TABLE_NOTES, null, toValues(note), SQLiteDatabase.CONFLICT_REPLACE);
+                index.bindLong(1, rowId);
+                index.bindString(2, note.getTranscribedText());
+                index.bindString(3, note.getTranslatedText());
+                index.executeInsert();
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /** Records that every note up to {@code cursor} has been merged. */
+    public void setSyncCursor(String userId, Timestamp cursor) {
+        ContentValues values = new ContentValues();
+        values.put("user_id", userId);
+        values.put("cursor_seconds", cursor.getSeconds());
+        values.put("cursor_nanos", cursor.getNanoseconds());
+        getWritableDatabase().insertWithOnConflict(TABLE_SYNC, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+    }
+
+    /** Newest note timestamp merged for {@code userId}, or null before the first sync. */
+    public Timestamp getSyncCursor(String userId) {
+        try (Cursor cursor = getReadableDatabase().query(TABLE_SYNC,
+                new String[]{"cursor_seconds", "cursor_nanos"},
+                "user_id = ?", new String[]{userId}, null, null, null)) {
+            return cursor.moveToFirst() ? new Timestamp(cursor.getLong(0), cursor.getInt(1)) : null;
+        }
+    }
+
+    /** Links the note to samples [start, end) of the {@link AudioJournal}. */
+    public void setAudioRange(String documentId, long start, long end) {
+        ContentValues values = new ContentValues();
+        values.put("document_id", documentId);
+        values.put("audio_start", start);
+        values.put("audio_end", end);
+        getWritableDatabase().insertWithOnConflict(TABLE_AUDIO, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+    }
+
+    /** {start, end} journal positions of the note's audio, or null if it has none. */
+    public long[] getAudioRange(String documentId) {
+        try (Cursor cursor = getReadableDatabase().query(TABLE_AUDIO, new String[]{"audio_start", "audio_end"},
+                "document_id = ?", new String[]{documentId}, null, null, null)) {
+            return cursor.moveToFirst() ? new long[]{cursor.getLong(0), cursor.getLong(1)} : null;
+        }
+    }
+
+    public void delete(Collection<String> documentIds) {
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            for (String documentId : documentIds) {
+                unindex(db, documentId);
+                db.delete(TABLE_NOTES, "document_id = ?", new String[]{documentId});
+                db.delete(TABLE_AUDIO, "document_id = ?", new String[]{documentId});
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    // An external-content FTS4 index must be told the old text to remove a row
+    private static void unindex(SQLiteDatabase db, String documentId) {
+        try (Cursor cursor = db.query(TABLE_NOTES, new String[]{"rowid", "transcribed_text", "translated_text"},
+                "document_id = ?", new String[]{documentId}, null, null, null)) {
+            if (cursor.moveToFirst()) {
+                db.execSQL("INSERT INTO " + TABLE_FTS + " (" + TABLE_FTS + ", docid, transcribed_text, translated_text) "
+                                + "VALUES ('delete', ?, ?, ?)",
+                        new Object[]{cursor.getLong(0), cursor.getString(1), cursor.getString(2)});
+            }
+        }
+    }
+
+    private List<Note> query(String userId, String keyset, String[] args, String order, int limit) {
+        List<Note> notes = new ArrayList<>(limit);
+        try (Cursor cursor = getReadableDatabase().query(TABLE_NOTES,
+                new String[]{"document_id", "transcribed_text", "translated_text", "timestamp_seconds", "timestamp_nanos"},
+                "user_id = ?" + keyset, args, null, null, order, String.valueOf(limit))) {
+            while (cursor.moveToNext()) {
+                notes.add(new Note(cursor.getString(0), userId, cursor.getString(1), cursor.getString(2),
+                        cursor.getLong(3), cursor.getInt(4)));
+            }
+        }
+        return notes;
+    }
+
+    // (seconds, nanos, document_id) compared to the anchor's; the id breaks timestamp ties
+    private static String keysetCondition(String op) {
+        return "(timestamp_seconds " + op + " ? OR (timestamp_seconds = ? AND (timestamp_nanos " + op
+                + " ? OR (timestamp_nanos = ? AND document_id " + op + " ?))))";
+    }
+
+    private static String[] keysetArgs(String userId, Note anchor) {
+        String seconds = String.valueOf(anchor.getTimestampSeconds());
+        String nanos = String.valueOf(anchor.getTimestampNanos());
+        return new String[]{userId, seconds, seconds, nanos, nanos, anchor.getDocumentId()};
+    }
+
+    private static final class ScoredNote {
+        final double score;
+        final Note note;
+
+        ScoredNote(double score, Note note) {
+            this.score = score;
+            this.note = note;
+        }
+    }
+
+    private static ContentValues toValues(Note note) {
+        ContentValues values = new ContentValues();
+        values.put("document_id", note.getDocumentId());
+        values.put("user_id", note.getUserId());
+        values.put("transcribed_text", note.getTranscribedText());
+        values.put("translated_text", note.getTranslatedText());
+        values.put("timestamp_seconds", note.getTimestampSeconds());
+        values.put("timestamp_nanos", note.getTimestampNanos());
+        return values;
+    }
+}
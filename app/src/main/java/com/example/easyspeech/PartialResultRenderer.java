@@ -0,0 +1,138 @@
+package com.example.easyspeech;
+
+import android.text.Editable;
+import android.view.Choreographer;
+import android.widget.TextView;
+
+/**
+ * Renders Vosk partial hypotheses into a TextView at most once per display frame.
+ *
+ * Partial results can arrive many times per second. Each call to {@link #submit} only records
+ * the latest hypothesis; the text is applied on the next Choreographer frame, and only the tail
+ * after the prefix shared with what is already on screen is replaced, so the TextView's
+ * DynamicLayout reflows the changed words instead of the whole string.
+ *
+ * Must be used from the main thread.
+ */
+public class PartialResultRenderer implements Choreographer.FrameCallback {
+
+    private final TextView view;
+    private final HypothesisParser parser = new HypothesisParser();
+    private final StringBuilder pending = new StringBuilder(256);
+    private boolean framePending;
+    private boolean hasPending;
+
+    // Stats since the last resetStats()
+    private int submitted;
+    private int rendered;
+    private int coalesced; // updates overwritten by a newer one before their frame
+    private int dropped;   // frames where the new hypothesis matched what was displayed
+    private long reusedChars; // characters kept on screen thanks to the stable prefix
+
+    public PartialResultRenderer(TextView view) {
+        this.view = view;
+        view.setText("", TextView.BufferType.EDITABLE);
+    }
+
+    /** Queues a raw partial hypothesis (JSON) for the next frame. */
+    public void submit(String hypothesis) {
+        submitted++;
+        if (!parser.parse(hypothesis)) {
+            return;
+        }
+        if (hasPending) {
+            coalesced++;
+        }
+        pending.setLength(0);
+        pending.append(parser.text());
+        hasPending = true;
+        if (!framePending) {
+            framePending = true;
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+    }
+
+    /** Clears the view immediately and discards any queued update. */
+    public void clear() {
+        cancel();
+        Editable editable = view.getEditableText();
+        if (editable != null && editable.length() > 0) {
+            editable.clear();
+        }
+    }
+
+    /** Discards any queued update without touching the view. */
+    public void cancel() {
+        if (framePending) {
+            Choreographer.getInstance().removeFrameCallback(this);
+            framePending = false;
+        }
+        hasPending = false;
+        pending.setLength(0);
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        framePending = false;
+        if (!hasPending) {
+            return;
+        }
+        hasPending = false;
+
+        Editable editable = view.getEditableText();
+        if (editable == null) {
+            // Someone replaced the text with a non-editable buffer; start over
+            view.setText(pending, TextView.BufferType.EDITABLE);
+            rendered++;
+            return;
+        }
+        int prefix = commonPrefixLength(editable, pending);
+        if (prefix == editable.length() && prefix == pending.length()) {
+            dropped++;
+            return;
+        }
+        editable.replace(prefix, editable.length(), pending, prefix, pending.length());
+        reusedChars += prefix;
+        rendered++;
+    }
+
+    /** Length of the prefix shared by both sequences. */
+    static int commonPrefixLength(CharSequence a, CharSequence b) {
+        int max = Math.min(a.length(), b.length());
+        int i = 0;
+        while (i < max && a.charAt(i) == b.charAt(i)) {
+            i++;
+        }
+        return i;
+    }
+
+    public int getSubmittedCount() {
+        return submitted;
+    }
+
+    public int getRenderedCount() {
+        return rendered;
+    }
+
+    public int getCoalescedCount() {
+        return coalesced;
+    }
+
+    public int getDroppedCount() {
+        return dropped;
+    }
+
+    public void resetStats() {
+        submitted = 0;
+        rendered = 0;
+        coalesced = 0;
+        dropped = 0;
+        reusedChars = 0;
+    }
+
+    public String describeStats() {
+        return "partials submitted=" + submitted + " rendered=" + rendered
+                + " coalesced=" + coalesced + " dropped=" + dropped
+                + " reusedChars=" + reusedChars;
+    }
+}
@@ -0,0 +1,175 @@
+package com.example.easyspeech;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.Locale;
+
+/**
+ * Process-wide instrumentation of the recognition hot path: one {@link LatencyHistogram} per
+ * metric plus a bounded trace of the most recent samples.
+ *
+ * Durations are recorded with {@link #span} from two {@link System#nanoTime()} readings; other
+ * values (real-time factor, allocation rate) with {@link #record}. Neither allocates: the trace
+ * is a ring of primitive columns. {@link #describe()} feeds the debug overlay in MainActivity,
+ * {@link #toJson()} the export in SettingsActivity, in the Chrome trace event format (so it
+ * opens in Perfetto or chrome://tracing) with the percentiles added under {@code "metrics"}.
+ */
+public class RecognitionMetrics {
+
+    /** Decode time over audio time of an utterance, in thousandths. */
+    public static final int REAL_TIME_FACTOR = 0;
+    /** From capturing a frame to its partial result reaching the main thread, µs. */
+    public static final int AUDIO_TO_PARTIAL = 1;
+    /** From capturing the last frame of an utterance to its result reaching the main thread, µs. */
+    public static final int AUDIO_TO_FINAL = 2;
+    /** Main-thread time spent in one recognition callback, µs. */
+    public static final int UI_CALLBACK = 3;
+    /** From handing a batch of notes to Firestore to its commit, µs. */
+    public static final int NOTE_SAVE = 4;
+    /** Java heap allocated per second while recording, KB/s. */
+    public static final int ALLOCATION_RATE = 5;
+    /** {@link #REAL_TIME_FACTOR} of the grammar-restricted recognizer in command mode. */
+    public static final int COMMAND_REAL_TIME_FACTOR = 6;
+    /** {@link #AUDIO_TO_FINAL} in command mode, i.e. until a command can be acted on. */
+    public static final int COMMAND_AUDIO_TO_RESULT = 7;
+
+    private static final String[] NAMES = {"real_time_factor", "audio_to_partial", "audio_to_final",
+            "ui_callback", "note_save", "allocation_rate", "command_real_time_factor", "command_audio_to_result"};
+    private static final boolean[] DURATION = {false, true, true, true, true, false, false, true};
+    private static final String[] UNITS = {"x", "ms", "ms", "ms", "ms", "KB/s", "x", "ms"};
+
+    static final int TRACE_CAPACITY = 4096; // ~100 KB of columns
+
+    private static RecognitionMetrics instance;
+
+    private final LatencyHistogram[] histograms = new LatencyHistogram[NAMES.length];
+    private final long originNanos = System.nanoTime();
+
+    // Trace ring, guarded by this
+    private final int[] traceMetrics = new int[TRACE_CAPACITY];
+    private final long[] traceStarts = new long[TRACE_CAPACITY]; // ns from originNanos
+    private final long[] traceValues = new long[TRACE_CAPACITY];
+    private final long[] traceThreads = new long[TRACE_CAPACITY];
+    private long traced;
+
+    public static synchronized RecognitionMetrics getInstance() {
+        if (instance == null) {
+            instance = new RecognitionMetrics();
+        }
+        return instance;
+    }
+
+    RecognitionMetrics() {
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = new LatencyHistogram();
+        }
+    }
+
+    /** Records the duration from {@code startNanos} to {@code endNanos} under a duration metric. */
+    public void span(int metric, long startNanos, long endNanos) {
+        long micros = (endNanos - startNanos) / 1000;
+        histograms[metric].record(micros);
+        trace(metric, startNanos, micros);
+    }
+
+    /** Records {@code value} under a non-duration metric. */
+    public void record(int metric, long value) {
+        histograms[metric].record(value);
+        trace(metric, System.nanoTime(), value);
+    }
+
+    public LatencyHistogram getHistogram(int metric) {
+        return histograms[metric];
+    }
+
+    public synchronized void reset() {
+        for (LatencyHistogram histogram : histograms) {
+            histogram.reset();
+        }
+        traced = 0;
+    }
+
+    /** One line per metric with samples, e.g. {@code audio_to_partial n=412 p50=38 p90=61 p99=95 max=130 ms}. */
+    public String describe() {
+        StringBuilder sb = new StringBuilder();
+        for (int metric = 0; metric < histograms.length; metric++) {
+            LatencyHistogram histogram = histograms[metric];
+            if (histogram.getCount() == 0) {
+                continue;
+            }
+            if (sb.length() > 0) {
+                sb.append('\n');
+            }
+            sb.append(String.format(Locale.US, "%s n=%d p50=%s p90=%s p99=%s max=%s %s", NAMES[metric],
+                    histogram.getCount(), format(metric, histogram.getPercentile(50)),
+                    format(metric, histogram.getPercentile(90)), format(metric, histogram.getPercentile(99)),
+                    format(metric, histogram.getMax()), UNITS[metric]));
+        }
+        return sb.length() > 0 ? sb.toString() : "No recognition metrics yet.";
+    }
+
+    /** Chrome trace of the buffered samples plus {@code "metrics"} with the percentiles of everything recorded. */
+    public JSONObject toJson() throws JSONException {
+        JSONArray events = new JSONArray();
+        synchronized (this) {
+            long first = Math.max(0, traced - TRACE_CAPACITY);
+            for (long i = first; i < traced; i++) {
+                int slot = (int) (i % TRACE_CAPACITY);
+                int metric = traceMetrics[slot];
+                JSONObject event = new JSONObject()
+                        .put("name", NAMES[metric])
+                        .put("cat", "recognition")
+                        .put("pid", 0)
+                        .put("tid", traceThreads[slot])
+                        .put("ts", traceStarts[slot] / 1000);
+                if (DURATION[metric]) {
+                    event.put("ph", "X").put("dur", traceValues[slot]);
+                } else {
+                    event.put("ph", "C").put("args", new JSONObject().put(UNITS[metric],
+                            isRatio(metric) ? traceValues[slot] / 1000.0 : traceValues[slot]));
+                }
+                events.put(event);
+            }
+        }
+        JSONObject metrics = new JSONObject();
+        for (int metric = 0; metric < histograms.length; metric++) {
+            LatencyHistogram histogram = histograms[metric];
+            metrics.put(NAMES[metric], new JSONObject()
+                    .put("unit", DURATION[metric] ? "us" : UNITS[metric])
+                    .put("count", histogram.getCount())
+                    .put("min", histogram.getMin())
+                    .put("mean", histogram.getMean())
+                    .put("p50", histogram.getPercentile(50))
+                    .put("p90", histogram.getPercentile(90))
+                    .put("p99", histogram.getPercentile(99))
+                    .put("max", histogram.getMax()));
+        }
+        return new JSONObject()
+                .put("traceEvents", events)
+                .put("displayTimeUnit", "ms")
+                .put("metrics", metrics);
+    }
+
+    private synchronized void trace(int metric, long startNanos, long value) {
+        int slot = (int) (traced % TRACE_CAPACITY);
+        traceMetrics[slot] = metric;
+        traceStarts[slot] = startNanos - originNanos;
+        traceValues[slot] = value;
+        traceThreads[slot] = Thread.currentThread().getId();
+        traced++;
+    }
+
+    private static String format(int metric, long value) {
+        if (DURATION[metric]) {
+            return String.format(Locale.US, "%.1f", value / 1000.0); // µs to ms
+        }
+        return isRatio(metric) ? String.format(Locale.US, "%.2f", value / 1000.0) : Long.toString(value);
+    }
+
+    // Recorded in thousandths
+    private static boolean isRatio(int metric) {
+        return "x".equals(UNITS[metric]);
+    }
+}
@@ -0,0 +1,196 @@
+package com.example.easyspeech;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import org.vosk.Model;
+import org.vosk.Recognizer;
+import org.vosk.android.RecognitionListener;
+
+import java.io.IOException;
+
+/**
+ * Keeps one warm {@link Recognizer} and {@link AudioCaptureService} (and so one AudioRecord) for
+ * the shared model, instead of building new native objects for every recording.
+ *
+ * Between utterances the recognizer is only reset; everything is released in {@link #release()}.
+ * Tap-to-first-partial latency is logged for every start, tagged cold or warm, so both paths
+ * can be compared.
+ *
+ * With a grammar the recognizer only knows those phrases (see {@link CommandGrammar}); its
+ * decode cost and latency go to the command metrics of {@link RecognitionMetrics}, next to
+ * those of free dictation.
+ */
+public class RecognitionSession {
+
+    private static final String TAG = "RecognitionSession";
+    static final float SAMPLE_RATE = 16000.0f;
+
+    private final Model model;
+    private final String grammar; // Vosk JSON phrase list, or null for open vocabulary
+    private Recognizer recognizer;
+    private AudioCaptureService captureService;
+    private VoiceActivityDetector.Config vadConfig;
+    private AudioJournal audioJournal;
+    private boolean listening;
+    private TimingListener currentListener;
+
+    // Latency of the current start
+    private long startedAtMillis;
+    private boolean coldStart;
+    private boolean firstPartialSeen;
+    private long lastFirstPartialMillis = -1;
+
+    public RecognitionSession(Model model, VoiceActivityDetector.Config vadConfig) {
+        this(model, vadConfig, null);
+    }
+
+    /** Session whose recognizer is restricted to {@code grammar}, e.g. {@link CommandGrammar#toJson()}. */
+    public RecognitionSession(Model model, VoiceActivityDetector.Config vadConfig, String grammar) {
+        this.model = model;
+        this.vadConfig = vadConfig;
+        this.grammar = grammar;
+    }
+
+    /** New VAD settings, applied from the next start. */
+    public void setVadConfig(VoiceActivityDetector.Config vadConfig) {
+        this.vadConfig = vadConfig;
+    }
+
+    /** Keeps the recorded audio in {@code journal} (or stops keeping it if null) from the next start. */
+    public void setAudioJournal(AudioJournal journal) {
+        this.audioJournal = journal;
+    }
+
+    /** Journal position of the next recorded sample, or -1 without a journal. */
+    public long getAudioPosition() {
+        return audioJournal != null ? audioJournal.getPosition() : -1;
+    }
+
+    /**
+     * Starts feeding the microphone to the recognizer; results go to {@code listener}.
+     *
+     * @throws IOException if the audio pipeline cannot be created
+     */
+    public void start(RecognitionListener listener) throws IOException {
+        if (listening) {
+            return;
+        }
+        startedAtMillis = SystemClock.elapsedRealtime();
+        coldStart = captureService == null;
+        firstPartialSeen = false;
+        if (coldStart) {
+            if (grammar != null) {
+                recognizer = new Recognizer(model, SAMPLE_RATE, grammar);
+            } else {
+                recognizer = new Recognizer(model, SAMPLE_RATE);
+                recognizer.setWords(true); // Per-word times and confidences in results, see WordTimings
+            }
+            captureService = new AudioCaptureService(recognizer, SAMPLE_RATE, vadConfig);
+            if (grammar != null) {
+                captureService.setResultMetrics(RecognitionMetrics.COMMAND_REAL_TIME_FACTOR,
+                        RecognitionMetrics.COMMAND_AUDIO_TO_RESULT);
+            }
+        } else {
+            captureService.setVadConfig(vadConfig); // The recognizer is reset by the decoder thread
+        }
+        captureService.setAudioJournal(audioJournal);
+        currentListener = new TimingListener(listener);
+        captureService.startListening(currentListener);
+        listening = true;
+    }
+
+    /**
+     * Stops listening without waiting for the audio threads; the recognizer and audio pipeline
+     * stay allocated for the next start.
+     */
+    public void stop() {
+        if (!listening) {
+            return;
+        }
+        listening = false;
+        captureService.stop();
+    }
+
+    public boolean isListening() {
+        return listening;
+    }
+
+    /** VAD stats of the last recording, e.g. for SettingsActivity. */
+    public String describeCaptureStats() {
+        return captureService != null ? captureService.describeStats() : "";
+    }
+
+    /** Tap-to-first-partial of the last start in ms, or -1 if no partial arrived yet. */
+    public long getLastFirstPartialMillis() {
+        return lastFirstPartialMillis;
+    }
+
+    /** Frees the native recognizer and the AudioRecord. The session can't be used afterwards. */
+    public void release() {
+        listening = false;
+        if (captureService != null) {
+            captureService.shutdown(); // Closes the recognizer once the audio threads are done with it
+            captureService = null;
+        } else if (recognizer != null) {
+            recognizer.close();
+        }
+        recognizer = null;
+    }
+
+    // Measures the first partial of each start, then forwards everything unchanged
+    private class TimingListener implements RecognitionListener, AudioCaptureService.AudioResultListener {
+        private final RecognitionListener delegate;
+
+        TimingListener(RecognitionListener delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void onPartialResult(String hypothesis) {
+            if (!firstPartialSeen) {
+                firstPartialSeen = true;
+                lastFirstPartialMillis = SystemClock.elapsedRealtime() - startedAtMillis;
+                Log.d(TAG, "Tap to first partial: " + lastFirstPartialMillis + " ms ("
+                        + (coldStart ? "cold" : "warm") + ")");
+            }
+            delegate.onPartialResult(hypothesis);
+        }
+
+        @Override
+        public void onResultAudio(long journalPosition, double streamSeconds) {
+            if (delegate instanceof AudioCaptureService.AudioResultListener) {
+                ((AudioCaptureService.AudioResultListener) delegate).onResultAudio(journalPosition, streamSeconds);
+            }
+        }
+
+        @Override
+        public void onResult(String hypothesis) {
+            delegate.onResult(hypothesis);
+        }
+
+        @Override
+        public void onFinalResult(String hypothesis) {
+            // Only delivered once the recognizer thread has ended, i.e. after stop() or a timeout
+            delegate.onFinalResult(hypothesis);
+        }
+
+        @Override
+        public void onError(Exception exception) {
+            stopIfCurrent();
+            delegate.onError(exception);
+        }
+
+        @Override
+        public void onTimeout() {
+            stopIfCurrent();
+            delegate.onTimeout();
+        }
+
+        private void stopIfCurrent() {
+            if (this == currentListener) { // A late callback must not stop a newer start
+                stop();
+            }
+        }
+    }
+}
@@ -1,17 +1,181 @@
 package com.example.easyspeech;
 
+import android.net.Uri;
 import android.os.Bundle;
+import android.util.Log;
+import android.widget.EditText;
+import android.widget.SeekBar;
 import android.widget.TextView;
+import android.widget.Toast;
+import androidx.activity.result.ActivityResultLauncher;
+import androidx.activity.result.contract.ActivityResultContracts;
 import androidx.appcompat.app.AppCompatActivity;
+import com.google.android.material.switchmaterial.SwitchMaterial;
+
+import org.json.JSONException;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class SettingsActivity extends AppCompatActivity {
 
+    private static final String TAG = "SettingsActivity";
+
+    // SeekBar ranges for the VAD tunables
+    private static final int ENERGY_MIN_DB = -70;
+    private static final int ENERGY_MAX_DB = -20;
+    private static final int ZCR_MAX_PERCENT = 50;
+    private static final int HANGOVER_MIN_MS = 100;
+    private static final int HANGOVER_MAX_MS = 1000;
+    private static final int PRE_ROLL_MAX_MS = 1000;
+    private static final int MILLIS_STEP = 50;
+
+    private VoiceActivityDetector.Config vadConfig;
+    private EditText serverUrlText;
+    private EditText apiKeyText;
+
+    private final ExecutorService exportExecutor = Executors.newSingleThreadExecutor();
+    private final ActivityResultLauncher<String> exportMetrics = registerForActivityResult(
+            new ActivityResultContracts.CreateDocument("application/json"), this::exportMetrics);
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_settings);
 
-        TextView settingsPlaceholder = findViewById(R.id.settings_placeholder_text);
-        settingsPlaceholder.setText("Settings will be implemented here.\n (e.g., Language preferences, Vosk model selection, API keys for translation)");
+        vadConfig = VadSettings.load(this);
+
+        SwitchMaterial continuousSwitch = findViewById(R.id.continuous_dictation_switch);
+        continuousSwitch.setChecked(DictationSettings.isContinuous(this));
+        continuousSwitch.setOnCheckedChangeListener((button, checked) -> DictationSettings.setContinuous(this, checked));
+
+        SwitchMaterial vadSwitch = findViewById(R.id.vad_enabled_switch);
+        vadSwitch.setChecked(vadConfig.enabled);
+        vadSwitch.setOnCheckedChangeListener((button, checked) -> {
+            vadConfig.enabled = checked;
+            VadSettings.save(this, vadConfig);
+        });
+
+        TextView energyLabel = findViewById(R.id.vad_energy_label);
+        bindSeekBar(findViewById(R.id.vad_energy_seek_bar), ENERGY_MAX_DB - ENERGY_MIN_DB,
+                Math.round(vadConfig.energyThresholdDb) - ENERGY_MIN_DB, progress -> {
+                    vadConfig.energyThresholdDb = ENERGY_MIN_DB + progress;
+                    energyLabel.setText("Energy threshold: " + (ENERGY_MIN_DB + progress) + " dBFS");
+                });
+
+        TextView zcrLabel = findViewById(R.id.vad_zcr_label);
+        bindSeekBar(findViewById(R.id.vad_zcr_seek_bar), ZCR_MAX_PERCENT,
+                Math.round(vadConfig.zeroCrossingThreshold * 100), progress -> {
+                    vadConfig.zeroCrossingThreshold = progress / 100f;
+                    zcrLabel.setText("Zero-crossing threshold: " + progress + "% of samples");
+                });
+
+        TextView hangoverLabel = findViewById(R.id.vad_hangover_label);
+        bindSeekBar(findViewById(R.id.vad_hangover_seek_bar), (HANGOVER_MAX_MS - HANGOVER_MIN_MS) / MILLIS_STEP,
+                (vadConfig.hangoverMillis - HANGOVER_MIN_MS) / MILLIS_STEP, progress -> {
+                    vadConfig.hangoverMillis = HANGOVER_MIN_MS + progress * MILLIS_STEP;
+                    hangoverLabel.setText("Hangover: " + vadConfig.hangoverMillis + " ms");
+                });
+
+        TextView preRollLabel = findViewById(R.id.vad_pre_roll_label);
+        bindSeekBar(findViewById(R.id.vad_pre_roll_seek_bar), PRE_ROLL_MAX_MS / MILLIS_STEP,
+                vadConfig.preRollMillis / MILLIS_STEP, progress -> {
+                    vadConfig.preRollMillis = progress * MILLIS_STEP;
+                    preRollLabel.setText("Pre-roll: " + vadConfig.preRollMillis + " ms");
+                });
+
+        String lastStats = DictationSettings.getLastStats(this);
+        if (lastStats != null) {
+            TextView statsText = findViewById(R.id.vad_last_stats_text);
+            statsText.setText("Last recording: " + lastStats);
+        }
+
+        TextView outboxText = findViewById(R.id.note_outbox_stats_text);
+        outboxText.setText("Note sync: " + ((EasySpeechApplication) getApplication()).getNoteOutbox().describeStats());
+
+        serverUrlText = findViewById(R.id.translation_server_url);
+        serverUrlText.setText(TranslationSettings.getServerUrl(this));
+        apiKeyText = findViewById(R.id.translation_api_key);
+        String apiKey = TranslationSettings.getApiKey(this);
+        apiKeyText.setText(apiKey != null ? apiKey : "");
+
+        SwitchMaterial overlaySwitch = findViewById(R.id.metrics_overlay_switch);
+        overlaySwitch.setChecked(DictationSettings.isMetricsOverlay(this));
+        overlaySwitch.setOnCheckedChangeListener((button, checked) -> DictationSettings.setMetricsOverlay(this, checked));
+        findViewById(R.id.export_metrics_button).setOnClickListener(v ->
+                exportMetrics.launch("easyspeech-trace-" + System.currentTimeMillis() + ".json"));
+    }
+
+    @Override
+    protected void onPause() {
+        super.onPause();
+        if (!TranslationSettings.setServerUrl(this, serverUrlText.getText().toString())) {
+            Toast.makeText(this, "Invalid translation server URL; keeping "
+                    + TranslationSettings.getServerUrl(this), Toast.LENGTH_LONG).show();
+        }
+        TranslationSettings.setApiKey(this, apiKeyText.getText().toString());
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        exportExecutor.shutdown(); // Lets an export in progress finish
+    }
+
+    // Writes the RecognitionMetrics trace to the document the user picked
+    private void exportMetrics(Uri uri) {
+        if (uri == null) {
+            return; // Picker cancelled
+        }
+        String json;
+        try {
+            json = RecognitionMetrics.getInstance().toJson().toString();
+        } catch (JSONException e) {
+            Log.e(TAG, "Cannot serialize metrics", e);
+            Toast.makeText(this, "Export failed: " + e.getMessage(), Toast.LENGTH_LONG).show();
+            return;
+        }
+        exportExecutor.execute(() -> {
+            try (OutputStream out = getContentResolver().openOutputStream(uri)) {
+                if (out == null) {
+                    throw new IOException("Cannot open " + uri);
+                }
+                out.write(json.getBytes(StandardCharsets.UTF_8));
+                runOnUiThread(() -> Toast.makeText(this, "Metrics trace exported.", Toast.LENGTH_SHORT).show());
+            } catch (IOException e) {
+                Log.e(TAG, "Metrics export failed", e);
+                runOnUiThread(() -> Toast.makeText(this, "Export failed: " + e.getMessage(),
+                        Toast.LENGTH_LONG).show());
+            }
+        });
+    }
+
+    private interface ProgressListener {
+        void onProgress(int progress);
+    }
+
+    // Updates the label right away and saves when the user lets go of the bar
+    private void bindSeekBar(SeekBar seekBar, int max, int progress, ProgressListener listener) {
+        seekBar.setMax(max);
+        seekBar.setProgress(Math.max(0, Math.min(max, progress)));
+        listener.onProgress(seekBar.getProgress());
+        seekBar.setOnSeekBarChangeListener(new SeekBar.OnSeekBarChangeListener() {
+            @Override
+            public void onProgressChanged(SeekBar bar, int value, boolean fromUser) {
+                listener.onProgress(value);
+            }
+
+            @Override
+            public void onStartTrackingTouch(SeekBar bar) {
+            }
+
+            @Override
+            public void onStopTrackingTouch(SeekBar bar) {
+                VadSettings.save(SettingsActivity.this, vadConfig);
+            }
+        });
     }
 }
@@ -4,6 +4,7 @@ import android.content.Intent;
 import android.os.Bundle;
 import android.os.Handler;
 import android.os.Looper;
+import android.os.SystemClock;
 import androidx.appcompat.app.AppCompatActivity;
 import com.airbnb.lottie.LottieAnimationView;
 import com.google.firebase.auth.FirebaseAuth;
@@ -11,31 +12,63 @@ import com.google.firebase.auth.FirebaseUser;
 
 public class SplashActivity extends AppCompatActivity {
 
-    private static final int SPLASH_DELAY = 3000; // 3 seconds
+    // Shortest time the animation stays on screen, so the splash doesn't just flash
+    private static final long MIN_SPLASH_MILLIS = 500;
     private FirebaseAuth mAuth;
 
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private long shownAtMillis;
+    private final Runnable leaveWhenReady = this::leaveAfterFloor;
+    private final Runnable leave = this::openNextScreen;
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_splash);
-
-        mAuth = FirebaseAuth.getInstance();
+        shownAtMillis = SystemClock.elapsedRealtime();
 
         LottieAnimationView animationView = findViewById(R.id.lottie_animation_view);
-        // Assuming you have a Lottie file named "splash_animation.json" in app/src/main/assets
-        animationView.setAnimation("splash_animation.json");
+        // Already parsed by the startup task when possible (Lottie caches compositions by asset)
+        animationView.setAnimation(EasySpeechApplication.SPLASH_ANIMATION_ASSET);
         animationView.playAnimation();
 
-        new Handler(Looper.getMainLooper()).postDelayed(() -> {
-            FirebaseUser currentUser = mAuth.getCurrentUser();
-            if (currentUser != null) {
-                // User is signed in, go to MainActivity
-                startActivity(new Intent(SplashActivity.this, MainActivity.class));
-            } else {
-                // No user is signed in, go to LoginActivity
-                startActivity(new Intent(SplashActivity.this, LoginActivity.class));
-            }
-            finish();
-        }, SPLASH_DELAY);
+        // Both LoginActivity and MainActivity only need to know the signed-in user; the Vosk
+        // model keeps loading in the background and MainActivity picks it up from ModelHolder.
+        StartupOrchestrator.getInstance().whenFinished(leaveWhenReady, StartupOrchestrator.TASK_FIREBASE_AUTH);
+    }
+
+    private void leaveAfterFloor() {
+        if (isLeaving()) {
+            return; // Already posted by the orchestrator when onDestroy cancelled it
+        }
+        long elapsed = SystemClock.elapsedRealtime() - shownAtMillis;
+        handler.postDelayed(leave, Math.max(0, MIN_SPLASH_MILLIS - elapsed));
+    }
+
+    private void openNextScreen() {
+        if (isLeaving()) {
+            return; // This instance was recreated or closed; the new one opens the next screen
+        }
+        mAuth = FirebaseAuth.getInstance();
+        FirebaseUser currentUser = mAuth.getCurrentUser();
+        if (currentUser != null) {
+            // User is signed in, go to MainActivity
+            startActivity(new Intent(SplashActivity.this, MainActivity.class));
+        } else {
+            // No user is signed in, go to LoginActivity
+            startActivity(new Intent(SplashActivity.this, LoginActivity.class));
+        }
+        finish();
+    }
+
+    private boolean isLeaving() {
+        return isFinishing() || isDestroyed();
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        StartupOrchestrator.getInstance().cancel(leaveWhenReady);
+        handler.removeCallbacks(leave);
     }
 }
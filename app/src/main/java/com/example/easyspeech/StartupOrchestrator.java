@@ -0,0 +1,218 @@
+package com.example.easyspeech;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Runs the independent cold-start tasks (Firebase Auth, splash animation parsing, Vosk model)
+ * in parallel from {@link EasySpeechApplication#onCreate()} and lets screens wait only for the
+ * tasks they actually need.
+ *
+ * Every task and milestone is timed relative to process start; {@link #describeTrace()} gives
+ * a one-line trace that is logged under the {@code StartupTrace} tag so cold start can be
+ * compared between builds.
+ */
+public class StartupOrchestrator {
+
+    private static final String TAG = "StartupTrace";
+
+    public static final String TASK_FIREBASE_AUTH = "firebase_auth";
+    public static final String TASK_SPLASH_ANIMATION = "splash_animation";
+    public static final String TASK_VOSK_MODEL = "vosk_model";
+    public static final String TASK_TRANSLATION_MEMORY = "translation_memory";
+
+    /** Milestone marked by MainActivity once recording can start. */
+    public static final String MILESTONE_RECORD_READY = "record_button_ready";
+
+    /** A startup task. Call {@code done} exactly once, possibly from another thread. */
+    public interface Task {
+        void run(Completion done) throws Exception;
+    }
+
+    public interface Completion {
+        void complete();
+
+        void fail(Exception e);
+    }
+
+    private static final class Record {
+        long startMillis = -1;
+        long endMillis = -1;
+        Exception error;
+
+        boolean isFinished() {
+            return endMillis >= 0;
+        }
+    }
+
+    private static final class Waiter {
+        final String[] names;
+        final Runnable callback;
+
+        Waiter(String[] names, Runnable callback) {
+            this.names = names;
+            this.callback = callback;
+        }
+    }
+
+    private static StartupOrchestrator instance;
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final ExecutorService executor = Executors.newFixedThreadPool(3);
+    private final long processStartMillis = Process.getStartElapsedRealtime();
+
+    // Guarded by this
+    private final Map<String, Record> tasks = new LinkedHashMap<>();
+    private final Map<String, Long> milestones = new LinkedHashMap<>();
+    private final List<Waiter> waiters = new ArrayList<>();
+
+    public static synchronized StartupOrchestrator getInstance() {
+        if (instance == null) {
+            instance = new StartupOrchestrator();
+        }
+        return instance;
+    }
+
+    /** Starts {@code task} on the startup pool. */
+    public void start(String name, Task task) {
+        Record record = new Record();
+        synchronized (this) {
+            if (tasks.containsKey(name)) {
+                return;
+            }
+            tasks.put(name, record);
+        }
+        executor.execute(() -> {
+            synchronized (this) {
+                record.startMillis = now();
+            }
+            try {
+                task.run(new Completion() {
+                    @Override
+                    public void complete() {
+                        finish(name, record, null);
+                    }
+
+                    @Override
+                    public void fail(Exception e) {
+                        finish(name, record, e);
+                    }
+                });
+            } catch (Exception e) {
+                finish(name, record, e);
+            }
+        });
+    }
+
+    /**
+     * Runs {@code callback} on the main thread once all named tasks have finished (successfully
+     * or not). Tasks that were never started count as finished.
+     */
+    public void whenFinished(Runnable callback, String... names) {
+        synchronized (this) {
+            if (!allFinished(names)) {
+                waiters.add(new Waiter(names, callback));
+                return;
+            }
+        }
+        mainHandler.post(callback);
+    }
+
+    /** Drops a callback registered with {@link #whenFinished} that has not run yet. */
+    public synchronized void cancel(Runnable callback) {
+        Iterator<Waiter> it = waiters.iterator();
+        while (it.hasNext()) {
+            if (it.next().callback == callback) {
+                it.remove();
+            }
+        }
+    }
+
+    public synchronized boolean isFinished(String name) {
+        Record record = tasks.get(name);
+        return record == null || record.isFinished();
+    }
+
+    /** Records a named point in time, e.g. the first frame where recording is possible. */
+    public void mark(String milestone) {
+        synchronized (this) {
+            if (milestones.containsKey(milestone)) {
+                return; // Only the first occurrence counts
+            }
+            milestones.put(milestone, now());
+        }
+        Log.i(TAG, describeTrace());
+    }
+
+    /** E.g. {@code firebase_auth=12..140ms vosk_model=13..2300ms record_button_ready@2410ms}. */
+    public synchronized String describeTrace() {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, Record> entry : tasks.entrySet()) {
+            Record record = entry.getValue();
+            sb.append(entry.getKey()).append('=').append(record.startMillis).append("..");
+            if (record.isFinished()) {
+                sb.append(record.endMillis).append("ms");
+                if (record.error != null) {
+                    sb.append("(failed)");
+                }
+            } else {
+                sb.append('?');
+            }
+            sb.append(' ');
+        }
+        for (Map.Entry<String, Long> entry : milestones.entrySet()) {
+            sb.append(entry.getKey()).append('@').append(entry.getValue()).append("ms ");
+        }
+        return sb.toString().trim();
+    }
+
+    private void finish(String name, Record record, Exception error) {
+        List<Runnable> ready = new ArrayList<>();
+        synchronized (this) {
+            if (record.isFinished()) {
+                return;
+            }
+            record.endMillis = now();
+            record.error = error;
+            Iterator<Waiter> it = waiters.iterator();
+            while (it.hasNext()) {
+                Waiter waiter = it.next();
+                if (allFinished(waiter.names)) {
+                    ready.add(waiter.callback);
+                    it.remove();
+                }
+            }
+        }
+        if (error != null) {
+            Log.w(TAG, "Startup task " + name + " failed", error);
+        }
+        for (Runnable callback : ready) {
+            mainHandler.post(callback);
+        }
+    }
+
+    private boolean allFinished(String[] names) {
+        for (String name : names) {
+            Record record = tasks.get(name);
+            if (record != null && !record.isFinished()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private long now() {
+        return SystemClock.elapsedRealtime() - processStartMillis;
+    }
+}
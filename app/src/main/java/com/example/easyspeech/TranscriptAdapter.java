@@ -0,0 +1,111 @@
+package com.example.easyspeech;
+
+import android.annotation.SuppressLint;
+import android.text.SpannableString;
+import android.text.Spanned;
+import android.text.style.ForegroundColorSpan;
+import android.view.LayoutInflater;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+import androidx.annotation.NonNull;
+import androidx.core.content.ContextCompat;
+import androidx.recyclerview.widget.RecyclerView;
+
+/**
+ * Shows a {@link Transcript} one segment per row, so only the visible utterances are laid out.
+ * Rows are the segments still on the heap (from {@link Transcript#getWindowStart()}), so a
+ * spooled transcript shows its most recent part.
+ *
+ * Words the recognizer was unsure of are highlighted, and tapping a word of a segment with
+ * timings reports it to the {@link OnWordTapListener}, e.g. to play the audio from there.
+ */
+public class TranscriptAdapter extends RecyclerView.Adapter<TranscriptAdapter.SegmentViewHolder> {
+
+    static final float LOW_CONFIDENCE = 0.6f;
+
+    private final Transcript transcript;
+    private OnWordTapListener wordTapListener;
+
+    public interface OnWordTapListener {
+        void onWordTapped(int segmentIndex, int wordIndex);
+    }
+
+    public TranscriptAdapter(Transcript transcript) {
+        this.transcript = transcript;
+    }
+
+    public void setOnWordTapListener(OnWordTapListener wordTapListener) {
+        this.wordTapListener = wordTapListener;
+    }
+
+    /** Shows the segment just appended; {@code evicted} if its append pushed the oldest row out of the window. */
+    public void notifySegmentAppended(boolean evicted) {
+        if (evicted) {
+            notifyItemRemoved(0);
+        }
+        notifyItemInserted(transcript.getWindowCount() - 1);
+    }
+
+    @SuppressLint("ClickableViewAccessibility") // The click itself goes through performClick()
+    @NonNull
+    @Override
+    public SegmentViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        View view = LayoutInflater.from(parent.getContext()).inflate(R.layout.item_transcript_segment, parent, false);
+        SegmentViewHolder holder = new SegmentViewHolder(view);
+        holder.segmentText.setOnTouchListener((v, event) -> {
+            if (event.getActionMasked() == MotionEvent.ACTION_DOWN) {
+                holder.touchX = event.getX();
+                holder.touchY = event.getY();
+            }
+            return false;
+        });
+        holder.segmentText.setOnClickListener(v -> {
+            int position = holder.getBindingAdapterPosition();
+            if (wordTapListener == null || position == RecyclerView.NO_POSITION) {
+                return;
+            }
+            int index = transcript.getWindowStart() + position;
+            int word = transcript.get(index).getWords()
+                    .wordAtChar(holder.segmentText.getOffsetForPosition(holder.touchX, holder.touchY));
+            if (word >= 0) {
+                wordTapListener.onWordTapped(index, word);
+            }
+        });
+        return holder;
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull SegmentViewHolder holder, int position) {
+        TranscriptSegment segment = transcript.get(transcript.getWindowStart() + position);
+        WordTimings words = segment.getWords();
+        SpannableString highlighted = null;
+        for (int i = 0; i < words.size(); i++) {
+            if (words.getConfidence(i) < LOW_CONFIDENCE) {
+                if (highlighted == null) {
+                    highlighted = new SpannableString(segment.getText());
+                }
+                highlighted.setSpan(new ForegroundColorSpan(ContextCompat.getColor(holder.itemView.getContext(), R.color.low_confidence_word)),
+                        words.getTextStart(i), words.getTextEnd(i), Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+            }
+        }
+        holder.segmentText.setText(highlighted != null ? highlighted : segment.getText());
+    }
+
+    @Override
+    public int getItemCount() {
+        return transcript.getWindowCount();
+    }
+
+    static class SegmentViewHolder extends RecyclerView.ViewHolder {
+        TextView segmentText;
+        float touchX;
+        float touchY;
+
+        public SegmentViewHolder(@NonNull View itemView) {
+            super(itemView);
+            segmentText = itemView.findViewById(R.id.transcript_segment_text);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.easyspeech;
+
+import com.google.gson.annotations.SerializedName;
+
+import java.util.List;
+
+import retrofit2.Call;
+import retrofit2.http.Body;
+import retrofit2.http.POST;
+
+/**
+ * Retrofit interface for a LibreTranslate-compatible {@code /translate} endpoint, which accepts
+ * several texts per request and returns their translations in the same order.
+ */
+public interface TranslationApi {
+
+    @POST("translate")
+    Call<TranslateResponse> translate(@Body TranslateRequest request);
+
+    final class TranslateRequest {
+        @SerializedName("q")
+        final List<String> texts;
+        @SerializedName("source")
+        final String source;
+        @SerializedName("target")
+        final String target;
+        @SerializedName("format")
+        final String format = "text";
+        @SerializedName("api_key")
+        final String apiKey; // Left out of the JSON when null
+
+        TranslateRequest(List<String> texts, String source, String target, String apiKey) {
+            this.texts = texts;
+            this.source = source;
+            this.target = target;
+            this.apiKey = apiKey;
+        }
+    }
+
+    final class TranslateResponse {
+        @SerializedName("translatedText")
+        List<String> translatedTexts;
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.easyspeech;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.ConnectionPool;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import retrofit2.Retrofit;
+import retrofit2.converter.gson.GsonConverterFactory;
+
+/**
+ * Process-wide HTTP stack for translation. One OkHttpClient means one connection pool, so
+ * consecutive batches reuse the same (HTTP/2 when the server supports it) connection instead of
+ * paying a TCP and TLS handshake each time.
+ */
+public final class TranslationClient {
+
+    /**
+     * Default LibreTranslate instance; it needs an API key. Any compatible server works, see
+     * {@link TranslationSettings}.
+     */
+    public static final String DEFAULT_BASE_URL = "https://libretranslate.com/";
+
+    private static OkHttpClient httpClient;
+    private static TranslationApi api;
+    private static String apiBaseUrl;
+
+    private TranslationClient() {
+    }
+
+    public static synchronized OkHttpClient getHttpClient() {
+        if (httpClient == null) {
+            httpClient = new OkHttpClient.Builder()
+                    .protocols(Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1))
+                    .connectionPool(new ConnectionPool(2, 5, TimeUnit.MINUTES))
+                    .connectTimeout(10, TimeUnit.SECONDS)
+                    .readTimeout(20, TimeUnit.SECONDS)
+                    .build();
+        }
+        return httpClient;
+    }
+
+    /** API for {@code baseUrl}, recreated only when the configured server changes. */
+    public static synchronized TranslationApi getApi(String baseUrl) {
+        if (api == null || !baseUrl.equals(apiBaseUrl)) {
+            api = create(baseUrl, getHttpClient());
+            apiBaseUrl = baseUrl;
+        }
+        return api;
+    }
+
+    static TranslationApi create(String baseUrl, OkHttpClient client) {
+        return new Retrofit.Builder()
+                .baseUrl(baseUrl)
+                .client(client)
+                .addConverterFactory(GsonConverterFactory.create())
+                .build()
+                .create(TranslationApi.class);
+    }
+}
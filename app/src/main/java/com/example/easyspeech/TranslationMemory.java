@@ -0,0 +1,472 @@
+package com.example.easyspeech;
+
+import android.util.Log;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * On-device translation memory so repeated phrases don't cost a network round trip.
+ *
+ * Two tiers, both keyed by the normalized source text plus the target language:
+ * <ul>
+ * <li>an in-memory LRU of recent translations;</li>
+ * <li>an append-only file of every stored translation, bounded in bytes. Only the keys and
+ * record offsets are kept in memory; a translation is read from disk when it is looked up.
+ * When the file outgrows its budget it is compacted, keeping the most recently used entries.</li>
+ * </ul>
+ * Exact misses fall back to a character-trigram index over the stored sources, so "hello,
+ * how are you" finds "hello how are you?" and near-identical utterances.
+ *
+ * Disk writes happen on a background thread; lookups are synchronized and safe from any thread,
+ * but may read from disk, so call them (and {@link #put}) from a background thread such as
+ * {@link #getExecutor()}.
+ */
+public class TranslationMemory {
+
+    private static final String TAG = "TranslationMemory";
+
+    static final float FUZZY_THRESHOLD = 0.8f; // Dice coefficient over trigrams
+    private static final int FORMAT_VERSION = 1;
+
+    private final File file;
+    private final long maxBytes;
+
+    // Tier 1: normalized key -> translation, access ordered
+    private final LinkedHashMap<String, String> lru;
+    // Tier 2: normalized key -> disk record
+    private final Map<String, DiskEntry> entries = new HashMap<>();
+    // Fuzzy index: "target|trigram" -> keys containing it
+    private final Map<String, List<String>> trigramIndex = new HashMap<>();
+
+    private final ExecutorService writer = Executors.newSingleThreadExecutor();
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(); // For callers
+    private long fileBytes;
+    private long useClock;
+
+    // Stats
+    private long exactHits;
+    private long fuzzyHits;
+    private long misses;
+    private long lruEvictions;
+    private long diskEvictions;
+
+    private static final class DiskEntry {
+        final String source;   // Normalized
+        final String target;
+        final int gramCount;   // Distinct trigrams of source
+        long offset = -1;      // -1 until the record is written
+        int size;
+        long lastUsed;
+
+        DiskEntry(String source, String target) {
+            this.source = source;
+            this.target = target;
+            gramCount = trigrams(source).size();
+        }
+    }
+
+    public TranslationMemory(File file, int maxMemoryEntries, long maxBytes) {
+        this.file = file;
+        this.maxBytes = maxBytes;
+        lru = new LinkedHashMap<String, String>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                if (size() > maxMemoryEntries) {
+                    lruEvictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+        load();
+    }
+
+    /** Cached translation of {@code source} into {@code target}, exact or fuzzy, or null. */
+    public synchronized String lookup(String source, String target) {
+        String normalized = normalize(source);
+        if (normalized.isEmpty()) {
+            return null;
+        }
+        String key = key(normalized, target);
+        String translation = lookupExact(key);
+        if (translation != null) {
+            exactHits++;
+            return translation;
+        }
+        String similar = findSimilarKey(normalized, target);
+        if (similar != null && (translation = lookupExact(similar)) != null) {
+            fuzzyHits++;
+            return translation;
+        }
+        misses++;
+        return null;
+    }
+
+    public synchronized void put(String source, String target, String translation) {
+        String normalized = normalize(source);
+        if (normalized.isEmpty()) {
+            return;
+        }
+        String key = key(normalized, target);
+        lru.put(key, translation);
+        if (entries.containsKey(key)) {
+            return;
+        }
+        DiskEntry entry = new DiskEntry(normalized, target);
+        entry.lastUsed = ++useClock;
+        addEntry(key, entry);
+        writer.execute(() -> append(key, entry, translation));
+    }
+
+    /** Single background thread for lookups and puts, in submission order. */
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    // --- Stats ---
+
+    public synchronized long getExactHits() {
+        return exactHits;
+    }
+
+    public synchronized long getFuzzyHits() {
+        return fuzzyHits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized float getHitRate() {
+        long lookups = exactHits + fuzzyHits + misses;
+        return lookups == 0 ? 0f : (float) (exactHits + fuzzyHits) / lookups;
+    }
+
+    public synchronized long getBytesUsed() {
+        return fileBytes;
+    }
+
+    public synchronized long getEvictions() {
+        return lruEvictions + diskEvictions;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized String describeStats() {
+        return String.format(Locale.US, "hit rate %.0f%% (%d exact, %d fuzzy, %d misses), %d entries, "
+                        + "%d bytes on disk, %d memory / %d disk evictions",
+                getHitRate() * 100, exactHits, fuzzyHits, misses, entries.size(), fileBytes,
+                lruEvictions, diskEvictions);
+    }
+
+    /** Waits for pending disk writes; for tests and shutdown. */
+    public void flush() throws InterruptedException {
+        try {
+            writer.submit(() -> { }).get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // --- Normalization and fuzzy matching ---
+
+    /** Lower-case, punctuation removed, whitespace collapsed. */
+    static String normalize(String text) {
+        StringBuilder sb = new StringBuilder(text.length());
+        boolean space = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isLetterOrDigit(c) || c == '\'') {
+                if (space && sb.length() > 0) {
+                    sb.append(' ');
+                }
+                space = false;
+                sb.append(Character.toLowerCase(c));
+            } else {
+                space = true;
+            }
+        }
+        return sb.toString();
+    }
+
+    private static String key(String normalized, String target) {
+        return target + '|' + normalized;
+    }
+
+    private static Set<String> trigrams(String normalized) {
+        String padded = "  " + normalized + " ";
+        Set<String> grams = new HashSet<>(padded.length() * 2);
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            grams.add(padded.substring(i, i + 3));
+        }
+        return grams;
+    }
+
+    private String findSimilarKey(String normalized, String target) {
+        Set<String> grams = trigrams(normalized);
+        Map<String, Integer> shared = new HashMap<>();
+        for (String gram : grams) {
+            List<String> keys = trigramIndex.get(target + '|' + gram);
+            if (keys == null) {
+                continue;
+            }
+            for (String key : keys) {
+                Integer count = shared.get(key);
+                shared.put(key, count == null ? 1 : count + 1);
+            }
+        }
+        String best = null;
+        float bestScore = FUZZY_THRESHOLD;
+        for (Map.Entry<String, Integer> candidate : shared.entrySet()) {
+            DiskEntry entry = entries.get(candidate.getKey());
+            float dice = 2f * candidate.getValue() / (grams.size() + entry.gramCount);
+            if (dice >= bestScore) {
+                bestScore = dice;
+                best = candidate.getKey();
+            }
+        }
+        return best;
+    }
+
+    // --- Tiers ---
+
+    private String lookupExact(String key) {
+        String translation = lru.get(key);
+        DiskEntry entry = entries.get(key);
+        if (entry != null) {
+            entry.lastUsed = ++useClock;
+        }
+        if (translation != null || entry == null || entry.offset < 0) {
+            return translation;
+        }
+        translation = readTranslation(entry);
+        if (translation != null) {
+            lru.put(key, translation); // Promote
+        }
+        return translation;
+    }
+
+    private void addEntry(String key, DiskEntry entry) {
+        entries.put(key, entry);
+        for (String gram : trigrams(entry.source)) {
+            String indexKey = entry.target + '|' + gram;
+            List<String> keys = trigramIndex.get(indexKey);
+            if (keys == null) {
+                keys = new ArrayList<>(2);
+                trigramIndex.put(indexKey, keys);
+            }
+            keys.add(key);
+        }
+    }
+
+    private void removeEntry(String key) {
+        DiskEntry entry = entries.remove(key);
+        if (entry == null) {
+            return;
+        }
+        lru.remove(key);
+        for (String gram : trigrams(entry.source)) {
+            String indexKey = entry.target + '|' + gram;
+            List<String> keys = trigramIndex.get(indexKey);
+            if (keys != null) {
+                keys.remove(key);
+                if (keys.isEmpty()) {
+                    trigramIndex.remove(indexKey);
+                }
+            }
+        }
+    }
+
+    // --- Disk format: [int version] then records of [int size][UTF target][UTF source][UTF translation] ---
+
+    private void load() {
+        if (!file.isFile()) {
+            return;
+        }
+        long good = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != FORMAT_VERSION) {
+                throw new IOException("Unknown translation memory format");
+            }
+            long offset = 4;
+            good = offset;
+            while (true) {
+                byte[] record;
+                try {
+                    record = new byte[in.readInt()];
+                    in.readFully(record);
+                } catch (EOFException e) {
+                    break; // End of file, or a torn last record from a crash mid-append
+                }
+                DataInputStream fields = new DataInputStream(new ByteArrayInputStream(record));
+                String target = fields.readUTF();
+                String source = fields.readUTF(); // Translation stays on disk
+                DiskEntry entry = new DiskEntry(source, target);
+                entry.offset = offset;
+                entry.size = record.length;
+                entry.lastUsed = ++useClock; // File order approximates recency
+                String key = key(source, target);
+                removeEntry(key);
+                addEntry(key, entry);
+                offset += 4 + record.length;
+                good = offset;
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Translation memory damaged after " + good + " bytes", e);
+        }
+        fileBytes = good;
+        try {
+            if (good == 0) {
+                if (!file.delete()) {
+                    Log.w(TAG, "Cannot delete " + file);
+                }
+            } else if (good < file.length()) {
+                try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                    raf.setLength(good); // Drop the torn tail so appends follow a whole record
+                }
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Cannot repair translation memory", e);
+        }
+    }
+
+    private String readTranslation(DiskEntry entry) {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            raf.seek(entry.offset + 4);
+            raf.readUTF();
+            raf.readUTF();
+            return raf.readUTF();
+        } catch (IOException e) {
+            Log.w(TAG, "Cannot read translation memory entry", e);
+            return null;
+        }
+    }
+
+    private static byte[] encode(DiskEntry entry, String translation) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeUTF(entry.target);
+        out.writeUTF(entry.source);
+        out.writeUTF(translation);
+        return bytes.toByteArray();
+    }
+
+    // Writer thread
+    private void append(String key, DiskEntry entry, String translation) {
+        try {
+            byte[] record = encode(entry, translation);
+            boolean newFile;
+            long offset;
+            synchronized (this) {
+                if (entries.get(key) != entry) {
+                    return; // Evicted before it was written
+                }
+                newFile = fileBytes == 0; // Otherwise the header is there, possibly with no records
+                offset = newFile ? 4 : fileBytes;
+            }
+            try (DataOutputStream out = new DataOutputStream(new FileOutputStream(file, true))) {
+                if (newFile) {
+                    out.writeInt(FORMAT_VERSION);
+                }
+                out.writeInt(record.length);
+                out.write(record);
+            }
+            boolean full;
+            synchronized (this) {
+                entry.offset = offset;
+                entry.size = record.length;
+                fileBytes = offset + 4 + record.length;
+                full = fileBytes > maxBytes;
+            }
+            if (full) {
+                compact();
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Cannot write translation memory", e);
+        }
+    }
+
+    // Rewrites the file with the most recently used entries, down to 3/4 of the budget. Runs on
+    // the writer thread, the only one that writes the file or moves records, so the copy and
+    // fsync happen without the lock; lookups keep reading the old file until the swap.
+    private void compact() throws IOException {
+        List<Map.Entry<String, DiskEntry>> byRecency = new ArrayList<>();
+        synchronized (this) {
+            for (Map.Entry<String, DiskEntry> item : entries.entrySet()) {
+                byRecency.add(new AbstractMap.SimpleImmutableEntry<>(item.getKey(), item.getValue()));
+            }
+            Collections.sort(byRecency, (a, b) -> Long.compare(b.getValue().lastUsed, a.getValue().lastUsed));
+        }
+
+        File tmp = new File(file.getPath() + ".tmp");
+        long budget = maxBytes * 3 / 4;
+        long written = 4;
+        List<String> evicted = new ArrayList<>();
+        Map<DiskEntry, Long> offsets = new HashMap<>(); // Applied once the new file is in place
+        try (RandomAccessFile src = new RandomAccessFile(file, "r");
+             FileOutputStream stream = new FileOutputStream(tmp)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream));
+            out.writeInt(FORMAT_VERSION);
+            for (Map.Entry<String, DiskEntry> item : byRecency) {
+                DiskEntry entry = item.getValue();
+                if (entry.offset < 0) {
+                    continue; // Still queued for append; it will land in the new file
+                }
+                if (written + 4 + entry.size > budget) {
+                    evicted.add(item.getKey());
+                    continue;
+                }
+                byte[] record = new byte[entry.size];
+                src.seek(entry.offset + 4);
+                src.readFully(record);
+                out.writeInt(record.length);
+                out.write(record);
+                offsets.put(entry, written);
+                written += 4 + record.length;
+            }
+            out.flush();
+            stream.getFD().sync();
+        }
+        synchronized (this) {
+            if (!tmp.renameTo(file)) {
+                throw new IOException("Cannot replace " + file);
+            }
+            for (Map.Entry<DiskEntry, Long> moved : offsets.entrySet()) {
+                moved.getKey().offset = moved.getValue();
+            }
+            for (String key : evicted) {
+                removeEntry(key);
+            }
+            diskEvictions += evicted.size();
+            fileBytes = written;
+            Log.d(TAG, "Compacted: " + describeStats());
+        }
+    }
+}
@@ -0,0 +1,230 @@
+package com.example.easyspeech;
+
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+/**
+ * Translates finalized transcript segments while dictation continues.
+ *
+ * Each segment is queued as soon as it is final. Up to {@link #MAX_IN_FLIGHT} requests run at
+ * once; segments that arrive while requests are in flight are batched (up to
+ * {@link #MAX_BATCH} per request) into the next one. Translations are delivered strictly in
+ * segment order even when requests complete out of order.
+ *
+ * With a {@link TranslationMemory}, segments it already knows are completed without a request,
+ * and every translation received is stored in it. Both happen on the memory's executor, since
+ * a lookup may read from disk; results come back through {@code callbackExecutor} in order.
+ *
+ * Not thread-safe: call it, and receive callbacks, on the thread behind {@code callbackExecutor}
+ * (the main thread in the app).
+ */
+public class TranslationPipeline {
+
+    private static final String TAG = "TranslationPipeline";
+
+    static final int MAX_BATCH = 8;
+    static final int MAX_IN_FLIGHT = 2;
+
+    public interface Listener {
+        /** Translation of segment {@code sequence}; called in sequence order. */
+        void onTranslated(int sequence, String translation);
+
+        /** Segment {@code sequence} could not be translated; still called in order. */
+        void onTranslationFailed(int sequence, Exception error);
+    }
+
+    private final TranslationApi api;
+    private final String apiKey; // May be null
+    private final Executor callbackExecutor;
+    private final Listener listener;
+    private final String sourceLanguage;
+    private final String targetLanguage;
+    private final TranslationMemory memory; // May be null
+
+    private final List<String> queued = new ArrayList<>();
+    private final List<Integer> queuedSequences = new ArrayList<>(); // Gaps where memory hit
+    private int submitted;       // Next sequence to hand out
+    private int inFlight;
+
+    // Results waiting for earlier sequences; index = sequence - nextToDeliver
+    private final List<Object> completed = new ArrayList<>();
+    private int nextToDeliver;
+
+    private boolean closed;
+
+    // Latency to the first delivered translation
+    private long firstSubmitNanos = -1;
+    private long firstTranslationMillis = -1;
+    private int requests;
+
+    public TranslationPipeline(TranslationApi api, Executor callbackExecutor, Listener listener,
+                               String sourceLanguage, String targetLanguage) {
+        this(api, null, callbackExecutor, listener, sourceLanguage, targetLanguage, null);
+    }
+
+    /**
+     * @param apiKey sent with every request, or null if the server needs none
+     */
+    public TranslationPipeline(TranslationApi api, String apiKey, Executor callbackExecutor, Listener listener,
+                               String sourceLanguage, String targetLanguage, TranslationMemory memory) {
+        this.api = api;
+        this.apiKey = apiKey;
+        this.callbackExecutor = callbackExecutor;
+        this.listener = listener;
+        this.sourceLanguage = sourceLanguage;
+        this.targetLanguage = targetLanguage;
+        this.memory = memory;
+    }
+
+    public String getTargetLanguage() {
+        return targetLanguage;
+    }
+
+    /**
+     * Queues a finalized segment for translation.
+     *
+     * @return its sequence number, as passed back to the listener
+     */
+    public int submit(String text) {
+        if (firstSubmitNanos < 0) {
+            firstSubmitNanos = System.nanoTime();
+        }
+        int sequence = submitted++;
+        completed.add(null);
+        if (memory == null) {
+            enqueue(sequence, text);
+            return sequence;
+        }
+        // One lookup thread and FIFO callbacks, so misses are still queued in sequence order
+        memory.getExecutor().execute(() -> {
+            String remembered = memory.lookup(text, targetLanguage);
+            callbackExecutor.execute(() -> {
+                if (remembered != null) {
+                    complete(sequence, remembered);
+                } else {
+                    enqueue(sequence, text);
+                }
+            });
+        });
+        return sequence;
+    }
+
+    /** Stops delivering results; requests already sent are ignored when they complete. */
+    public void close() {
+        closed = true;
+        queued.clear();
+        queuedSequences.clear();
+    }
+
+    /** Time from the first submit to the first delivered translation, or -1. */
+    public long getFirstTranslationMillis() {
+        return firstTranslationMillis;
+    }
+
+    public int getRequestCount() {
+        return requests;
+    }
+
+    private void enqueue(int sequence, String text) {
+        if (closed) {
+            return;
+        }
+        queued.add(text);
+        queuedSequences.add(sequence);
+        sendIfPossible();
+    }
+
+    private void sendIfPossible() {
+        while (!closed && inFlight < MAX_IN_FLIGHT && !queued.isEmpty()) {
+            int count = Math.min(MAX_BATCH, queued.size());
+            List<String> batch = new ArrayList<>(queued.subList(0, count));
+            List<Integer> sequences = new ArrayList<>(queuedSequences.subList(0, count));
+            queued.subList(0, count).clear();
+            queuedSequences.subList(0, count).clear();
+            inFlight++;
+            requests++;
+            api.translate(new TranslationApi.TranslateRequest(batch, sourceLanguage, targetLanguage, apiKey))
+                    .enqueue(new BatchCallback(sequences, batch));
+        }
+    }
+
+    private class BatchCallback implements Callback<TranslationApi.TranslateResponse> {
+        private final List<Integer> sequences;
+        private final List<String> sources;
+
+        BatchCallback(List<Integer> sequences, List<String> sources) {
+            this.sequences = sequences;
+            this.sources = sources;
+        }
+
+        @Override
+        public void onResponse(Call<TranslationApi.TranslateResponse> call,
+                               Response<TranslationApi.TranslateResponse> response) {
+            TranslationApi.TranslateResponse body = response.body();
+            if (!response.isSuccessful() || body == null || body.translatedTexts == null
+                    || body.translatedTexts.size() != sources.size()) {
+                onFailure(call, new Exception("Translation failed: HTTP " + response.code()));
+                return;
+            }
+            List<String> texts = body.translatedTexts;
+            if (memory != null) {
+                memory.getExecutor().execute(() -> {
+                    for (int i = 0; i < texts.size(); i++) {
+                        memory.put(sources.get(i), targetLanguage, texts.get(i));
+                    }
+                });
+            }
+            callbackExecutor.execute(() -> {
+                for (int i = 0; i < texts.size(); i++) {
+                    complete(sequences.get(i), texts.get(i));
+                }
+                batchDone();
+            });
+        }
+
+        @Override
+        public void onFailure(Call<TranslationApi.TranslateResponse> call, Throwable t) {
+            Exception error = t instanceof Exception ? (Exception) t : new Exception(t);
+            Log.w(TAG, "Translation batch failed", error);
+            callbackExecutor.execute(() -> {
+                for (int sequence : sequences) {
+                    complete(sequence, error);
+                }
+                batchDone();
+            });
+        }
+    }
+
+    private void batchDone() {
+        inFlight--;
+        sendIfPossible();
+    }
+
+    // Stores a result and delivers every result that is now next in line
+    private void complete(int sequence, Object result) {
+        if (closed) {
+            return;
+        }
+        completed.set(sequence - nextToDeliver, result);
+        while (!completed.isEmpty() && completed.get(0) != null) {
+            Object next = completed.remove(0);
+            int delivered = nextToDeliver++;
+            if (next instanceof Exception) {
+                listener.onTranslationFailed(delivered, (Exception) next);
+            } else {
+                if (firstTranslationMillis < 0) {
+                    firstTranslationMillis = (System.nanoTime() - firstSubmitNanos) / 1_000_000;
+                    Log.d(TAG, "First translated segment after " + firstTranslationMillis + " ms");
+                }
+                listener.onTranslated(delivered, (String) next);
+            }
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.easyspeech;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import okhttp3.HttpUrl;
+
+/**
+ * Persists the translation server edited in SettingsActivity: the base URL of a
+ * LibreTranslate-compatible instance and the API key it expects, if any.
+ */
+public final class TranslationSettings {
+
+    private static final String PREFS = "translation_settings";
+    private static final String KEY_SERVER_URL = "server_url";
+    private static final String KEY_API_KEY = "api_key";
+
+    private TranslationSettings() {
+    }
+
+    /** Base URL ending in '/', {@link TranslationClient#DEFAULT_BASE_URL} unless a valid one was set. */
+    public static String getServerUrl(Context context) {
+        String url = normalizeUrl(prefs(context).getString(KEY_SERVER_URL, null));
+        return url != null ? url : TranslationClient.DEFAULT_BASE_URL;
+    }
+
+    /**
+     * Saves {@code url}, or clears it when blank.
+     *
+     * @return false if {@code url} is not an http(s) URL, in which case nothing changes
+     */
+    public static boolean setServerUrl(Context context, String url) {
+        if (url.trim().isEmpty()) {
+            prefs(context).edit().remove(KEY_SERVER_URL).apply();
+            return true;
+        }
+        String normalized = normalizeUrl(url);
+        if (normalized == null) {
+            return false;
+        }
+        prefs(context).edit().putString(KEY_SERVER_URL, normalized).apply();
+        return true;
+    }
+
+    /** The key sent as {@code api_key}, or null when the server doesn't need one. */
+    public static String getApiKey(Context context) {
+        String key = prefs(context).getString(KEY_API_KEY, "").trim();
+        return key.isEmpty() ? null : key;
+    }
+
+    public static void setApiKey(Context context, String apiKey) {
+        prefs(context).edit().putString(KEY_API_KEY, apiKey.trim()).apply();
+    }
+
+    // Retrofit wants a base URL ending in '/'; null if not a URL at all
+    static String normalizeUrl(String url) {
+        if (url == null) {
+            return null;
+        }
+        HttpUrl parsed = HttpUrl.parse(url.trim());
+        if (parsed == null) {
+            return null;
+        }
+        String normalized = parsed.toString();
+        return normalized.endsWith("/") ? normalized : normalized + "/";
+    }
+
+    private static SharedPreferences prefs(Context context) {
+        return context.getApplicationContext().getSharedPreferences(PREFS, Context.MODE_PRIVATE);
+    }
+}
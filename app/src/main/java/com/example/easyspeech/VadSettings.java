@@ -0,0 +1,46 @@
+package com.example.easyspeech;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+/**
+ * Persists the {@link VoiceActivityDetector} tunables edited in SettingsActivity. The dictation
+ * mode and other switches kept next to them are in {@link DictationSettings}.
+ */
+public final class VadSettings {
+
+    private static final String PREFS = "vad_settings";
+    private static final String KEY_ENABLED = "enabled";
+    private static final String KEY_ENERGY_DB = "energy_threshold_db";
+    private static final String KEY_ZCR = "zero_crossing_threshold";
+    private static final String KEY_HANGOVER = "hangover_ms";
+    private static final String KEY_PRE_ROLL = "pre_roll_ms";
+
+    private VadSettings() {
+    }
+
+    public static VoiceActivityDetector.Config load(Context context) {
+        SharedPreferences prefs = prefs(context);
+        VoiceActivityDetector.Config config = new VoiceActivityDetector.Config();
+        config.enabled = prefs.getBoolean(KEY_ENABLED, config.enabled);
+        config.energyThresholdDb = prefs.getFloat(KEY_ENERGY_DB, config.energyThresholdDb);
+        config.zeroCrossingThreshold = prefs.getFloat(KEY_ZCR, config.zeroCrossingThreshold);
+        config.hangoverMillis = prefs.getInt(KEY_HANGOVER, config.hangoverMillis);
+        config.preRollMillis = prefs.getInt(KEY_PRE_ROLL, config.preRollMillis);
+        return config;
+    }
+
+    public static void save(Context context, VoiceActivityDetector.Config config) {
+        prefs(context).edit()
+                .putBoolean(KEY_ENABLED, config.enabled)
+                .putFloat(KEY_ENERGY_DB, config.energyThresholdDb)
+                .putFloat(KEY_ZCR, config.zeroCrossingThreshold)
+                .putInt(KEY_HANGOVER, config.hangoverMillis)
+                .putInt(KEY_PRE_ROLL, config.preRollMillis)
+                .apply();
+    }
+
+    private static SharedPreferences prefs(Context context) {
+        return context.getApplicationContext().getSharedPreferences(PREFS, Context.MODE_PRIVATE);
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.easyspeech;
+
+import org.vosk.Model;
+import org.vosk.Recognizer;
+
+import java.io.IOException;
+
+/**
+ * {@link FileTranscriber.ChunkDecoder} backed by its own Vosk {@link Recognizer} on a shared model.
+ * Can also transcribe a range of the {@link AudioJournal} again, e.g. with a better model.
+ */
+public class VoskChunkDecoder implements FileTranscriber.ChunkDecoder {
+
+    private static final int BLOCK_FRAMES = 4000; // 0.25 s at 16 kHz
+
+    /** The calls made on Vosk's {@link Recognizer}; a fake in unit tests, which have no native library. */
+    interface StreamRecognizer {
+        void reset();
+
+        /** @return true when an utterance ended and {@link #getResult()} has its hypothesis */
+        boolean acceptWaveForm(short[] samples, int length);
+
+        String getResult();
+
+        String getFinalResult();
+
+        void close();
+    }
+
+    private final StreamRecognizer recognizer;
+    private final HypothesisParser parser = new HypothesisParser();
+    private final short[] block = new short[BLOCK_FRAMES];
+    private final StringBuilder text = new StringBuilder();
+
+    public VoskChunkDecoder(Model model, int sampleRate) throws IOException {
+        this(wrap(new Recognizer(model, sampleRate)));
+    }
+
+    VoskChunkDecoder(StreamRecognizer recognizer) {
+        this.recognizer = recognizer;
+    }
+
+    /** Factory for {@link FileTranscriber} sharing {@code model} between all decoders. */
+    public static FileTranscriber.DecoderFactory factory(Model model) {
+        return sampleRate -> new VoskChunkDecoder(model, sampleRate);
+    }
+
+    @Override
+    public String decode(PcmAudio audio, int fromFrame, int toFrame) {
+        recognizer.reset();
+        text.setLength(0);
+        int frame = fromFrame;
+        while (frame < toFrame) {
+            int n = audio.readMono(frame, block, Math.min(BLOCK_FRAMES, toFrame - frame));
+            if (n <= 0) {
+                break;
+            }
+            frame += n;
+            if (recognizer.acceptWaveForm(block, n)) {
+                appendText(recognizer.getResult());
+            }
+        }
+        appendText(recognizer.getFinalResult());
+        return text.toString();
+    }
+
+    /**
+     * Transcribes samples [from, to) of {@code journal}, streamed from its mapped segments. Stops
+     * early if the rest of the range has been evicted meanwhile.
+     */
+    public String decode(AudioJournal journal, long from, long to) {
+        recognizer.reset();
+        text.setLength(0);
+        long position = from;
+        while (position < to) {
+            int n = journal.read(position, block, (int) Math.min(BLOCK_FRAMES, to - position));
+            if (n <= 0) {
+                break;
+            }
+            position += n;
+            if (recognizer.acceptWaveForm(block, n)) {
+                appendText(recognizer.getResult());
+            }
+        }
+        appendText(recognizer.getFinalResult());
+        return text.toString();
+    }
+
+    private void appendText(String hypothesis) {
+        if (parser.parse(hypothesis) && !parser.isEmpty()) {
+            if (text.length() > 0) {
+                text.append(' ');
+            }
+            text.append(parser.text());
+        }
+    }
+
+    @Override
+    public void close() {
+        recognizer.close();
+    }
+
+    private static StreamRecognizer wrap(Recognizer recognizer) {
+        return new StreamRecognizer() {
+            @Override
+            public void reset() {
+                recognizer.reset();
+            }
+
+            @Override
+            public boolean acceptWaveForm(short[] samples, int length) {
+                return recognizer.acceptWaveForm(samples, length);
+            }
+
+            @Override
+            public String getResult() {
+                return recognizer.getResult();
+            }
+
+            @Override
+            public String getFinalResult() {
+                return recognizer.getFinalResult();
+            }
+
+            @Override
+            public void close() {
+                recognizer.close();
+            }
+        };
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.easyspeech;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link AudioJournal} on small segments in a temporary folder.
+ */
+public class AudioJournalTest {
+
+    private static final int SEGMENT_SAMPLES = 1000;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void muLawKeepsSpeechLevelsClose() {
+        for (int sample = -32768; sample <= 32767; sample += 7) {
+            short decoded = AudioJournal.decode(AudioJournal.encode((short) sample));
+            // 8-bit companding: the step grows with the level, about 3% of it at most
+            assertTrue(sample + " -> " + decoded, Math.abs(decoded - sample) <= Math.max(8, Math.abs(sample) / 16));
+        }
+        assertEquals(0, AudioJournal.decode(AudioJournal.encode((short) 0)));
+    }
+
+    @Test
+    public void readsAcrossSegmentsAndAfterReopening() throws Exception {
+        File dir = folder.newFolder();
+        AudioJournal journal = new AudioJournal(dir, 16000, SEGMENT_SAMPLES, 1 << 20);
+        journal.append(ramp(0, 1500), 1500);
+        assertEquals(1500, journal.getPosition());
+        journal.close();
+
+        journal = new AudioJournal(dir, 16000, SEGMENT_SAMPLES, 1 << 20);
+        assertEquals(1500, journal.getPosition());
+        journal.append(ramp(1500, 700), 700);
+
+        short[] out = new short[2500];
+        assertEquals(2200, journal.read(0, out, out.length)); // Stops at the end
+        for (int i = 0; i < 2200; i++) {
+            assertEquals(AudioJournal.decode(AudioJournal.encode(level(i))), out[i]);
+        }
+        assertEquals(0, journal.read(2200, out, 10));
+        journal.close();
+    }
+
+    @Test
+    public void oldestSegmentsAreDroppedOverBudget() throws Exception {
+        File dir = folder.newFolder();
+        long budget = 3 * (AudioJournal.HEADER_BYTES + SEGMENT_SAMPLES);
+        AudioJournal journal = new AudioJournal(dir, 16000, SEGMENT_SAMPLES, budget);
+        for (int i = 0; i < 10; i++) {
+            journal.append(ramp(i * 500, 500), 500);
+        }
+        assertEquals(5000, journal.getPosition());
+        assertEquals(2000, journal.getFirstAvailable());
+        assertEquals(3, dir.listFiles().length);
+        assertTrue(journal.getDiskBytes() <= budget);
+
+        short[] out = new short[100];
+        assertFalse(journal.isAvailable(1900, 2100));
+        assertEquals(0, journal.read(1900, out, 100));
+        assertTrue(journal.isAvailable(2000, 5000));
+        assertEquals(100, journal.read(4900, out, 100));
+        journal.close();
+    }
+
+    private static short[] ramp(int from, int count) {
+        short[] samples = new short[count];
+        for (int i = 0; i < count; i++) {
+            samples[i] = level(from + i);
+        }
+        return samples;
+    }
+
+    private static short level(int i) {
+        return (short) ((i * 37) % 60000 - 30000);
+    }
+}
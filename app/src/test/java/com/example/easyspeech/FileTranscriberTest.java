@@ -0,0 +1,122 @@
+package com.example.easyspeech;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link FileTranscriber}, {@link SilenceSplitter} and {@link PcmAudio} on
+ * synthesized WAV fixtures: tone bursts ("words") separated by silent gaps. The decoder is a
+ * fake that reports the chunk's time range, so ordering and splitting can be checked without
+ * the native Vosk library.
+ */
+public class FileTranscriberTest {
+
+    private static final int RATE = 16000;
+
+    @Test
+    public void parsesWavHeader() throws IOException {
+        PcmAudio audio = PcmAudio.wrap(wav(RATE, 2, new short[]{100, 300, -100, -300}));
+        assertEquals(RATE, audio.getSampleRate());
+        assertEquals(2, audio.getFrameCount());
+        assertEquals(200, audio.getMono(0));
+        assertEquals(-200, audio.getMono(1));
+    }
+
+    @Test
+    public void headerlessDataIsSixteenKilohertzMono() throws IOException {
+        ByteBuffer raw = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+        raw.putShort((short) 1).putShort((short) 2).putShort((short) 3).putShort((short) 4).flip();
+        PcmAudio audio = PcmAudio.wrap(raw);
+        assertEquals(PcmAudio.DEFAULT_SAMPLE_RATE, audio.getSampleRate());
+        assertEquals(4, audio.getFrameCount());
+    }
+
+    @Test
+    public void cutsFallInSilence() throws IOException {
+        // 2 s of tone, 0.2 s gap, repeated: cuts must land in the gaps
+        PcmAudio audio = PcmAudio.wrap(wav(RATE, 1, speechLike(60, 2.0, 0.2)));
+        int[] bounds = new SilenceSplitter(5, 10).split(audio);
+        assertEquals(0, bounds[0]);
+        assertEquals(audio.getFrameCount(), bounds[bounds.length - 1]);
+        for (int i = 1; i < bounds.length - 1; i++) {
+            assertEquals("cut " + bounds[i] + " is not silent", 0, audio.getMono(bounds[i]));
+            assertTrue(bounds[i] - bounds[i - 1] <= 10 * RATE);
+        }
+    }
+
+    @Test
+    public void mergesChunksInOrderAcrossThreads() throws IOException {
+        PcmAudio audio = PcmAudio.wrap(wav(RATE, 1, speechLike(40, 2.0, 0.2)));
+        AtomicInteger decoders = new AtomicInteger();
+        FileTranscriber.DecoderFactory factory = sampleRate -> {
+            decoders.incrementAndGet();
+            return new FileTranscriber.ChunkDecoder() {
+                @Override
+                public String decode(PcmAudio a, int fromFrame, int toFrame) {
+                    // Later chunks finish first to shake out ordering bugs
+                    sleepQuietly(Math.max(0, 50 - fromFrame / RATE));
+                    return fromFrame + "-" + toFrame;
+                }
+
+                @Override
+                public void close() {
+                }
+            };
+        };
+
+        SilenceSplitter splitter = new SilenceSplitter(5, 10);
+        FileTranscriber.Result result = new FileTranscriber(factory, 4, splitter).transcribe(audio);
+
+        int[] bounds = splitter.split(audio);
+        assertEquals(bounds.length - 1, result.getChunkTexts().size());
+        for (int i = 0; i < bounds.length - 1; i++) {
+            assertEquals(bounds[i] + "-" + bounds[i + 1], result.getChunkTexts().get(i));
+        }
+        assertEquals(4, decoders.get());
+        assertEquals(audio.getDurationSeconds(), result.getAudioSeconds(), 1e-9);
+        assertTrue(result.getRealTimeFactor() > 0);
+    }
+
+    // --- Fixtures ---
+
+    /** {@code words} tone bursts of {@code toneSeconds}, each followed by {@code gapSeconds} of silence. */
+    private static short[] speechLike(int words, double toneSeconds, double gapSeconds) {
+        int tone = (int) (toneSeconds * RATE);
+        int gap = (int) (gapSeconds * RATE);
+        short[] samples = new short[words * (tone + gap)];
+        for (int w = 0; w < words; w++) {
+            int base = w * (tone + gap);
+            for (int i = 0; i < tone; i++) {
+                samples[base + i] = (short) (8000 * Math.sin(2 * Math.PI * 220 * i / RATE) + (i % 2 == 0 ? 500 : -500));
+            }
+        }
+        return samples;
+    }
+
+    private static ByteBuffer wav(int rate, int channels, short[] samples) {
+        ByteBuffer buffer = ByteBuffer.allocate(44 + samples.length * 2).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(0x46464952).putInt(36 + samples.length * 2).putInt(0x45564157);
+        buffer.putInt(0x20746d66).putInt(16).putShort((short) 1).putShort((short) channels)
+                .putInt(rate).putInt(rate * channels * 2).putShort((short) (channels * 2)).putShort((short) 16);
+        buffer.putInt(0x61746164).putInt(samples.length * 2);
+        for (short s : samples) {
+            buffer.putShort(s);
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private static void sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.example.easyspeech;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link NoteOutbox} with an in-memory sink that can be told to fail.
+ */
+public class NoteOutboxTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final List<ScheduledExecutorService> executors = new ArrayList<>();
+
+    /** Remembers written notes by document ID, like Firestore's set(). */
+    private static class FakeSink implements NoteOutbox.Sink {
+        final Map<String, Note> written = new LinkedHashMap<>();
+        final List<Integer> batchSizes = new ArrayList<>();
+        final AtomicInteger failuresLeft = new AtomicInteger();
+        volatile CountDownLatch expected = new CountDownLatch(1);
+
+        @Override
+        public synchronized void write(List<Note> notes, NoteOutbox.Callback callback) {
+            batchSizes.add(notes.size());
+            if (failuresLeft.getAndDecrement() > 0) {
+                // A failure after the write landed, the case idempotency keys are for
+                for (Note note : notes) {
+                    written.put(note.getDocumentId(), note);
+                }
+                callback.onFailure(new Exception("offline"));
+                return;
+            }
+            for (Note note : notes) {
+                written.put(note.getDocumentId(), note);
+            }
+            callback.onSuccess();
+            for (int i = 0; i < notes.size(); i++) {
+                expected.countDown();
+            }
+        }
+    }
+
+    @After
+    public void tearDown() {
+        for (ScheduledExecutorService executor : executors) {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void burstOfSavesIsCoalescedIntoOneBatch() throws Exception {
+        FakeSink sink = new FakeSink();
+        sink.expected = new CountDownLatch(10);
+        NoteOutbox outbox = newOutbox(sink, 200);
+        for (int i = 0; i < 10; i++) {
+            outbox.enqueue(note(i));
+        }
+        assertTrue(sink.expected.await(5, TimeUnit.SECONDS));
+        assertEquals(1, sink.batchSizes.size());
+        waitForDepth(outbox, 0);
+        assertEquals(0, new File(folder.getRoot(), "outbox").length()); // Nothing pending: truncated
+    }
+
+    @Test
+    public void retriesWithBackoffWithoutDuplicates() throws Exception {
+        FakeSink sink = new FakeSink();
+        sink.failuresLeft.set(2);
+        sink.expected = new CountDownLatch(3);
+        NoteOutbox outbox = newOutbox(sink, 0);
+        for (int i = 0; i < 3; i++) {
+            outbox.enqueue(note(i));
+        }
+        assertTrue(sink.expected.await(5, TimeUnit.SECONDS));
+        waitForDepth(outbox, 0);
+        assertEquals(3, sink.written.size());
+        assertEquals(2, outbox.getFailureCount());
+        assertTrue(outbox.getMaxSaveToAckMillis() >= 0);
+    }
+
+    @Test
+    public void pendingNotesSurviveARestart() throws Exception {
+        FakeSink offline = new FakeSink();
+        offline.failuresLeft.set(Integer.MAX_VALUE);
+        NoteOutbox outbox = newOutbox(offline, 0);
+        for (int i = 0; i < 3; i++) {
+            outbox.enqueue(note(i));
+        }
+        waitForDepth(outbox, 3);
+        executors.get(0).shutdownNow(); // Process dies
+        executors.get(0).awaitTermination(1, TimeUnit.SECONDS);
+
+        FakeSink online = new FakeSink();
+        online.expected = new CountDownLatch(3);
+        newOutbox(online, 0);
+        assertTrue(online.expected.await(5, TimeUnit.SECONDS));
+        assertEquals(3, online.written.size());
+    }
+
+    @Test
+    public void backoffDoublesUpToTheCap() {
+        NoteOutbox outbox = newOutbox(new FakeSink(), 0);
+        for (int attempt = 1; attempt < 40; attempt++) {
+            long expected = Math.min(1000, 10L << Math.min(attempt - 1, 30));
+            long delay = outbox.backoffMillis(attempt);
+            assertTrue("attempt " + attempt + ": " + delay, delay >= expected / 2 && delay <= expected);
+        }
+    }
+
+    private NoteOutbox newOutbox(NoteOutbox.Sink sink, long coalesceMillis) {
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+        executors.add(executor);
+        return new NoteOutbox(new File(folder.getRoot(), "outbox"), sink, executor, coalesceMillis, 10, 1000);
+    }
+
+    private static void waitForDepth(NoteOutbox outbox, int depth) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (outbox.getDepth() != depth && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(depth, outbox.getDepth());
+    }
+
+    private static Note note(int i) {
+        return new Note("doc" + i, "alice", "note " + i, "", 1_700_000_000L + i, 0);
+    }
+}
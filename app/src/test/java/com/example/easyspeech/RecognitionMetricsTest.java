@@ -0,0 +1,57 @@
+package com.example.easyspeech;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link RecognitionMetrics}.
+ */
+public class RecognitionMetricsTest {
+
+    @Test
+    public void spansAndValuesGoToHistogramsAndTrace() throws Exception {
+        RecognitionMetrics metrics = new RecognitionMetrics();
+        long start = System.nanoTime();
+        metrics.span(RecognitionMetrics.AUDIO_TO_PARTIAL, start, start + 40_000_000); // 40 ms
+        metrics.record(RecognitionMetrics.REAL_TIME_FACTOR, 250); // 0.25x
+
+        assertEquals(40_000, metrics.getHistogram(RecognitionMetrics.AUDIO_TO_PARTIAL).getMax());
+        assertTrue(metrics.describe().contains("audio_to_partial n=1 p50=40.0"));
+        assertTrue(metrics.describe().contains("real_time_factor n=1 p50=0.25"));
+
+        JSONObject json = metrics.toJson();
+        JSONArray events = json.getJSONArray("traceEvents");
+        assertEquals(2, events.length());
+        JSONObject span = events.getJSONObject(0);
+        assertEquals("audio_to_partial", span.getString("name"));
+        assertEquals("X", span.getString("ph"));
+        assertEquals(40_000, span.getLong("dur"));
+        JSONObject counter = events.getJSONObject(1);
+        assertEquals("C", counter.getString("ph"));
+        assertEquals(0.25, counter.getJSONObject("args").getDouble("x"), 1e-9);
+        assertEquals(1, json.getJSONObject("metrics").getJSONObject("audio_to_partial").getLong("count"));
+        assertEquals(0, json.getJSONObject("metrics").getJSONObject("note_save").getLong("count"));
+    }
+
+    @Test
+    public void traceKeepsTheMostRecentEvents() throws Exception {
+        RecognitionMetrics metrics = new RecognitionMetrics();
+        int total = RecognitionMetrics.TRACE_CAPACITY + 10;
+        for (int i = 0; i < total; i++) {
+            metrics.record(RecognitionMetrics.ALLOCATION_RATE, i);
+        }
+        JSONArray events = metrics.toJson().getJSONArray("traceEvents");
+        assertEquals(RecognitionMetrics.TRACE_CAPACITY, events.length());
+        assertEquals(10, events.getJSONObject(0).getJSONObject("args").getLong("KB/s"));
+        assertEquals(total - 1, events.getJSONObject(events.length() - 1).getJSONObject("args").getLong("KB/s"));
+        // Histograms keep counting past the trace
+        assertEquals(total, metrics.getHistogram(RecognitionMetrics.ALLOCATION_RATE).getCount());
+
+        metrics.reset();
+        assertEquals(0, metrics.toJson().getJSONArray("traceEvents").length());
+        assertEquals("No recognition metrics yet.", metrics.describe());
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.easyspeech;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link TranslationMemory}.
+ */
+public class TranslationMemoryTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void exactHitIgnoresCaseAndPunctuation() throws Exception {
+        TranslationMemory memory = new TranslationMemory(folder.newFile("tm"), 16, 1 << 20);
+        memory.put("Good morning, everyone!", "fr", "Bonjour à tous !");
+        assertEquals("Bonjour à tous !", memory.lookup("good morning everyone", "fr"));
+        assertNull(memory.lookup("good morning everyone", "de")); // Other target language
+        assertEquals(1, memory.getExactHits());
+        assertEquals(1, memory.getMisses());
+    }
+
+    @Test
+    public void fuzzyHitForNearIdenticalUtterance() {
+        TranslationMemory memory = new TranslationMemory(new File(folder.getRoot(), "tm"), 16, 1 << 20);
+        memory.put("let's get started with the meeting", "es", "empecemos la reunión");
+        assertEquals("empecemos la reunión", memory.lookup("lets get started with the meeting", "es"));
+        assertNull(memory.lookup("the weather is nice today", "es"));
+        assertEquals(1, memory.getFuzzyHits());
+    }
+
+    @Test
+    public void survivesRestartFromDisk() throws Exception {
+        File file = new File(folder.getRoot(), "tm");
+        TranslationMemory memory = new TranslationMemory(file, 16, 1 << 20);
+        memory.put("thank you", "de", "danke");
+        memory.put("see you tomorrow", "de", "bis morgen");
+        memory.flush();
+        assertTrue(memory.getBytesUsed() > 0);
+
+        TranslationMemory reopened = new TranslationMemory(file, 16, 1 << 20);
+        assertEquals(2, reopened.size());
+        assertEquals("bis morgen", reopened.lookup("See you tomorrow.", "de"));
+    }
+
+    @Test
+    public void tornLastRecordIsDroppedNotTheWholeFile() throws Exception {
+        File file = new File(folder.getRoot(), "tm");
+        TranslationMemory memory = new TranslationMemory(file, 16, 1 << 20);
+        memory.put("thank you", "de", "danke");
+        memory.put("see you tomorrow", "de", "bis morgen");
+        memory.flush();
+        long whole = file.length();
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(whole - 3); // Crash in the middle of the second append
+        }
+
+        TranslationMemory reopened = new TranslationMemory(file, 16, 1 << 20);
+        assertEquals(1, reopened.size());
+        assertEquals("danke", reopened.lookup("thank you", "de"));
+        assertEquals(reopened.getBytesUsed(), file.length());
+        reopened.put("good night", "de", "gute Nacht");
+        reopened.flush();
+        assertEquals("gute Nacht", new TranslationMemory(file, 16, 1 << 20).lookup("good night", "de"));
+    }
+
+    @Test
+    public void tornFirstRecordLeavesAHeaderThatLaterAppendsFollow() throws Exception {
+        File file = new File(folder.getRoot(), "tm");
+        TranslationMemory memory = new TranslationMemory(file, 16, 1 << 20);
+        memory.put("thank you", "de", "danke");
+        memory.flush();
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(raf.length() - 3); // Crash in the middle of the only append
+        }
+
+        TranslationMemory reopened = new TranslationMemory(file, 16, 1 << 20);
+        assertEquals(0, reopened.size());
+        assertEquals(4, file.length()); // Just the header
+        reopened.put("good night", "de", "gute Nacht");
+        reopened.flush();
+
+        TranslationMemory again = new TranslationMemory(file, 16, 1 << 20);
+        assertEquals(1, again.size());
+        assertEquals("gute Nacht", again.lookup("good night", "de"));
+    }
+
+    @Test
+    public void compactionKeepsRecentlyUsedWithinBudget() throws Exception {
+        File file = new File(folder.getRoot(), "tm");
+        TranslationMemory memory = new TranslationMemory(file, 4, 2000);
+        memory.put("phrase number zero", "fr", "phrase zero");
+        memory.flush();
+        for (int i = 1; i < 100; i++) {
+            memory.lookup("phrase number zero", "fr"); // Keep it hot
+            memory.put("phrase number " + i + " with some extra words", "fr", "traduction " + i);
+            memory.flush();
+        }
+        assertTrue(memory.getBytesUsed() <= 2000);
+        assertTrue(memory.getEvictions() > 0);
+        assertEquals("phrase zero", new TranslationMemory(file, 4, 2000).lookup("phrase number zero", "fr"));
+    }
+}
@@ -0,0 +1,199 @@
+package com.example.easyspeech;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link TranslationPipeline} against a {@link MockWebServer} that
+ * "translates" by upper-casing, with a configurable delay per request.
+ */
+public class TranslationPipelineTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private MockWebServer server;
+    private TranslationApi api;
+    private ExecutorService callbackThread; // Stands in for the main thread
+    private final List<String> delivered = new ArrayList<>();
+    private volatile long firstRequestDelayMillis;
+    private final List<String> requestBodies = new CopyOnWriteArrayList<>();
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                String body = request.getBody().readUtf8();
+                requestBodies.add(body);
+                // {"q":["a","b"],...} -> {"translatedText":["A","B"]}
+                String texts = body.substring(body.indexOf('[') , body.indexOf(']') + 1);
+                MockResponse response = new MockResponse()
+                        .setHeader("Content-Type", "application/json")
+                        .setBody("{\"translatedText\":" + texts.toUpperCase() + "}");
+                if (request.getSequenceNumber() == 0 && firstRequestDelayMillis > 0) {
+                    response.setBodyDelay(firstRequestDelayMillis, TimeUnit.MILLISECONDS);
+                }
+                return response;
+            }
+        });
+        server.start();
+        api = TranslationClient.create(server.url("/").toString(), new OkHttpClient());
+        callbackThread = Executors.newSingleThreadExecutor();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        callbackThread.shutdownNow();
+        server.shutdown();
+    }
+
+    @Test
+    public void batchesSegmentsQueuedWhileRequestsAreInFlight() throws Exception {
+        firstRequestDelayMillis = 200;
+        CountDownLatch done = new CountDownLatch(20);
+        TranslationPipeline pipeline = newPipeline(done);
+
+        callbackThread.submit(() -> {
+            for (int i = 0; i < 20; i++) {
+                pipeline.submit("segment " + i);
+            }
+        }).get();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            expected.add("SEGMENT " + i);
+        }
+        assertEquals(expected, delivered);
+        // 2 single-segment requests go out at once, the rest are batched by MAX_BATCH
+        int requests = callbackThread.submit(pipeline::getRequestCount).get();
+        assertTrue("requests: " + requests, requests < 20);
+        // Segment 0 rode the delayed request, so nothing could be delivered before it
+        long firstMillis = callbackThread.submit(pipeline::getFirstTranslationMillis).get();
+        assertTrue("first translation after " + firstMillis + " ms",
+                firstMillis >= firstRequestDelayMillis && firstMillis < 5000);
+    }
+
+    @Test
+    public void deliversInOrderWhenALaterBatchFinishesFirst() throws Exception {
+        firstRequestDelayMillis = 300; // Segment 0 is slow, segment 1 is not
+        CountDownLatch done = new CountDownLatch(2);
+        TranslationPipeline pipeline = newPipeline(done);
+        callbackThread.submit(() -> {
+            pipeline.submit("first");
+            pipeline.submit("second");
+        }).get();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals("FIRST", delivered.get(0));
+        assertEquals("SECOND", delivered.get(1));
+    }
+
+    @Test
+    public void failedBatchIsReportedInOrder() throws Exception {
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                return new MockResponse().setResponseCode(500);
+            }
+        });
+        CountDownLatch done = new CountDownLatch(1);
+        TranslationPipeline pipeline = newPipeline(done);
+        callbackThread.submit(() -> pipeline.submit("hello")).get();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals("failed 0", delivered.get(0));
+    }
+
+    @Test
+    public void sendsTheApiKeyOnlyWhenOneIsSet() throws Exception {
+        CountDownLatch keyedDone = new CountDownLatch(1);
+        TranslationPipeline keyed = newPipeline(keyedDone, "secret", null);
+        callbackThread.submit(() -> keyed.submit("hello")).get();
+        assertTrue(keyedDone.await(5, TimeUnit.SECONDS));
+
+        delivered.clear();
+        CountDownLatch openDone = new CountDownLatch(1);
+        TranslationPipeline open = newPipeline(openDone, null, null);
+        callbackThread.submit(() -> open.submit("hello")).get();
+        assertTrue(openDone.await(5, TimeUnit.SECONDS));
+
+        assertEquals(2, requestBodies.size());
+        assertTrue(requestBodies.get(0), requestBodies.get(0).contains("\"api_key\":\"secret\""));
+        assertFalse(requestBodies.get(1), requestBodies.get(1).contains("api_key"));
+    }
+
+    @Test
+    public void rememberedSegmentsSkipTheNetwork() throws Exception {
+        TranslationMemory memory = new TranslationMemory(new File(folder.getRoot(), "tm"), 16, 1 << 20);
+        CountDownLatch first = new CountDownLatch(2);
+        TranslationPipeline pipeline = newPipeline(first, memory);
+        callbackThread.submit(() -> {
+            pipeline.submit("hello there");
+            pipeline.submit("good night");
+        }).get();
+        assertTrue(first.await(5, TimeUnit.SECONDS));
+        int requestsBefore = server.getRequestCount();
+
+        delivered.clear();
+        CountDownLatch second = new CountDownLatch(3);
+        TranslationPipeline again = newPipeline(second, memory);
+        callbackThread.submit(() -> {
+            again.submit("Hello there!");
+            again.submit("something new");
+            again.submit("good night");
+        }).get();
+        assertTrue(second.await(5, TimeUnit.SECONDS));
+        // Remembered translations keep their place around the one that needed a request
+        assertEquals("HELLO THERE", delivered.get(0));
+        assertEquals("SOMETHING NEW", delivered.get(1));
+        assertEquals("GOOD NIGHT", delivered.get(2));
+        assertEquals(requestsBefore + 1, server.getRequestCount());
+        assertEquals(2, memory.getExactHits());
+    }
+
+    private TranslationPipeline newPipeline(CountDownLatch done) {
+        return newPipeline(done, null);
+    }
+
+    private TranslationPipeline newPipeline(CountDownLatch done, TranslationMemory memory) {
+        return newPipeline(done, null, memory);
+    }
+
+    private TranslationPipeline newPipeline(CountDownLatch done, String apiKey, TranslationMemory memory) {
+        return new TranslationPipeline(api, apiKey, callbackThread, new TranslationPipeline.Listener() {
+            @Override
+            public void onTranslated(int sequence, String translation) {
+                assertEquals(delivered.size(), sequence);
+                delivered.add(translation);
+                done.countDown();
+            }
+
+            @Override
+            public void onTranslationFailed(int sequence, Exception error) {
+                delivered.add("failed " + sequence);
+                done.countDown();
+            }
+        }, "en", "fr", memory);
+    }
+}
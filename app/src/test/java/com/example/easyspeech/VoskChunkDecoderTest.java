@@ -0,0 +1,105 @@
+package com.example.easyspeech;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for re-transcribing {@link AudioJournal} ranges with {@link VoskChunkDecoder}.
+ * The recognizer is a fake that keeps every sample it is fed and reports each block's length, so
+ * the streaming can be checked without the native Vosk library.
+ */
+public class VoskChunkDecoderTest {
+
+    private static final int SEGMENT_SAMPLES = 1000;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void decodesAJournalRangeAcrossSegments() throws Exception {
+        AudioJournal journal = new AudioJournal(folder.newFolder(), 16000, SEGMENT_SAMPLES, 1 << 20);
+        short[] pcm = new short[10000];
+        for (int i = 0; i < pcm.length; i++) {
+            pcm[i] = (short) ((i % 500) * 60 - 15000);
+        }
+        journal.append(pcm, pcm.length);
+
+        FakeRecognizer recognizer = new FakeRecognizer();
+        VoskChunkDecoder decoder = new VoskChunkDecoder(recognizer);
+        assertEquals("4000 4000 600 end", decoder.decode(journal, 700, 9300));
+
+        short[] expected = new short[8600];
+        assertEquals(expected.length, journal.read(700, expected, expected.length));
+        assertArrayEquals(expected, recognizer.fed());
+
+        // Reused for the next note: state from the previous range does not leak in
+        assertEquals("100 end", decoder.decode(journal, 9900, 10000));
+        assertEquals(2, recognizer.resets);
+        decoder.close();
+        assertTrue(recognizer.closed);
+        journal.close();
+    }
+
+    @Test
+    public void stopsAtTheEndOfWhatIsStillOnDisk() throws Exception {
+        AudioJournal journal = new AudioJournal(folder.newFolder(), 16000, SEGMENT_SAMPLES, 1 << 20);
+        journal.append(new short[2500], 2500);
+
+        FakeRecognizer recognizer = new FakeRecognizer();
+        assertEquals("2500 end", new VoskChunkDecoder(recognizer).decode(journal, 0, 6000));
+        journal.close();
+    }
+
+    private static final class FakeRecognizer implements VoskChunkDecoder.StreamRecognizer {
+        private final ByteArrayOutputStream samples = new ByteArrayOutputStream();
+        private int lastLength;
+        int resets;
+        boolean closed;
+
+        @Override
+        public void reset() {
+            samples.reset();
+            resets++;
+        }
+
+        @Override
+        public boolean acceptWaveForm(short[] block, int length) {
+            for (int i = 0; i < length; i++) {
+                samples.write(block[i] >> 8);
+                samples.write(block[i]);
+            }
+            lastLength = length;
+            return true; // Every block ends an "utterance"
+        }
+
+        @Override
+        public String getResult() {
+            return "{\"text\" : \"" + lastLength + "\"}";
+        }
+
+        @Override
+        public String getFinalResult() {
+            return "{\"text\" : \"end\"}";
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+
+        short[] fed() {
+            byte[] bytes = samples.toByteArray();
+            short[] out = new short[bytes.length / 2];
+            for (int i = 0; i < out.length; i++) {
+                out[i] = (short) ((bytes[2 * i] << 8) | (bytes[2 * i + 1] & 0xff));
+            }
+            return out;
+        }
+    }
+}
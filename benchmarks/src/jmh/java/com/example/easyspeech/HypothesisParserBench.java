@@ -0,0 +1,64 @@
+package com.example.easyspeech;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing one Vosk hypothesis, as done for every partial (many per second) and every result,
+ * with {@link HypothesisParser} and with the {@code org.json.JSONObject} path it replaced.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HypothesisParserBench {
+
+    static final String PARTIAL = "{\n  \"partial\" : \"the quick brown fox jumps over the lazy\"\n}";
+    static final String RESULT = "{\n  \"result\" : [{\n      \"conf\" : 1.000000,\n      \"end\" : 0.510000,\n"
+            + "      \"start\" : 0.210000,\n      \"word\" : \"hello\"\n    }, {\n"
+            + "      \"conf\" : 0.873251,\n      \"end\" : 0.990000,\n"
+            + "      \"start\" : 0.510000,\n      \"word\" : \"world\"\n    }],\n"
+            + "  \"text\" : \"hello world\"\n}";
+
+    @Param({"partial", "result"})
+    public String kind;
+
+    private final HypothesisParser parser = new HypothesisParser();
+    private String hypothesis;
+
+    @Setup
+    public void setUp() {
+        hypothesis = "partial".equals(kind) ? PARTIAL : RESULT;
+    }
+
+    @Benchmark
+    public int parse() {
+        parser.parse(hypothesis);
+        return parser.getWordCount() + parser.text().length();
+    }
+
+    // What MainActivity.onResult did before HypothesisParser: a full tree per hypothesis
+    @Benchmark
+    public int parseWithJsonObject() throws JSONException {
+        JSONObject json = new JSONObject(hypothesis);
+        JSONArray words = json.optJSONArray("result");
+        String text = json.optString(json.has("partial") ? "partial" : "text");
+        return (words != null ? words.length() : 0) + text.length();
+    }
+}
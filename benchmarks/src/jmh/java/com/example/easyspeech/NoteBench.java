@@ -0,0 +1,62 @@
+package com.example.easyspeech;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mapping a stored or synced note to a {@link Note} (which formats its display date), ordering
+ * a page of notes, and building a search query.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NoteBench {
+
+    private static final int PAGE = 50;
+
+    private final List<Note> page = new ArrayList<>();
+    private long seconds = 1_700_000_000L;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        for (int i = 0; i < PAGE; i++) {
+            page.add(new Note("doc" + i, "user", "transcribed " + i, "", 1_700_000_000L + random.nextInt(1_000_000), 0));
+        }
+    }
+
+    @Benchmark
+    public Note create() {
+        seconds++; // A new date to format every time
+        return new Note("documentId", "userId", "the meeting is moved to thursday", "", seconds, 500_000_000);
+    }
+
+    @Benchmark
+    public List<Note> sortPage() {
+        List<Note> sorted = new ArrayList<>(page);
+        Collections.sort(sorted, Note.NEWEST_FIRST);
+        return sorted;
+    }
+
+    @Benchmark
+    public String searchQuery() {
+        return FtsQuery.toMatchExpression("\"budget review\" Thursday meet");
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.easyspeech;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Assembling a dictation of {@link #SEGMENTS} utterances into a {@link Transcript}, kept on the
+ * heap or spooled to a session log, and joining it for a save.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TranscriptBench {
+
+    static final int SEGMENTS = 200;
+    private static final int WINDOW = 50;
+
+    private final String[] texts = new String[SEGMENTS];
+    private File log;
+
+    @Setup
+    public void setUp() throws IOException {
+        for (int i = 0; i < SEGMENTS; i++) {
+            texts[i] = "segment " + i + " the meeting is moved to thursday afternoon because of the budget review";
+        }
+        log = File.createTempFile("transcript-bench", ".log");
+    }
+
+    @TearDown
+    public void tearDown() {
+        log.delete();
+    }
+
+    /** Appends and joins after every segment, as the translation and save paths read it. */
+    @Benchmark
+    public int assembleOnHeap() {
+        Transcript transcript = new Transcript();
+        int length = 0;
+        for (String text : texts) {
+            transcript.append(text);
+            length += transcript.getText().length();
+        }
+        return length;
+    }
+
+    /** Appends with a window of {@link #WINDOW}, then reads back the oldest segments from the log. */
+    @Benchmark
+    public int assembleSpooled() {
+        Transcript transcript = new Transcript(log, WINDOW);
+        for (String text : texts) {
+            transcript.append(text);
+        }
+        int length = 0;
+        for (int i = 0; i < SEGMENTS - WINDOW; i++) {
+            length += transcript.get(i).length();
+        }
+        transcript.clear();
+        return length;
+    }
+}
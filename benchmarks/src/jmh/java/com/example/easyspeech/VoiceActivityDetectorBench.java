@@ -0,0 +1,74 @@
+package com.example.easyspeech;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-frame cost of the capture path ahead of the recognizer: VAD classification of a 20 ms
+ * frame and its trip through the {@link AudioFrameRing}, plus recording a latency sample.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VoiceActivityDetectorBench {
+
+    private static final int SAMPLE_RATE = 16000;
+    private static final int FRAME_SAMPLES = SAMPLE_RATE / 50;
+    private static final int FRAMES = 100; // 2 s: speech and silence alternating every 0.5 s
+
+    private final short[][] frames = new short[FRAMES][FRAME_SAMPLES];
+    private VoiceActivityDetector vad;
+    private AudioFrameRing ring;
+    private final LatencyHistogram histogram = new LatencyHistogram();
+    private int next;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        for (int f = 0; f < FRAMES; f++) {
+            boolean speech = (f / 25) % 2 == 0;
+            for (int i = 0; i < FRAME_SAMPLES; i++) {
+                double tone = speech ? 8000 * Math.sin(2 * Math.PI * 220 * (f * FRAME_SAMPLES + i) / SAMPLE_RATE) : 0;
+                frames[f][i] = (short) (tone + random.nextGaussian() * 30);
+            }
+        }
+        vad = new VoiceActivityDetector(new VoiceActivityDetector.Config(), SAMPLE_RATE, FRAME_SAMPLES);
+        ring = new AudioFrameRing(256, FRAME_SAMPLES);
+    }
+
+    @Benchmark
+    public int classify() {
+        short[] frame = frames[next++ % FRAMES];
+        return vad.process(frame, frame.length);
+    }
+
+    @Benchmark
+    public int ringRoundTrip() {
+        short[] source = frames[next++ % FRAMES];
+        System.arraycopy(source, 0, ring.writeSlot(), 0, FRAME_SAMPLES);
+        ring.commit(FRAME_SAMPLES, next);
+        short[] frame = ring.readSlot();
+        int first = frame[0];
+        ring.release();
+        return first;
+    }
+
+    @Benchmark
+    public void recordLatency() {
+        histogram.record(next++ & 0xFFFF);
+    }
+}
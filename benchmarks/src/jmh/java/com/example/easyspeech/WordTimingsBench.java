@@ -0,0 +1,56 @@
+package com.example.easyspeech;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Turning a parsed result into {@link WordTimings} columns, and their round trip through the
+ * transcript session log.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WordTimingsBench {
+
+    private final HypothesisParser parser = new HypothesisParser();
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(256);
+    private String text;
+    private WordTimings words;
+
+    @Setup
+    public void setUp() {
+        parser.parse(HypothesisParserBench.RESULT);
+        text = parser.getText();
+        words = WordTimings.from(parser, text, 16000, 0.0);
+    }
+
+    @Benchmark
+    public WordTimings fromParser() {
+        return WordTimings.from(parser, text, 16000, 0.0);
+    }
+
+    @Benchmark
+    public WordTimings writeAndRead() throws IOException {
+        buffer.reset();
+        words.writeTo(new DataOutputStream(buffer));
+        return WordTimings.readFrom(new DataInputStream(new ByteArrayInputStream(buffer.toByteArray())));
+    }
+}
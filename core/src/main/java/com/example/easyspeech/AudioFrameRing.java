@@ -0,0 +1,145 @@
+package com.example.easyspeech;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free single-producer/single-consumer ring of preallocated {@code short[]} audio frames.
+ *
+ * The producer (the AudioRecord thread) reads straight into {@link #writeSlot()} and publishes
+ * it with {@link #commit(int)}; the consumer (the decoder thread) takes frames with
+ * {@link #readSlot()} / {@link #readLength()} and hands them back with {@link #release()}.
+ * No frame is ever allocated or copied after construction. Each frame can carry the time it was
+ * captured, for latency measurements downstream.
+ *
+ * Overruns (producer found the ring full and had to drop a frame), underruns (consumer found it
+ * empty) and the queue depth are counted so a slow decoder shows up in the stats.
+ */
+public final class AudioFrameRing {
+
+    private final short[][] frames;
+    private final int[] lengths;
+    private final long[] times;
+    private final int mask;
+
+    // head: next slot to read, tail: next slot to write. Each is written by one thread only;
+    // lazySet publishes the slot contents before the new index becomes visible.
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+
+    private final short[] overrunScratch;
+    private boolean writingScratch; // Producer only
+
+    // Stats; each written by one side only
+    private volatile long overruns;
+    private volatile long underruns;
+    private volatile int maxDepth;
+
+    /**
+     * @param capacity number of frames, rounded up to a power of two
+     */
+    public AudioFrameRing(int capacity, int frameSamples) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        frames = new short[size][frameSamples];
+        lengths = new int[size];
+        times = new long[size];
+        mask = size - 1;
+        overrunScratch = new short[frameSamples];
+    }
+
+    public int capacity() {
+        return frames.length;
+    }
+
+    public int frameSamples() {
+        return overrunScratch.length;
+    }
+
+    // --- Producer side ---
+
+    /**
+     * Buffer to fill with the next frame. When the ring is full this is a scratch buffer whose
+     * contents {@link #commit} drops, so the producer can keep draining the hardware.
+     */
+    public short[] writeSlot() {
+        long t = tail.get();
+        writingScratch = t - head.get() >= frames.length;
+        return writingScratch ? overrunScratch : frames[(int) t & mask];
+    }
+
+    /** Publishes the frame written into {@link #writeSlot()}; returns false if it was dropped. */
+    public boolean commit(int length) {
+        return commit(length, 0);
+    }
+
+    /** Like {@link #commit(int)}, tagging the frame with its capture time (any clock, e.g. nanoTime). */
+    public boolean commit(int length, long timeNanos) {
+        if (writingScratch) {
+            // Decided in writeSlot(); the consumer may have freed a slot since, but not this one
+            overruns++;
+            return false;
+        }
+        long t = tail.get();
+        long depth = t - head.get();
+        lengths[(int) t & mask] = length;
+        times[(int) t & mask] = timeNanos;
+        tail.lazySet(t + 1);
+        if (depth + 1 > maxDepth) {
+            maxDepth = (int) (depth + 1);
+        }
+        return true;
+    }
+
+    // --- Consumer side ---
+
+    /** Oldest published frame, or null if the ring is empty (counted as an underrun). */
+    public short[] readSlot() {
+        long h = head.get();
+        if (h == tail.get()) {
+            underruns++;
+            return null;
+        }
+        return frames[(int) h & mask];
+    }
+
+    /** Valid samples in the frame returned by the last {@link #readSlot()}. */
+    public int readLength() {
+        return lengths[(int) head.get() & mask];
+    }
+
+    /** Capture time the frame returned by the last {@link #readSlot()} was committed with. */
+    public long readTimeNanos() {
+        return times[(int) head.get() & mask];
+    }
+
+    /** Returns the frame from {@link #readSlot()} to the producer. */
+    public void release() {
+        head.lazySet(head.get() + 1);
+    }
+
+    // --- Stats ---
+
+    public int depth() {
+        return (int) (tail.get() - head.get());
+    }
+
+    public long getOverruns() {
+        return overruns;
+    }
+
+    public long getUnderruns() {
+        return underruns;
+    }
+
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    /** Empties the ring and the stats; only call while neither side is running. */
+    public void clear() {
+        head.set(0);
+        tail.set(0);
+        overruns = 0;
+        underruns = 0;
+        maxDepth = 0;
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.easyspeech;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * The phrases of voice command mode and the commands they stand for.
+ *
+ * {@link #toJson()} is the grammar for a Vosk {@code Recognizer}: restricted to these phrases
+ * (plus {@code [unk]} for anything else) it decodes far less than the open-vocabulary model and
+ * can't turn a command into a similar-sounding sentence. Translation targets come from the app's
+ * language names, so "translate to french" follows the {@code translation_languages} array.
+ */
+public final class CommandGrammar {
+
+    /** Starts dictation (MainActivity's record button). */
+    public static final int START_DICTATION = 0;
+    public static final int SAVE_NOTE = 1;
+    /** Translates the transcript, into {@link Command#getLanguageIndex()} if it is not -1. */
+    public static final int TRANSLATE = 2;
+    /** Stops dictation; command mode stays on. */
+    public static final int STOP = 3;
+
+    /** What Vosk returns for audio outside the grammar. */
+    static final String UNKNOWN = "[unk]";
+
+    public static final class Command {
+        private final int action;
+        private final int languageIndex;
+
+        Command(int action, int languageIndex) {
+            this.action = action;
+            this.languageIndex = languageIndex;
+        }
+
+        public int getAction() {
+            return action;
+        }
+
+        /** Index into the language names the grammar was built from, or -1. */
+        public int getLanguageIndex() {
+            return languageIndex;
+        }
+    }
+
+    private final Map<String, Command> commands = new HashMap<>();
+    private final List<String> phrases = new ArrayList<>();
+
+    /**
+     * @param languageNames translation targets, e.g. the {@code translation_languages} array
+     */
+    public CommandGrammar(String[] languageNames) {
+        add("start recording", new Command(START_DICTATION, -1));
+        add("start dictation", new Command(START_DICTATION, -1));
+        add("save note", new Command(SAVE_NOTE, -1));
+        add("translate", new Command(TRANSLATE, -1));
+        for (int i = 0; i < languageNames.length; i++) {
+            add("translate to " + normalize(languageNames[i]), new Command(TRANSLATE, i));
+        }
+        add("stop", new Command(STOP, -1));
+    }
+
+    /** The command phrases, lower case. */
+    public List<String> getPhrases() {
+        return Collections.unmodifiableList(phrases);
+    }
+
+    /** Vosk grammar: a JSON array of the phrases followed by {@code "[unk]"}. */
+    public String toJson() {
+        StringBuilder sb = new StringBuilder("[");
+        for (String phrase : phrases) {
+            appendQuoted(sb, phrase).append(", ");
+        }
+        return appendQuoted(sb, UNKNOWN).append(']').toString();
+    }
+
+    /** The command spoken in {@code text} (a recognizer result), or null if it is not exactly one. */
+    public Command match(CharSequence text) {
+        return commands.get(normalize(text));
+    }
+
+    private void add(String phrase, Command command) {
+        if (commands.put(phrase, command) == null) {
+            phrases.add(phrase);
+        }
+    }
+
+    // Lower case, single spaces, no leading or trailing blanks
+    static String normalize(CharSequence text) {
+        StringBuilder sb = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isWhitespace(c)) {
+                if (sb.length() > 0 && sb.charAt(sb.length() - 1) != ' ') {
+                    sb.append(' ');
+                }
+            } else {
+                sb.append(c);
+            }
+        }
+        int end = sb.length();
+        if (end > 0 && sb.charAt(end - 1) == ' ') {
+            sb.setLength(end - 1);
+        }
+        return sb.toString().toLowerCase(Locale.ROOT);
+    }
+
+    private static StringBuilder appendQuoted(StringBuilder sb, String value) {
+        sb.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                sb.append('\\');
+            }
+            sb.append(c);
+        }
+        return sb.append('"');
+    }
+}
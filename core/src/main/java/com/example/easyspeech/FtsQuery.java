@@ -0,0 +1,95 @@
+package com.example.easyspeech;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Query building and ranking for the SQLite FTS4 notes index in {@code NotesStore}.
+ *
+ * Search box text becomes an FTS {@code MATCH} expression: bare words are prefix terms
+ * ({@code transl} finds "translation") and double-quoted parts are phrases. Matches are ranked
+ * with BM25 computed from FTS4's {@code matchinfo(..., 'pcnalx')}, since Android's SQLite has
+ * no built-in ranking function.
+ */
+final class FtsQuery {
+
+    static final String MATCHINFO_FORMAT = "pcnalx";
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    private FtsQuery() {
+    }
+
+    /** MATCH expression for {@code text}, or null if it has nothing to search for. */
+    static String toMatchExpression(String text) {
+        StringBuilder match = new StringBuilder();
+        boolean inPhrase = false;
+        StringBuilder phrase = new StringBuilder();
+        StringBuilder word = new StringBuilder();
+        for (int i = 0; i <= text.length(); i++) {
+            char c = i < text.length() ? text.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                word.append(Character.toLowerCase(c));
+                continue;
+            }
+            // A word ended (or there was none)
+            if (word.length() > 0) {
+                if (inPhrase) {
+                    appendSeparated(phrase, word);
+                } else {
+                    appendSeparated(match, word).append('*');
+                }
+                word.setLength(0);
+            }
+            if (c == '"' || (i == text.length() && inPhrase)) {
+                if (inPhrase && phrase.length() > 0) {
+                    appendSeparated(match, "\"" + phrase + "\"");
+                    phrase.setLength(0);
+                }
+                inPhrase = !inPhrase;
+            }
+        }
+        return match.length() > 0 ? match.toString() : null;
+    }
+
+    private static StringBuilder appendSeparated(StringBuilder sb, CharSequence part) {
+        if (sb.length() > 0) {
+            sb.append(' ');
+        }
+        return sb.append(part);
+    }
+
+    /**
+     * BM25 of one row from its {@code matchinfo(..., 'pcnalx')} blob.
+     *
+     * @param columnWeights weight of each indexed column, in table order
+     */
+    static double bm25(byte[] matchinfo, double[] columnWeights) {
+        ByteBuffer buffer = ByteBuffer.wrap(matchinfo).order(ByteOrder.nativeOrder());
+        int phrases = buffer.getInt(0);
+        int columns = buffer.getInt(4);
+        int rows = buffer.getInt(8);
+        int avgBase = 12;                    // a: average tokens per column
+        int lengthBase = avgBase + 4 * columns; // l: tokens in this row, per column
+        int hitsBase = lengthBase + 4 * columns; // x: 3 ints per phrase and column
+
+        double score = 0;
+        for (int p = 0; p < phrases; p++) {
+            for (int c = 0; c < columns; c++) {
+                int x = hitsBase + 12 * (p * columns + c);
+                int hits = buffer.getInt(x);
+                if (hits == 0) {
+                    continue;
+                }
+                int docsWithHits = buffer.getInt(x + 8);
+                double idf = Math.log(1 + (rows - docsWithHits + 0.5) / (docsWithHits + 0.5));
+                double length = buffer.getInt(lengthBase + 4 * c);
+                double average = Math.max(1, buffer.getInt(avgBase + 4 * c));
+                double tf = hits * (K1 + 1) / (hits + K1 * (1 - B + B * length / average));
+                score += columnWeights[c] * idf * tf;
+            }
+        }
+        return score;
+    }
+}
@@ -0,0 +1,418 @@
+package com.example.easyspeech;
+
+import java.util.Arrays;
+
+/**
+ * Streaming decoder for the JSON hypotheses delivered by the Vosk {@code RecognitionListener}
+ * callbacks, e.g. {@code {"text" : "hello world"}}, {@code {"partial" : "hello"}} or a result
+ * with a {@code "result"} word array when word output is enabled.
+ *
+ * Unlike {@code org.json.JSONObject}, the parser keeps its buffers between calls, so decoding a
+ * hypothesis on the UI thread does not allocate once the buffers have grown to the working size.
+ * An instance is not thread-safe; keep one per callback thread.
+ */
+public final class HypothesisParser {
+
+    private static final int INITIAL_WORDS = 32;
+
+    private final StringBuilder text = new StringBuilder(256);
+    private final StringBuilder wordChars = new StringBuilder(256);
+
+    // Per-word columns, filled from the "result" / "partial_result" arrays
+    private int[] wordEnds = new int[INITIAL_WORDS]; // end offset of each word in wordChars
+    private float[] starts = new float[INITIAL_WORDS];
+    private float[] ends = new float[INITIAL_WORDS];
+    private float[] confidences = new float[INITIAL_WORDS];
+    private int wordCount;
+
+    private boolean partial;
+
+    // Scanner state, only valid during parse()
+    private String input;
+    private int pos;
+
+    /**
+     * Decodes {@code json}, replacing the state of any previous call.
+     *
+     * @return false if the input is not a JSON object; the parser is then left empty.
+     */
+    public boolean parse(String json) {
+        reset();
+        if (json == null) {
+            return false;
+        }
+        input = json;
+        pos = 0;
+        boolean ok;
+        try {
+            ok = parseObject();
+        } catch (IndexOutOfBoundsException e) {
+            ok = false; // Truncated input
+        }
+        input = null;
+        if (!ok) {
+            reset();
+        }
+        return ok;
+    }
+
+    public void reset() {
+        text.setLength(0);
+        wordChars.setLength(0);
+        wordCount = 0;
+        partial = false;
+    }
+
+    /** True when the hypothesis carried no recognized text, e.g. {@code {"text" : ""}}. */
+    public boolean isEmpty() {
+        return text.length() == 0;
+    }
+
+    /** True when the last hypothesis was a partial one ({@code "partial"} key). */
+    public boolean isPartial() {
+        return partial;
+    }
+
+    /** The recognized text as a reusable buffer; only valid until the next {@link #parse}. */
+    public CharSequence text() {
+        return text;
+    }
+
+    public String getText() {
+        return text.toString();
+    }
+
+    public int getWordCount() {
+        return wordCount;
+    }
+
+    public String getWord(int index) {
+        checkWord(index);
+        int begin = index == 0 ? 0 : wordEnds[index - 1];
+        return wordChars.substring(begin, wordEnds[index]);
+    }
+
+    public float getStart(int index) {
+        checkWord(index);
+        return starts[index];
+    }
+
+    public float getEnd(int index) {
+        checkWord(index);
+        return ends[index];
+    }
+
+    public float getConfidence(int index) {
+        checkWord(index);
+        return confidences[index];
+    }
+
+    private void checkWord(int index) {
+        if (index < 0 || index >= wordCount) {
+            throw new IndexOutOfBoundsException("Word " + index + " of " + wordCount);
+        }
+    }
+
+    // --- Scanner ---
+
+    private boolean parseObject() {
+        skipWhitespace();
+        if (!consume('{')) {
+            return false;
+        }
+        skipWhitespace();
+        if (consume('}')) {
+            return true;
+        }
+        while (true) {
+            skipWhitespace();
+            if (peek() != '"') {
+                return false;
+            }
+            int keyStart = pos + 1;
+            if (!skipString()) {
+                return false;
+            }
+            int keyEnd = pos - 1;
+            skipWhitespace();
+            if (!consume(':')) {
+                return false;
+            }
+            skipWhitespace();
+
+            boolean ok;
+            if (keyEquals(keyStart, keyEnd, "text")) {
+                ok = readString(text);
+            } else if (keyEquals(keyStart, keyEnd, "partial")) {
+                partial = true;
+                ok = readString(text);
+            } else if (keyEquals(keyStart, keyEnd, "result")
+                    || keyEquals(keyStart, keyEnd, "partial_result")) {
+                ok = readWords();
+            } else {
+                ok = skipValue();
+            }
+            if (!ok) {
+                return false;
+            }
+
+            skipWhitespace();
+            if (consume(',')) {
+                continue;
+            }
+            return consume('}');
+        }
+    }
+
+    private boolean readWords() {
+        if (!consume('[')) {
+            return skipValue(); // e.g. null
+        }
+        skipWhitespace();
+        if (consume(']')) {
+            return true;
+        }
+        while (true) {
+            skipWhitespace();
+            if (!readWord()) {
+                return false;
+            }
+            skipWhitespace();
+            if (consume(',')) {
+                continue;
+            }
+            return consume(']');
+        }
+    }
+
+    private boolean readWord() {
+        if (!consume('{')) {
+            return false;
+        }
+        ensureWordCapacity(wordCount + 1);
+        int index = wordCount;
+        starts[index] = 0f;
+        ends[index] = 0f;
+        confidences[index] = 1f;
+        int wordStart = wordChars.length();
+
+        skipWhitespace();
+        if (!consume('}')) {
+            while (true) {
+                skipWhitespace();
+                if (peek() != '"') {
+                    return false;
+                }
+                int keyStart = pos + 1;
+                if (!skipString()) {
+                    return false;
+                }
+                int keyEnd = pos - 1;
+                skipWhitespace();
+                if (!consume(':')) {
+                    return false;
+                }
+                skipWhitespace();
+
+                boolean ok = true;
+                if (keyEquals(keyStart, keyEnd, "word")) {
+                    wordChars.setLength(wordStart);
+                    ok = readString(wordChars);
+                } else if (keyEquals(keyStart, keyEnd, "start")) {
+                    starts[index] = readNumber();
+                } else if (keyEquals(keyStart, keyEnd, "end")) {
+                    ends[index] = readNumber();
+                } else if (keyEquals(keyStart, keyEnd, "conf")) {
+                    confidences[index] = readNumber();
+                } else {
+                    ok = skipValue();
+                }
+                if (!ok || Float.isNaN(starts[index]) || Float.isNaN(ends[index])
+                        || Float.isNaN(confidences[index])) {
+                    return false;
+                }
+
+                skipWhitespace();
+                if (consume(',')) {
+                    continue;
+                }
+                if (!consume('}')) {
+                    return false;
+                }
+                break;
+            }
+        }
+        wordEnds[index] = wordChars.length();
+        wordCount++;
+        return true;
+    }
+
+    private void ensureWordCapacity(int capacity) {
+        if (capacity <= wordEnds.length) {
+            return;
+        }
+        int newLength = Math.max(capacity, wordEnds.length * 2);
+        wordEnds = Arrays.copyOf(wordEnds, newLength);
+        starts = Arrays.copyOf(starts, newLength);
+        ends = Arrays.copyOf(ends, newLength);
+        confidences = Arrays.copyOf(confidences, newLength);
+    }
+
+    /** Appends the unescaped string at the cursor to {@code out}. */
+    private boolean readString(StringBuilder out) {
+        if (!consume('"')) {
+            return false;
+        }
+        while (true) {
+            char c = input.charAt(pos++);
+            if (c == '"') {
+                return true;
+            }
+            if (c != '\\') {
+                out.append(c);
+                continue;
+            }
+            char e = input.charAt(pos++);
+            switch (e) {
+                case '"': out.append('"'); break;
+                case '\\': out.append('\\'); break;
+                case '/': out.append('/'); break;
+                case 'b': out.append('\b'); break;
+                case 'f': out.append('\f'); break;
+                case 'n': out.append('\n'); break;
+                case 'r': out.append('\r'); break;
+                case 't': out.append('\t'); break;
+                case 'u':
+                    int code = 0;
+                    for (int i = 0; i < 4; i++) {
+                        int digit = Character.digit(input.charAt(pos++), 16);
+                        if (digit < 0) {
+                            return false;
+                        }
+                        code = (code << 4) | digit;
+                    }
+                    out.append((char) code);
+                    break;
+                default:
+                    return false;
+            }
+        }
+    }
+
+    /** Reads a JSON number without going through {@code Float.parseFloat}; NaN on error. */
+    private float readNumber() {
+        boolean negative = consume('-');
+        double value = 0;
+        int digits = 0;
+        char c;
+        while (pos < input.length() && (c = input.charAt(pos)) >= '0' && c <= '9') {
+            value = value * 10 + (c - '0');
+            pos++;
+            digits++;
+        }
+        if (consume('.')) {
+            double scale = 0.1;
+            while (pos < input.length() && (c = input.charAt(pos)) >= '0' && c <= '9') {
+                value += (c - '0') * scale;
+                scale *= 0.1;
+                pos++;
+                digits++;
+            }
+        }
+        if (digits == 0) {
+            return Float.NaN;
+        }
+        if (pos < input.length() && (input.charAt(pos) == 'e' || input.charAt(pos) == 'E')) {
+            pos++;
+            boolean negativeExponent = consume('-');
+            if (!negativeExponent) {
+                consume('+');
+            }
+            int exponent = 0;
+            while (pos < input.length() && (c = input.charAt(pos)) >= '0' && c <= '9') {
+                exponent = exponent * 10 + (c - '0');
+                pos++;
+            }
+            value *= Math.pow(10, negativeExponent ? -exponent : exponent);
+        }
+        return (float) (negative ? -value : value);
+    }
+
+    private boolean skipValue() {
+        char c = peek();
+        if (c == '"') {
+            return skipString();
+        }
+        if (c == '{' || c == '[') {
+            char open = c;
+            char close = c == '{' ? '}' : ']';
+            int depth = 0;
+            while (true) {
+                c = input.charAt(pos);
+                if (c == '"') {
+                    if (!skipString()) {
+                        return false;
+                    }
+                    continue;
+                }
+                pos++;
+                if (c == open) {
+                    depth++;
+                } else if (c == close && --depth == 0) {
+                    return true;
+                }
+            }
+        }
+        // Number or literal (true / false / null)
+        int begin = pos;
+        while (pos < input.length()) {
+            c = input.charAt(pos);
+            if (c == ',' || c == '}' || c == ']' || isWhitespace(c)) {
+                break;
+            }
+            pos++;
+        }
+        return pos > begin;
+    }
+
+    private boolean skipString() {
+        if (!consume('"')) {
+            return false;
+        }
+        while (true) {
+            char c = input.charAt(pos++);
+            if (c == '"') {
+                return true;
+            }
+            if (c == '\\') {
+                pos++;
+            }
+        }
+    }
+
+    private boolean keyEquals(int begin, int end, String key) {
+        return end - begin == key.length() && input.regionMatches(begin, key, 0, key.length());
+    }
+
+    private void skipWhitespace() {
+        while (pos < input.length() && isWhitespace(input.charAt(pos))) {
+            pos++;
+        }
+    }
+
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\n' || c == '\r' || c == '\t';
+    }
+
+    private char peek() {
+        return pos < input.length() ? input.charAt(pos) : '\0';
+    }
+
+    private boolean consume(char expected) {
+        if (pos < input.length() && input.charAt(pos) == expected) {
+            pos++;
+            return true;
+        }
+        return false;
+    }
+}
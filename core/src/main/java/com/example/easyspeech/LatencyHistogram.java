@@ -0,0 +1,96 @@
+package com.example.easyspeech;
+
+import java.util.Arrays;
+
+/**
+ * Fixed-size histogram of non-negative longs (latencies in µs, ratios in thousandths, ...) with
+ * about 3% relative precision, for percentiles of values recorded on a hot path.
+ *
+ * Values below {@link #SUB_BUCKETS} get a bucket each; above that every power of two is split
+ * into {@link #SUB_BUCKETS} / 2 linear buckets. Recording is a few shifts and an increment into
+ * a preallocated array, with no allocation. All methods are thread-safe.
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 6;
+    static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS; // 64
+    private static final int HALF = SUB_BUCKETS / 2;
+
+    private final long[] counts = new long[SUB_BUCKETS + (64 - SUB_BUCKET_BITS) * HALF];
+    private long count;
+    private long sum;
+    private long min = Long.MAX_VALUE;
+    private long max;
+
+    /** Records {@code value}; negative values count as 0. */
+    public synchronized void record(long value) {
+        value = Math.max(0, value);
+        counts[bucketOf(value)]++;
+        count++;
+        sum += value;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+    }
+
+    public synchronized long getCount() {
+        return count;
+    }
+
+    /** Smallest value recorded, or 0 if none. */
+    public synchronized long getMin() {
+        return count == 0 ? 0 : min;
+    }
+
+    public synchronized long getMax() {
+        return max;
+    }
+
+    public synchronized double getMean() {
+        return count == 0 ? 0 : (double) sum / count;
+    }
+
+    /**
+     * Value at or below which {@code percentile} percent of the recorded values fall, as the
+     * upper bound of its bucket (clamped to the largest value seen); 0 if nothing was recorded.
+     */
+    public synchronized long getPercentile(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(max, Math.max(min, upperBoundOf(i)));
+            }
+        }
+        return max;
+    }
+
+    public synchronized void reset() {
+        Arrays.fill(counts, 0);
+        count = 0;
+        sum = 0;
+        min = Long.MAX_VALUE;
+        max = 0;
+    }
+
+    static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value) - (SUB_BUCKET_BITS - 1); // >= 1
+        int sub = (int) (value >>> exponent) - HALF; // Top bits after the leading one, 0..HALF-1
+        return SUB_BUCKETS + (exponent - 1) * HALF + sub;
+    }
+
+    static long upperBoundOf(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int exponent = (bucket - SUB_BUCKETS) / HALF + 1;
+        long sub = (bucket - SUB_BUCKETS) % HALF + HALF;
+        return ((sub + 1) << exponent) - 1;
+    }
+}
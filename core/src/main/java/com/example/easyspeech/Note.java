@@ -0,0 +1,121 @@
+package com.example.easyspeech;
+
+import java.text.SimpleDateFormat;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.Locale;
+
+/**
+ * Immutable saved note, as stored in Firestore's {@code notes} collection and in
+ * {@code NotesStore}.
+ *
+ * The display timestamp is formatted once when the note is created (normally on a background
+ * thread) instead of on every bind, and {@link #getStableId()} is derived from the Firestore
+ * document ID so RecyclerView can keep rows across list updates.
+ */
+public final class Note {
+
+    private static final ThreadLocal<SimpleDateFormat> DISPLAY_FORMAT = new ThreadLocal<SimpleDateFormat>() {
+        @Override
+        protected SimpleDateFormat initialValue() {
+            return new SimpleDateFormat("MMM dd, yyyy HH:mm", Locale.getDefault());
+        }
+    };
+
+    /** Order of the notes list: newest first, ties broken by document ID like {@code NotesStore}. */
+    public static final Comparator<Note> NEWEST_FIRST = (a, b) -> {
+        if (a.timestampSeconds != b.timestampSeconds) {
+            return Long.compare(b.timestampSeconds, a.timestampSeconds);
+        }
+        if (a.timestampNanos != b.timestampNanos) {
+            return Integer.compare(b.timestampNanos, a.timestampNanos);
+        }
+        return b.documentId.compareTo(a.documentId);
+    };
+
+    private final String documentId;
+    private final String userId;
+    private final String transcribedText;
+    private final String translatedText;
+    private final long timestampSeconds;
+    private final int timestampNanos;
+    private final String displayTimestamp;
+    private final long stableId;
+
+    public Note(String documentId, String userId, String transcribedText, String translatedText,
+                long timestampSeconds, int timestampNanos) {
+        this.documentId = documentId;
+        this.userId = userId != null ? userId : "";
+        this.transcribedText = transcribedText != null ? transcribedText : "";
+        this.translatedText = translatedText != null ? translatedText : "";
+        this.timestampSeconds = timestampSeconds;
+        this.timestampNanos = timestampNanos;
+        displayTimestamp = DISPLAY_FORMAT.get().format(new Date(timestampSeconds * 1000 + timestampNanos / 1_000_000));
+        stableId = stableId(documentId);
+    }
+
+    public String getDocumentId() {
+        return documentId;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public String getTranscribedText() {
+        return transcribedText;
+    }
+
+    public String getTranslatedText() {
+        return translatedText;
+    }
+
+    public long getTimestampSeconds() {
+        return timestampSeconds;
+    }
+
+    public int getTimestampNanos() {
+        return timestampNanos;
+    }
+
+    public String getDisplayTimestamp() {
+        return displayTimestamp;
+    }
+
+    /** 64-bit hash of the document ID, for {@code RecyclerView.Adapter#getItemId}. */
+    public long getStableId() {
+        return stableId;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Note)) {
+            return false;
+        }
+        Note note = (Note) o;
+        return timestampSeconds == note.timestampSeconds
+                && timestampNanos == note.timestampNanos
+                && documentId.equals(note.documentId)
+                && userId.equals(note.userId)
+                && transcribedText.equals(note.transcribedText)
+                && translatedText.equals(note.translatedText);
+    }
+
+    @Override
+    public int hashCode() {
+        return documentId.hashCode();
+    }
+
+    // FNV-1a
+    static long stableId(String documentId) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < documentId.length(); i++) {
+            hash ^= documentId.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+}
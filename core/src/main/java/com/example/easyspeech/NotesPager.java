@@ -0,0 +1,262 @@
+package com.example.easyspeech;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * Sliding window of pages over a newest-first list too long to hold in memory.
+ *
+ * Pages are loaded with keyset cursors (the item at the edge of the window is passed back to the
+ * {@link PageSource}) as the list is scrolled within {@code prefetchDistance} items of either
+ * end. At most {@code maxPages} pages are kept; when another one is loaded, the page at the
+ * opposite end of the window is dropped and loaded again if the user scrolls back to it.
+ *
+ * {@link #getItems()} is the flat window for the adapter; changes to it are reported through
+ * the {@link Listener}. Call from, and get callbacks on, the thread behind {@code mainExecutor}.
+ */
+public class NotesPager<T> {
+
+    public interface PageSource<T> {
+        /** Up to {@code limit} items older than {@code anchor} (or the newest if null), newest first. */
+        List<T> loadOlder(T anchor, int limit);
+
+        /** Up to {@code limit} items newer than {@code anchor}, the closest to it; newest first. */
+        List<T> loadNewer(T anchor, int limit);
+    }
+
+    public interface Listener {
+        void onItemsInserted(int position, int count);
+
+        void onItemsRemoved(int position, int count);
+    }
+
+    private final PageSource<T> source;
+    private final Executor loadExecutor;
+    private final Executor mainExecutor;
+    private final int pageSize;
+    private final int prefetchDistance;
+    private final int maxPages;
+    private Listener listener;
+
+    private final List<T> items = new ArrayList<>();
+    private final ArrayDeque<Integer> pageSizes = new ArrayDeque<>(); // Window, newest page first
+    private boolean hasNewer;       // Newer items exist above the window
+    private boolean hasOlder = true;
+    private boolean loading;
+    private boolean refreshPending; // refreshNewest() arrived during a load
+    private int generation;         // Bumped by loadFirst(); stale loads are ignored
+
+    // Time to first row
+    private long startNanos;
+    private long firstPageMillis = -1;
+
+    public NotesPager(PageSource<T> source, Executor loadExecutor, Executor mainExecutor,
+                      int pageSize, int prefetchDistance, int maxPages) {
+        this.source = source;
+        this.loadExecutor = loadExecutor;
+        this.mainExecutor = mainExecutor;
+        this.pageSize = pageSize;
+        this.prefetchDistance = prefetchDistance;
+        this.maxPages = Math.max(2, maxPages);
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    /** The items currently in the window, newest first. Don't modify. */
+    public List<T> getItems() {
+        return items;
+    }
+
+    public boolean isLoading() {
+        return loading;
+    }
+
+    public int getPageCount() {
+        return pageSizes.size();
+    }
+
+    /** Time from {@link #loadFirst()} to the first non-empty page, or -1. */
+    public long getFirstPageMillis() {
+        return firstPageMillis;
+    }
+
+    /** Empties the window and loads the newest page. */
+    public void loadFirst() {
+        int count = items.size();
+        items.clear();
+        pageSizes.clear();
+        generation++;
+        loading = false;
+        refreshPending = false;
+        hasNewer = false;
+        hasOlder = true;
+        startNanos = System.nanoTime();
+        firstPageMillis = -1;
+        if (count > 0 && listener != null) {
+            listener.onItemsRemoved(0, count);
+        }
+        load(true);
+    }
+
+    /** Prefetches the next page in the direction the list is scrolled towards, if close enough. */
+    public void onScrolled(int firstVisible, int lastVisible) {
+        if (loading) {
+            return;
+        }
+        if (hasOlder && lastVisible >= items.size() - 1 - prefetchDistance) {
+            load(true);
+        } else if (hasNewer && firstVisible <= prefetchDistance) {
+            load(false);
+        }
+    }
+
+    /** Picks up items added at the top of the source when the window is showing the top. */
+    public void refreshNewest() {
+        if (loading) {
+            refreshPending = true;
+        } else if (items.isEmpty()) {
+            hasOlder = true;
+            load(true);
+        } else if (!hasNewer) {
+            load(false);
+        }
+    }
+
+    /** Drops {@code toRemove} from the window, e.g. once they are deleted. */
+    public void removeAll(Collection<T> toRemove) {
+        List<Integer> sizes = new ArrayList<>(pageSizes);
+        pageSizes.clear();
+        int position = 0;
+        for (int size : sizes) {
+            int kept = 0;
+            for (int i = 0; i < size; i++) {
+                if (toRemove.contains(items.get(position))) {
+                    items.remove(position);
+                    notifyRemoved(position, 1);
+                } else {
+                    position++;
+                    kept++;
+                }
+            }
+            if (kept > 0) {
+                pageSizes.add(kept);
+            }
+        }
+    }
+
+    /**
+     * Puts {@code toInsert} back at their positions in the window under {@code newestFirst},
+     * e.g. after a delete failed. Items that sort outside the loaded window are left to be
+     * loaded with their page.
+     */
+    public void insertSorted(Collection<T> toInsert, Comparator<? super T> newestFirst) {
+        for (T item : toInsert) {
+            int found = Collections.binarySearch(items, item, newestFirst);
+            if (found >= 0) {
+                continue; // Already shown
+            }
+            int position = -found - 1;
+            if ((position == 0 && hasNewer) || (position == items.size() && hasOlder && !items.isEmpty())) {
+                continue;
+            }
+            items.add(position, item);
+            growPageAt(position);
+            notifyInserted(position, 1);
+        }
+    }
+
+    // Counts a new item at position in the page it falls into
+    private void growPageAt(int position) {
+        if (pageSizes.isEmpty()) {
+            pageSizes.add(1);
+            return;
+        }
+        List<Integer> sizes = new ArrayList<>(pageSizes);
+        int start = 0;
+        int page = sizes.size() - 1;
+        for (int i = 0; i < sizes.size(); i++) {
+            if (position < start + sizes.get(i)) {
+                page = i;
+                break;
+            }
+            start += sizes.get(i);
+        }
+        sizes.set(page, sizes.get(page) + 1);
+        pageSizes.clear();
+        pageSizes.addAll(sizes);
+    }
+
+    private void load(boolean older) {
+        loading = true;
+        int loadGeneration = generation;
+        T anchor = items.isEmpty() ? null : older ? items.get(items.size() - 1) : items.get(0);
+        loadExecutor.execute(() -> {
+            List<T> page = older || anchor == null
+                    ? source.loadOlder(anchor, pageSize)
+                    : source.loadNewer(anchor, pageSize);
+            mainExecutor.execute(() -> {
+                if (loadGeneration == generation) {
+                    apply(older || anchor == null, page);
+                }
+            });
+        });
+    }
+
+    private void apply(boolean older, List<T> page) {
+        loading = false;
+        if (older) {
+            hasOlder = page.size() == pageSize;
+            if (!page.isEmpty()) {
+                int position = items.size();
+                items.addAll(page);
+                pageSizes.addLast(page.size());
+                notifyInserted(position, page.size());
+                if (pageSizes.size() > maxPages) {
+                    int dropped = pageSizes.removeFirst();
+                    items.subList(0, dropped).clear();
+                    hasNewer = true;
+                    notifyRemoved(0, dropped);
+                }
+            }
+        } else {
+            hasNewer = page.size() == pageSize;
+            if (!page.isEmpty()) {
+                items.addAll(0, page);
+                pageSizes.addFirst(page.size());
+                notifyInserted(0, page.size());
+                if (pageSizes.size() > maxPages) {
+                    int dropped = pageSizes.removeLast();
+                    items.subList(items.size() - dropped, items.size()).clear();
+                    hasOlder = true;
+                    notifyRemoved(items.size(), dropped);
+                }
+            }
+        }
+        if (firstPageMillis < 0 && !items.isEmpty()) {
+            firstPageMillis = (System.nanoTime() - startNanos) / 1_000_000;
+        }
+        if (refreshPending) {
+            refreshPending = false;
+            refreshNewest();
+        }
+    }
+
+    private void notifyInserted(int position, int count) {
+        if (listener != null) {
+            listener.onItemsInserted(position, count);
+        }
+    }
+
+    private void notifyRemoved(int position, int count) {
+        if (listener != null) {
+            listener.onItemsRemoved(position, count);
+        }
+    }
+}
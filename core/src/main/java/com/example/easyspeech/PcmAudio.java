@@ -0,0 +1,135 @@
+package com.example.easyspeech;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * 16-bit PCM audio memory-mapped from a WAV file or a headerless PCM file, so long recordings
+ * are read in place instead of being copied onto the heap.
+ *
+ * Reads use absolute indexes only, so several threads can read different ranges concurrently.
+ */
+public final class PcmAudio {
+
+    /** Assumed format of headerless .pcm files: what the microphone pipeline records. */
+    public static final int DEFAULT_SAMPLE_RATE = 16000;
+
+    private final ShortBuffer samples;
+    private final int sampleRate;
+    private final int channels;
+    private final int frameCount;
+
+    PcmAudio(ShortBuffer samples, int sampleRate, int channels) {
+        this.samples = samples;
+        this.sampleRate = sampleRate;
+        this.channels = channels;
+        this.frameCount = samples.limit() / channels;
+    }
+
+    /** Maps the whole of {@code channel}; the mapping stays valid after the channel is closed. */
+    public static PcmAudio map(FileChannel channel) throws IOException {
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        return wrap(buffer);
+    }
+
+    /** Parses a WAV header if there is one, otherwise treats the data as 16 kHz mono PCM. */
+    public static PcmAudio wrap(ByteBuffer buffer) throws IOException {
+        buffer = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.remaining() < 12 || buffer.getInt(0) != 0x46464952 /* RIFF */
+                || buffer.getInt(8) != 0x45564157 /* WAVE */) {
+            return new PcmAudio(slice(buffer, 0, buffer.limit() & ~1), DEFAULT_SAMPLE_RATE, 1);
+        }
+
+        int sampleRate = -1;
+        int channels = -1;
+        int pos = 12;
+        while (pos + 8 <= buffer.limit()) {
+            int id = buffer.getInt(pos);
+            int size = buffer.getInt(pos + 4);
+            int body = pos + 8;
+            if (size < 0 || body + size > buffer.limit()) {
+                size = buffer.limit() - body; // Streaming writers leave the size unset
+            }
+            if (id == 0x20746d66 /* "fmt " */) {
+                int format = buffer.getShort(body) & 0xffff;
+                channels = buffer.getShort(body + 2);
+                sampleRate = buffer.getInt(body + 4);
+                int bits = buffer.getShort(body + 14);
+                if (format != 1 || bits != 16) {
+                    throw new IOException("Only 16-bit PCM WAV is supported (format " + format
+                            + ", " + bits + " bits)");
+                }
+            } else if (id == 0x61746164 /* "data" */) {
+                if (sampleRate <= 0 || channels <= 0) {
+                    throw new IOException("WAV data chunk before fmt chunk");
+                }
+                return new PcmAudio(slice(buffer, body, size & ~1), sampleRate, channels);
+            }
+            pos = body + size + (size & 1); // Chunks are word aligned
+        }
+        throw new IOException("WAV file without data chunk");
+    }
+
+    private static ShortBuffer slice(ByteBuffer buffer, int offset, int length) {
+        ByteBuffer bytes = buffer.duplicate();
+        bytes.position(offset);
+        bytes.limit(offset + length);
+        return bytes.slice().order(ByteOrder.LITTLE_ENDIAN).asShortBuffer();
+    }
+
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    public int getChannels() {
+        return channels;
+    }
+
+    /** Length in frames (one sample per channel). */
+    public int getFrameCount() {
+        return frameCount;
+    }
+
+    public double getDurationSeconds() {
+        return (double) frameCount / sampleRate;
+    }
+
+    /** Mono sample of frame {@code frame}, averaging the channels. */
+    public short getMono(int frame) {
+        if (channels == 1) {
+            return samples.get(frame);
+        }
+        int sum = 0;
+        int base = frame * channels;
+        for (int c = 0; c < channels; c++) {
+            sum += samples.get(base + c);
+        }
+        return (short) (sum / channels);
+    }
+
+    /**
+     * Copies {@code count} mono frames starting at {@code frame} into {@code out}.
+     *
+     * @return the number of frames copied, less than {@code count} at the end of the audio
+     */
+    public int readMono(int frame, short[] out, int count) {
+        int n = Math.min(count, frameCount - frame);
+        if (n <= 0) {
+            return 0;
+        }
+        if (channels == 1) {
+            ShortBuffer view = samples.duplicate();
+            view.position(frame);
+            view.get(out, 0, n);
+        } else {
+            for (int i = 0; i < n; i++) {
+                out[i] = getMono(frame + i);
+            }
+        }
+        return n;
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.easyspeech;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Cuts long audio into chunks that can be decoded independently, placing each cut in the
+ * quietest short window near the target chunk length so that words are not split in half.
+ */
+public class SilenceSplitter {
+
+    private static final int WINDOW_MILLIS = 20;
+
+    private final double minChunkSeconds;
+    private final double maxChunkSeconds;
+
+    public SilenceSplitter() {
+        this(15, 45);
+    }
+
+    public SilenceSplitter(double minChunkSeconds, double maxChunkSeconds) {
+        if (minChunkSeconds <= 0 || maxChunkSeconds < minChunkSeconds) {
+            throw new IllegalArgumentException("Invalid chunk bounds " + minChunkSeconds + ".." + maxChunkSeconds);
+        }
+        this.minChunkSeconds = minChunkSeconds;
+        this.maxChunkSeconds = maxChunkSeconds;
+    }
+
+    /**
+     * @return chunk boundaries in frames: chunk i covers {@code [b[i], b[i + 1])}; the first entry
+     * is 0 and the last is the frame count
+     */
+    public int[] split(PcmAudio audio) {
+        int frames = audio.getFrameCount();
+        int rate = audio.getSampleRate();
+        int window = Math.max(1, rate * WINDOW_MILLIS / 1000);
+        int minFrames = (int) (minChunkSeconds * rate);
+        int maxFrames = (int) (maxChunkSeconds * rate);
+
+        List<Integer> cuts = new ArrayList<>();
+        cuts.add(0);
+        int start = 0;
+        while (frames - start > maxFrames) {
+            int bestCut = start + maxFrames;
+            long bestEnergy = Long.MAX_VALUE;
+            for (int w = start + minFrames; w + window <= start + maxFrames; w += window) {
+                long energy = windowEnergy(audio, w, window);
+                if (energy < bestEnergy) {
+                    bestEnergy = energy;
+                    bestCut = w + window / 2;
+                }
+            }
+            cuts.add(bestCut);
+            start = bestCut;
+        }
+        cuts.add(frames);
+
+        int[] result = new int[cuts.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = cuts.get(i);
+        }
+        return result;
+    }
+
+    // Sum of absolute sample values, cheaper than RMS and good enough to rank windows
+    private static long windowEnergy(PcmAudio audio, int from, int length) {
+        long sum = 0;
+        for (int i = from; i < from + length; i++) {
+            sum += Math.abs(audio.getMono(i));
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,383 @@
+package com.example.easyspeech;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Append-only transcript made of immutable {@link TranscriptSegment}s.
+ *
+ * Appending, {@link #isEmpty()} and {@link #length()} are O(1) regardless of how long the
+ * transcript is. The joined text (segments separated by newlines) is built lazily and
+ * extended incrementally, so asking for it again after a few appends only copies the new
+ * segments, not the whole history.
+ *
+ * For long dictation sessions the transcript can spool to a session log: every segment is
+ * appended to the file and only the last {@code windowSize} stay on the heap, for display.
+ * Older segments are read back from the log on request, so heap use stays flat however long
+ * the session runs. Should a write to the log fail, the log stops there and later segments all
+ * stay on the heap.
+ *
+ * The transcript itself belongs to one thread (the main thread in the app). To read a long one
+ * without blocking that thread, take a {@link #snapshot()} there and read the snapshot on a
+ * background thread.
+ */
+public class Transcript {
+
+    // java.util.logging, which Android forwards to logcat, keeps this module free of android.*
+    private static final Logger LOG = Logger.getLogger("Transcript");
+    private static final char SEPARATOR = '\n';
+
+    private final File log;
+    private final int windowSize;
+
+    // Segments on the heap, oldest first: windowCount of them from windowHead, in a ring that
+    // doubles when full, so dropping the oldest doesn't shift the rest
+    private TranscriptSegment[] window = new TranscriptSegment[16];
+    private int windowHead;
+    private int windowCount;
+    private int size;
+    private int length; // Joined length, separators included
+
+    // Session log: offsets of the first spooled records (8 bytes per segment), open output while non-empty
+    private long[] offsets = new long[64];
+    private int spooled;       // Segments fully written; only these may leave the window
+    private boolean logFailed; // A write failed: nothing more is spooled until clear()
+    private long logBytes;
+    private DataOutputStream logOut;
+    private RandomAccessFile logIn;
+
+    // Lazily joined text while nothing has left the window; joined holds the first joinedCount segments
+    private final StringBuilder joined = new StringBuilder();
+    private int joinedCount;
+    private String joinedText;
+
+    /** Transcript kept entirely on the heap. */
+    public Transcript() {
+        this(null, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param log        session log file, replaced by the first append
+     * @param windowSize segments kept on the heap
+     */
+    public Transcript(File log, int windowSize) {
+        this.log = log;
+        this.windowSize = Math.max(1, windowSize);
+    }
+
+    /**
+     * Adds a finalized utterance.
+     *
+     * @return the index of the new segment
+     */
+    public int append(String text) {
+        return append(text, WordTimings.EMPTY);
+    }
+
+    /** Adds a finalized utterance with the timings of its words. */
+    public int append(String text, WordTimings words) {
+        TranscriptSegment segment = new TranscriptSegment(text, System.currentTimeMillis(), words);
+        if (log != null && !logFailed) {
+            spool(segment);
+        }
+        if (size > 0) {
+            length++; // separator
+        }
+        addToWindow(segment);
+        if (windowCount > windowSize && size + 1 - windowCount < spooled) { // Oldest one is in the log
+            window[windowHead] = null;
+            windowHead = (windowHead + 1) & (window.length - 1);
+            windowCount--;
+            joined.setLength(0); // Rebuilt from the log from now on
+            joinedCount = 0;
+        }
+        size++;
+        length += segment.length();
+        joinedText = null;
+        return size - 1;
+    }
+
+    /** Segment {@code index}; read back from the session log if it has left the window. */
+    public TranscriptSegment get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Segment " + index + " of " + size);
+        }
+        int first = getWindowStart();
+        if (index >= first) {
+            return windowSegment(index - first);
+        }
+        try {
+            return readSegment(index);
+        } catch (IOException e) {
+            LOG.log(Level.SEVERE, "Cannot read segment " + index + " from the session log", e);
+            return new TranscriptSegment("", 0);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /** Index of the oldest segment still on the heap. */
+    public int getWindowStart() {
+        return size - windowCount;
+    }
+
+    /** Number of segments on the heap, i.e. from {@link #getWindowStart()} to the end. */
+    public int getWindowCount() {
+        return windowCount;
+    }
+
+    /** Length of {@link #getText()}, without building it. */
+    public int length() {
+        return length;
+    }
+
+    /**
+     * All segments joined with newlines. Cached until the next append while the whole
+     * transcript fits in the window; after that read back from the session log on every call.
+     */
+    public String getText() {
+        if (joinedText != null) {
+            return joinedText;
+        }
+        if (getWindowStart() > 0) {
+            StringBuilder sb = new StringBuilder(length);
+            for (int i = 0; i < size; i++) {
+                if (i > 0) {
+                    sb.append(SEPARATOR);
+                }
+                sb.append(get(i).getText());
+            }
+            return sb.toString();
+        }
+        for (int i = joinedCount; i < size; i++) {
+            if (i > 0) {
+                joined.append(SEPARATOR);
+            }
+            joined.append(windowSegment(i).getText());
+        }
+        joinedCount = size;
+        joinedText = joined.toString();
+        return joinedText;
+    }
+
+    /**
+     * The segments appended so far, for reading on another thread. Costs a copy of the window
+     * and of the log offsets (8 bytes per segment); nothing is read from the log here.
+     */
+    public Snapshot snapshot() {
+        List<TranscriptSegment> segments = new ArrayList<>(windowCount);
+        for (int i = 0; i < windowCount; i++) {
+            segments.add(windowSegment(i));
+        }
+        return new Snapshot(size, length, segments, Arrays.copyOf(offsets, getWindowStart()),
+                logIn != null ? logIn.getChannel() : null);
+    }
+
+    /**
+     * Segments {@code 0} to {@code size() - 1} of a transcript at the time of {@link #snapshot()}.
+     * Safe to read on any thread while the transcript keeps growing; reads fail with an
+     * IOException if the transcript is cleared meanwhile.
+     */
+    public static final class Snapshot {
+        private final int size;
+        private final int length;
+        private final List<TranscriptSegment> window;
+        private final long[] offsets; // Of the spooled segments, 0 to window start
+        private final FileChannel log;
+
+        Snapshot(int size, int length, List<TranscriptSegment> window, long[] offsets, FileChannel log) {
+            this.size = size;
+            this.length = length;
+            this.window = window;
+            this.offsets = offsets;
+            this.log = log;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public boolean isEmpty() {
+            return size == 0;
+        }
+
+        /** The text of every segment, in order; spooled ones come from one read of the log. */
+        public List<String> getTexts() throws IOException {
+            List<String> texts = new ArrayList<>(size);
+            if (offsets.length > 0) {
+                // The spooled records are contiguous from offset 0 up to the first one in the window
+                long end = offsets[offsets.length - 1];
+                ByteBuffer tail = readFully(end, 4);
+                ByteBuffer records = readFully(0, (int) (end + 4 + tail.getInt(0)));
+                DataInputStream in = new DataInputStream(new ByteArrayInputStream(records.array()));
+                for (int i = 0; i < offsets.length; i++) {
+                    byte[] record = new byte[in.readInt()];
+                    in.readFully(record);
+                    texts.add(decodeSegment(record).getText());
+                }
+            }
+            for (TranscriptSegment segment : window) {
+                texts.add(segment.getText());
+            }
+            return texts;
+        }
+
+        /** All segments joined with newlines, like {@link Transcript#getText()}. */
+        public String getText() throws IOException {
+            List<String> texts = getTexts();
+            StringBuilder sb = new StringBuilder(length);
+            for (int i = 0; i < texts.size(); i++) {
+                if (i > 0) {
+                    sb.append(SEPARATOR);
+                }
+                sb.append(texts.get(i));
+            }
+            return sb.toString();
+        }
+
+        // Positional reads leave the transcript's own file pointer alone
+        private ByteBuffer readFully(long position, int count) throws IOException {
+            if (log == null) {
+                throw new IOException("No session log");
+            }
+            ByteBuffer buffer = ByteBuffer.allocate(count);
+            while (buffer.hasRemaining()) {
+                if (log.read(buffer, position + buffer.position()) < 0) {
+                    throw new EOFException("Session log ends before segment data");
+                }
+            }
+            return buffer;
+        }
+    }
+
+    public void clear() {
+        Arrays.fill(window, null);
+        windowHead = 0;
+        windowCount = 0;
+        size = 0;
+        length = 0;
+        joined.setLength(0);
+        joinedCount = 0;
+        joinedText = null;
+        closeLog();
+        spooled = 0;
+        logFailed = false;
+        logBytes = 0;
+    }
+
+    private void addToWindow(TranscriptSegment segment) {
+        if (windowCount == window.length) {
+            TranscriptSegment[] grown = new TranscriptSegment[window.length * 2];
+            for (int i = 0; i < windowCount; i++) {
+                grown[i] = windowSegment(i);
+            }
+            window = grown;
+            windowHead = 0;
+        }
+        window[(windowHead + windowCount) & (window.length - 1)] = segment;
+        windowCount++;
+    }
+
+    // i-th segment of the window, 0 being the oldest
+    private TranscriptSegment windowSegment(int i) {
+        return window[(windowHead + i) & (window.length - 1)];
+    }
+
+    // --- Session log: records of [int length][int text length][UTF-8 text][long createdAt][WordTimings] ---
+
+    private void spool(TranscriptSegment segment) {
+        try {
+            if (logOut == null) {
+                logOut = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(log, false)));
+                logIn = new RandomAccessFile(log, "r");
+                logBytes = 0;
+            }
+            ByteArrayOutputStream record = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(record);
+            byte[] text = segment.getText().getBytes(StandardCharsets.UTF_8);
+            out.writeInt(text.length);
+            out.write(text);
+            out.writeLong(segment.getCreatedAtMillis());
+            segment.getWords().writeTo(out);
+
+            logOut.writeInt(record.size());
+            record.writeTo(logOut);
+            logOut.flush(); // Readable by get() right away
+
+            // Only a record that is fully written gets an offset
+            if (spooled == offsets.length) {
+                offsets = Arrays.copyOf(offsets, offsets.length * 2);
+            }
+            offsets[spooled++] = logBytes;
+            logBytes += 4 + record.size();
+        } catch (IOException e) {
+            // The log may end in part of this record: keep what came before, and the rest on the heap
+            LOG.log(Level.SEVERE, "Cannot write segment to the session log; keeping later segments in memory", e);
+            logFailed = true;
+            try {
+                if (logOut != null) {
+                    logOut.close();
+                }
+            } catch (IOException closeFailed) {
+                LOG.log(Level.WARNING, "Cannot close the session log", closeFailed);
+            }
+            logOut = null; // logIn stays open for the records before this one
+        }
+    }
+
+    private TranscriptSegment readSegment(int index) throws IOException {
+        if (logIn == null) {
+            throw new IOException("No session log");
+        }
+        logIn.seek(offsets[index]);
+        byte[] record = new byte[logIn.readInt()];
+        logIn.readFully(record);
+        return decodeSegment(record);
+    }
+
+    private static TranscriptSegment decodeSegment(byte[] record) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(record));
+        byte[] text = new byte[in.readInt()];
+        in.readFully(text);
+        long createdAt = in.readLong();
+        return new TranscriptSegment(new String(text, StandardCharsets.UTF_8), createdAt,
+                WordTimings.readFrom(in));
+    }
+
+    private void closeLog() {
+        try {
+            if (logOut != null) {
+                logOut.close();
+            }
+            if (logIn != null) {
+                logIn.close();
+            }
+        } catch (IOException e) {
+            LOG.log(Level.WARNING, "Cannot close the session log", e);
+        }
+        logOut = null;
+        logIn = null;
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.easyspeech;
+
+/**
+ * One finalized utterance of the transcript, with the timing and confidence of its words when
+ * the recognizer reported them. Immutable once created.
+ */
+public final class TranscriptSegment {
+
+    private final String text;
+    private final long createdAtMillis;
+    private final WordTimings words;
+
+    public TranscriptSegment(String text, long createdAtMillis) {
+        this(text, createdAtMillis, WordTimings.EMPTY);
+    }
+
+    public TranscriptSegment(String text, long createdAtMillis, WordTimings words) {
+        this.text = text;
+        this.createdAtMillis = createdAtMillis;
+        this.words = words;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public long getCreatedAtMillis() {
+        return createdAtMillis;
+    }
+
+    public WordTimings getWords() {
+        return words;
+    }
+
+    public int length() {
+        return text.length();
+    }
+}
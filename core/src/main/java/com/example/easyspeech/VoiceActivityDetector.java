@@ -0,0 +1,178 @@
+package com.example.easyspeech;
+
+/**
+ * Lightweight voice activity detector deciding, frame by frame, whether microphone audio needs
+ * to reach the recognizer at all.
+ *
+ * A frame is speech when its energy is above {@link Config#energyThresholdDb}, or when it is
+ * within {@link Config#weakSpeechMarginDb} of it and has a high zero-crossing rate (fricatives
+ * like "s" and "f" are quiet but noisy). Speech continues for {@link Config#hangoverMillis}
+ * after the last speech frame, and the last {@link Config#preRollMillis} of skipped audio is
+ * kept so that the start of a word can be replayed to the recognizer when speech begins.
+ *
+ * Not thread-safe; owned by the audio thread.
+ */
+public class VoiceActivityDetector {
+
+    /** Frame is silence; don't feed it. */
+    public static final int SILENCE = 0;
+    /** Speech started with this frame; feed the pre-roll first, then the frame. */
+    public static final int SPEECH_START = 1;
+    /** Frame is (or is within the hangover of) speech; feed it. */
+    public static final int SPEECH = 2;
+    /** Hangover just expired: the utterance is over, this frame itself is silence. */
+    public static final int SPEECH_END = 3;
+
+    /** Tunables, see SettingsActivity. */
+    public static final class Config {
+        public boolean enabled = true;
+        public float energyThresholdDb = -45f; // dBFS
+        public float weakSpeechMarginDb = 10f;
+        public float zeroCrossingThreshold = 0.25f; // crossings per sample
+        public int hangoverMillis = 400;
+        public int preRollMillis = 300;
+    }
+
+    public interface FrameSink {
+        void accept(short[] frame, int length);
+    }
+
+    private final Config config;
+    private final int hangoverFrames;
+    private final double energyThreshold;     // Mean square, linear
+    private final double weakEnergyThreshold;
+
+    // Pre-roll ring of recent silent frames
+    private final short[][] preRoll;
+    private final int[] preRollLengths;
+    private int preRollHead;
+    private int preRollCount;
+
+    private boolean inSpeech;
+    private int framesSinceSpeech;
+
+    // Stats
+    private long totalFrames;
+    private long skippedFrames;
+
+    public VoiceActivityDetector(Config config, int sampleRate, int frameSamples) {
+        this.config = config;
+        double frameMillis = 1000.0 * frameSamples / sampleRate;
+        hangoverFrames = (int) Math.ceil(config.hangoverMillis / frameMillis);
+        int preRollFrames = (int) Math.ceil(config.preRollMillis / frameMillis);
+        preRoll = new short[preRollFrames][frameSamples];
+        preRollLengths = new int[preRollFrames];
+        energyThreshold = dbToMeanSquare(config.energyThresholdDb);
+        weakEnergyThreshold = dbToMeanSquare(config.energyThresholdDb - config.weakSpeechMarginDb);
+    }
+
+    /** Classifies one frame; returns one of {@link #SILENCE}, {@link #SPEECH_START}, {@link #SPEECH}, {@link #SPEECH_END}. */
+    public int process(short[] frame, int length) {
+        totalFrames++;
+        if (!config.enabled) {
+            return SPEECH;
+        }
+
+        if (isSpeech(frame, length)) {
+            framesSinceSpeech = 0;
+            if (!inSpeech) {
+                inSpeech = true;
+                return SPEECH_START;
+            }
+            return SPEECH;
+        }
+
+        if (inSpeech) {
+            if (++framesSinceSpeech <= hangoverFrames) {
+                return SPEECH;
+            }
+            inSpeech = false;
+            remember(frame, length);
+            skippedFrames++;
+            return SPEECH_END;
+        }
+        remember(frame, length);
+        skippedFrames++;
+        return SILENCE;
+    }
+
+    /** Hands the buffered pre-roll to {@code sink}, oldest first, and empties it. */
+    public void drainPreRoll(FrameSink sink) {
+        int start = (preRollHead - preRollCount + preRoll.length) % Math.max(1, preRoll.length);
+        for (int i = 0; i < preRollCount; i++) {
+            int index = (start + i) % preRoll.length;
+            sink.accept(preRoll[index], preRollLengths[index]);
+        }
+        // These frames are decoded after all
+        skippedFrames -= preRollCount;
+        preRollCount = 0;
+    }
+
+    public void reset() {
+        inSpeech = false;
+        framesSinceSpeech = 0;
+        preRollCount = 0;
+    }
+
+    public boolean isInSpeech() {
+        return inSpeech;
+    }
+
+    public long getTotalFrames() {
+        return totalFrames;
+    }
+
+    public long getSkippedFrames() {
+        return skippedFrames;
+    }
+
+    public float getSkippedRatio() {
+        return totalFrames == 0 ? 0f : (float) skippedFrames / totalFrames;
+    }
+
+    public void resetStats() {
+        totalFrames = 0;
+        skippedFrames = 0;
+    }
+
+    private boolean isSpeech(short[] frame, int length) {
+        if (length == 0) {
+            return false;
+        }
+        long sumSquares = 0;
+        int crossings = 0;
+        short previous = frame[0];
+        for (int i = 0; i < length; i++) {
+            short s = frame[i];
+            sumSquares += s * s;
+            if ((s ^ previous) < 0) { // Sign change
+                crossings++;
+            }
+            previous = s;
+        }
+        double meanSquare = (double) sumSquares / length;
+        if (meanSquare >= energyThreshold) {
+            return true;
+        }
+        return meanSquare >= weakEnergyThreshold
+                && (float) crossings / length >= config.zeroCrossingThreshold;
+    }
+
+    private void remember(short[] frame, int length) {
+        if (preRoll.length == 0) {
+            return;
+        }
+        System.arraycopy(frame, 0, preRoll[preRollHead], 0, length);
+        preRollLengths[preRollHead] = length;
+        preRollHead = (preRollHead + 1) % preRoll.length;
+        if (preRollCount < preRoll.length) {
+            preRollCount++;
+        }
+    }
+
+    // dBFS relative to a full-scale 16-bit sample
+    static double dbToMeanSquare(float db) {
+        double amplitude = 32768.0 * Math.pow(10, db / 20.0);
+        return amplitude * amplitude;
+    }
+}
@@ -0,0 +1,160 @@
+package com.example.easyspeech;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Per-word timing and confidence of one transcript segment, kept as parallel primitive columns
+ * instead of one object (or JSON object) per word: about 20 bytes a word on the heap and on disk.
+ *
+ * Words are located in the segment text by character range. Times are in seconds from
+ * {@link #getAudioPosition()}, the {@code AudioJournal} position where the segment's audio
+ * starts (-1 if the audio was not kept), so a word can be played from the journal.
+ */
+public final class WordTimings {
+
+    public static final WordTimings EMPTY = new WordTimings(-1, new int[0], new int[0],
+            new float[0], new float[0], new float[0]);
+
+    private final long audioPosition;
+    private final int[] textStarts;
+    private final int[] textEnds;
+    private final float[] starts;
+    private final float[] ends;
+    private final float[] confidences;
+
+    private WordTimings(long audioPosition, int[] textStarts, int[] textEnds,
+                        float[] starts, float[] ends, float[] confidences) {
+        this.audioPosition = audioPosition;
+        this.textStarts = textStarts;
+        this.textEnds = textEnds;
+        this.starts = starts;
+        this.ends = ends;
+        this.confidences = confidences;
+    }
+
+    /**
+     * Copies the words of the last result parsed by {@code parser}.
+     *
+     * @param text          the segment text the words are located in
+     * @param audioPosition journal position matching {@code streamSeconds}, or -1
+     * @param streamSeconds recognizer time (the clock of the parsed word times) at {@code audioPosition}
+     */
+    public static WordTimings from(HypothesisParser parser, String text, long audioPosition, double streamSeconds) {
+        int count = parser.getWordCount();
+        if (count == 0) {
+            return EMPTY;
+        }
+        int[] textStarts = new int[count];
+        int[] textEnds = new int[count];
+        float[] starts = new float[count];
+        float[] ends = new float[count];
+        float[] confidences = new float[count];
+        int found = 0;
+        int cursor = 0;
+        for (int i = 0; i < count; i++) {
+            String word = parser.getWord(i);
+            int at = text.indexOf(word, cursor);
+            if (at < 0) {
+                continue; // Not in the text, e.g. a filler the recognizer left out of it
+            }
+            textStarts[found] = at;
+            textEnds[found] = at + word.length();
+            starts[found] = (float) (parser.getStart(i) - streamSeconds);
+            ends[found] = (float) (parser.getEnd(i) - streamSeconds);
+            confidences[found] = parser.getConfidence(i);
+            cursor = at + word.length();
+            found++;
+        }
+        if (found < count) {
+            textStarts = Arrays.copyOf(textStarts, found);
+            textEnds = Arrays.copyOf(textEnds, found);
+            starts = Arrays.copyOf(starts, found);
+            ends = Arrays.copyOf(ends, found);
+            confidences = Arrays.copyOf(confidences, found);
+        }
+        return new WordTimings(audioPosition, textStarts, textEnds, starts, ends, confidences);
+    }
+
+    public int size() {
+        return starts.length;
+    }
+
+    public long getAudioPosition() {
+        return audioPosition;
+    }
+
+    public int getTextStart(int index) {
+        return textStarts[index];
+    }
+
+    public int getTextEnd(int index) {
+        return textEnds[index];
+    }
+
+    /** Start of the word in seconds from the audio position. */
+    public float getStart(int index) {
+        return starts[index];
+    }
+
+    public float getEnd(int index) {
+        return ends[index];
+    }
+
+    public float getConfidence(int index) {
+        return confidences[index];
+    }
+
+    /** Journal position of word {@code index}, or -1 without audio. */
+    public long getAudioPosition(int index, int sampleRate) {
+        return audioPosition < 0 ? -1 : audioPosition + Math.round(Math.max(0, starts[index]) * sampleRate);
+    }
+
+    /** The word containing character {@code offset} of the text, or the next one after it; -1 if none. */
+    public int wordAtChar(int offset) {
+        int found = Arrays.binarySearch(textEnds, offset + 1);
+        int index = found >= 0 ? found : -found - 1;
+        return index < size() ? index : -1;
+    }
+
+    /** Bytes taken on the heap by the columns, array headers included. */
+    public long heapBytes() {
+        return 5L * (16 + 4L * size());
+    }
+
+    public void writeTo(DataOutputStream out) throws IOException {
+        out.writeLong(audioPosition);
+        out.writeInt(size());
+        for (int i = 0; i < size(); i++) {
+            out.writeInt(textStarts[i]);
+            out.writeInt(textEnds[i]);
+            out.writeFloat(starts[i]);
+            out.writeFloat(ends[i]);
+            out.writeFloat(confidences[i]);
+        }
+    }
+
+    public static WordTimings readFrom(DataInputStream in) throws IOException {
+        long audioPosition = in.readLong();
+        int count = in.readInt();
+        if (count == 0) {
+            return audioPosition < 0 ? EMPTY : new WordTimings(audioPosition, new int[0], new int[0],
+                    new float[0], new float[0], new float[0]);
+        }
+        int[] textStarts = new int[count];
+        int[] textEnds = new int[count];
+        float[] starts = new float[count];
+        float[] ends = new float[count];
+        float[] confidences = new float[count];
+        for (int i = 0; i < count; i++) {
+            textStarts[i] = in.readInt();
+            textEnds[i] = in.readInt();
+            starts[i] = in.readFloat();
+            ends[i] = in.readFloat();
+            confidences[i] = in.readFloat();
+        }
+        return new WordTimings(audioPosition, textStarts, textEnds, starts, ends, confidences);
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.easyspeech;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link AudioFrameRing}.
+ */
+public class AudioFrameRingTest {
+
+    @Test
+    public void deliversFramesInOrderAndCountsOverruns() {
+        AudioFrameRing ring = new AudioFrameRing(3, 2); // Rounded up to 4
+        assertEquals(4, ring.capacity());
+        for (int i = 0; i < 5; i++) {
+            ring.writeSlot()[0] = (short) i;
+            ring.commit(1);
+        }
+        assertEquals(1, ring.getOverruns());
+        assertEquals(4, ring.depth());
+        for (int i = 0; i < 4; i++) {
+            assertEquals(i, ring.readSlot()[0]);
+            assertEquals(1, ring.readLength());
+            ring.release();
+        }
+        assertNull(ring.readSlot());
+        assertEquals(1, ring.getUnderruns());
+        assertEquals(4, ring.getMaxDepth());
+    }
+
+    @Test
+    public void framesCarryTheirCaptureTime() {
+        AudioFrameRing ring = new AudioFrameRing(4, 1);
+        ring.writeSlot();
+        ring.commit(1, 1000L);
+        ring.writeSlot();
+        ring.commit(1); // Untimed
+        ring.readSlot();
+        assertEquals(1000L, ring.readTimeNanos());
+        ring.release();
+        ring.readSlot();
+        assertEquals(0L, ring.readTimeNanos());
+    }
+
+    @Test
+    public void producerAndConsumerThreadsAgree() throws InterruptedException {
+        AudioFrameRing ring = new AudioFrameRing(8, 1);
+        int count = 200_000;
+        Thread producer = new Thread(() -> {
+            int next = 0;
+            while (next < count) {
+                short[] slot = ring.writeSlot();
+                slot[0] = (short) next;
+                if (ring.commit(1)) {
+                    next++;
+                } else {
+                    Thread.yield();
+                }
+            }
+        });
+        producer.start();
+        int expected = 0;
+        while (expected < count) {
+            short[] frame = ring.readSlot();
+            if (frame == null) {
+                Thread.yield();
+                continue;
+            }
+            assertEquals((short) expected, frame[0]);
+            ring.release();
+            expected++;
+        }
+        producer.join();
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.easyspeech;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link CommandGrammar}.
+ */
+public class CommandGrammarTest {
+
+    private final CommandGrammar grammar = new CommandGrammar(new String[]{"English", "French"});
+
+    @Test
+    public void grammarListsEveryPhraseThenUnknown() {
+        assertEquals("[\"start recording\", \"start dictation\", \"save note\", \"translate\", "
+                + "\"translate to english\", \"translate to french\", \"stop\", \"[unk]\"]", grammar.toJson());
+    }
+
+    @Test
+    public void matchesWholeResultsOnly() {
+        assertEquals(CommandGrammar.SAVE_NOTE, grammar.match("save note").getAction());
+        assertEquals(CommandGrammar.STOP, grammar.match("  Stop\n").getAction());
+        CommandGrammar.Command french = grammar.match("translate  to french");
+        assertEquals(CommandGrammar.TRANSLATE, french.getAction());
+        assertEquals(1, french.getLanguageIndex());
+        assertEquals(-1, grammar.match("translate").getLanguageIndex());
+
+        assertNull(grammar.match(CommandGrammar.UNKNOWN));
+        assertNull(grammar.match("save note [unk]"));
+        assertNull(grammar.match(""));
+    }
+}
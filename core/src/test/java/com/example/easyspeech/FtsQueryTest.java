@@ -0,0 +1,54 @@
+package com.example.easyspeech;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link FtsQuery}.
+ */
+public class FtsQueryTest {
+
+    @Test
+    public void wordsArePrefixesAndQuotesArePhrases() {
+        assertEquals("meet*", FtsQuery.toMatchExpression("meet"));
+        assertEquals("team* meet*", FtsQuery.toMatchExpression("  Team, MEET! "));
+        assertEquals("\"good morning\" team*", FtsQuery.toMatchExpression("\"good morning\" team"));
+        assertEquals("\"see you\"", FtsQuery.toMatchExpression("\"see you")); // Unclosed quote
+        assertEquals("café*", FtsQuery.toMatchExpression("CafÉ"));
+        assertNull(FtsQuery.toMatchExpression(" \"\" ?! "));
+    }
+
+    @Test
+    public void operatorsAreNotPassedThrough() {
+        // FTS syntax characters never reach MATCH, so any input is a valid query
+        assertEquals("a* or* b* near* c*", FtsQuery.toMatchExpression("a OR b* NEAR(c)"));
+    }
+
+    @Test
+    public void bm25PrefersMoreHitsInShorterAndHeavierColumns() {
+        double[] weights = {1.0, 0.5};
+        double twoHits = FtsQuery.bm25(matchinfo(100, 10, 10, 2, 0), weights);
+        double oneHit = FtsQuery.bm25(matchinfo(100, 10, 10, 1, 0), weights);
+        double longRow = FtsQuery.bm25(matchinfo(100, 10, 40, 1, 0), weights);
+        double translatedOnly = FtsQuery.bm25(matchinfo(100, 10, 10, 0, 1), weights);
+        assertTrue(twoHits > oneHit);
+        assertTrue(oneHit > longRow);
+        assertTrue(oneHit > translatedOnly);
+        assertTrue(translatedOnly > 0);
+    }
+
+    // One phrase, two columns of equal average length; the phrase is in 5 of `rows` rows
+    private static byte[] matchinfo(int rows, int average, int length, int hitsTranscribed, int hitsTranslated) {
+        int[] ints = {1, 2, rows, average, average, length, length,
+                hitsTranscribed, 10, 5, hitsTranslated, 10, 5};
+        ByteBuffer buffer = ByteBuffer.allocate(ints.length * 4).order(ByteOrder.nativeOrder());
+        for (int value : ints) {
+            buffer.putInt(value);
+        }
+        return buffer.array();
+    }
+}
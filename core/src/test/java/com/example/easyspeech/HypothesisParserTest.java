@@ -0,0 +1,84 @@
+package com.example.easyspeech;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link HypothesisParser}, run on the host JVM.
+ */
+public class HypothesisParserTest {
+
+    private final HypothesisParser parser = new HypothesisParser();
+
+    @Test
+    public void parsesFinalText() {
+        assertTrue(parser.parse("{\n  \"text\" : \"hello world\"\n}"));
+        assertEquals("hello world", parser.getText());
+        assertFalse(parser.isPartial());
+        assertEquals(0, parser.getWordCount());
+    }
+
+    @Test
+    public void parsesPartialText() {
+        assertTrue(parser.parse("{\n  \"partial\" : \"hello\"\n}"));
+        assertEquals("hello", parser.getText());
+        assertTrue(parser.isPartial());
+    }
+
+    @Test
+    public void emptyResultIsDetectedWithoutStringComparison() {
+        assertTrue(parser.parse("{\"text\" : \"\"}"));
+        assertTrue(parser.isEmpty());
+        assertTrue(parser.parse("{}"));
+        assertTrue(parser.isEmpty());
+    }
+
+    @Test
+    public void parsesWordArray() {
+        String json = "{\n"
+                + "  \"result\" : [{\n"
+                + "      \"conf\" : 1.000000,\n"
+                + "      \"end\" : 1.110000,\n"
+                + "      \"start\" : 0.870000,\n"
+                + "      \"word\" : \"what\"\n"
+                + "    }, {\n"
+                + "      \"conf\" : 0.5,\n"
+                + "      \"end\" : 1.53,\n"
+                + "      \"start\" : 1.11,\n"
+                + "      \"word\" : \"zero\"\n"
+                + "    }],\n"
+                + "  \"text\" : \"what zero\"\n"
+                + "}";
+        assertTrue(parser.parse(json));
+        assertEquals("what zero", parser.getText());
+        assertEquals(2, parser.getWordCount());
+        assertEquals("what", parser.getWord(0));
+        assertEquals("zero", parser.getWord(1));
+        assertEquals(0.87f, parser.getStart(0), 1e-6f);
+        assertEquals(1.53f, parser.getEnd(1), 1e-6f);
+        assertEquals(0.5f, parser.getConfidence(1), 1e-6f);
+    }
+
+    @Test
+    public void skipsUnknownKeysAndDecodesEscapes() {
+        assertTrue(parser.parse("{\"alternatives\" : [{\"confidence\" : 1e2, \"x\" : {\"y\" : \"}\"}}],"
+                + " \"text\" : \"caf\\u00e9 \\\"ok\\\"\", \"flag\" : true}"));
+        assertEquals("caf\u00e9 \"ok\"", parser.getText());
+    }
+
+    @Test
+    public void rejectsMalformedInput() {
+        assertFalse(parser.parse(null));
+        assertFalse(parser.parse("not json"));
+        assertFalse(parser.parse("{\"text\" : \"unterminated"));
+        assertTrue(parser.isEmpty());
+    }
+
+    @Test
+    public void reusesStateBetweenCalls() {
+        assertTrue(parser.parse("{\"result\" : [{\"word\" : \"a\"}], \"text\" : \"a\"}"));
+        assertTrue(parser.parse("{\"text\" : \"b\"}"));
+        assertEquals("b", parser.getText());
+        assertEquals(0, parser.getWordCount());
+    }
+}
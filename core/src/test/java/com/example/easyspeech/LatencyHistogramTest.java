@@ -0,0 +1,53 @@
+package com.example.easyspeech;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link LatencyHistogram}.
+ */
+public class LatencyHistogramTest {
+
+    @Test
+    public void bucketsCoverEveryValueWithinThreePercent() {
+        long[] values = {0, 1, 63, 64, 65, 127, 128, 1000, 123_456, 10_000_000_000L, Long.MAX_VALUE};
+        int previous = -1;
+        for (long value : values) {
+            int bucket = LatencyHistogram.bucketOf(value);
+            assertTrue("buckets grow with the value", bucket >= previous);
+            previous = bucket;
+            long upper = LatencyHistogram.upperBoundOf(bucket);
+            assertTrue(value + " <= " + upper, value <= upper);
+            assertTrue(value + " ~ " + upper, upper - value <= Math.max(0, value / 32));
+        }
+    }
+
+    @Test
+    public void percentilesOfUniformValues() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 10_000; i++) {
+            histogram.record(i);
+        }
+        assertEquals(10_000, histogram.getCount());
+        assertEquals(1, histogram.getMin());
+        assertEquals(10_000, histogram.getMax());
+        assertEquals(5000.5, histogram.getMean(), 1e-9);
+        assertEquals(5000, histogram.getPercentile(50), 5000 / 32);
+        assertEquals(9900, histogram.getPercentile(99), 9900 / 32);
+        assertEquals(10_000, histogram.getPercentile(100));
+    }
+
+    @Test
+    public void emptyAndResetHistogramsReportZero() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getPercentile(50));
+        histogram.record(-5); // Clock went backwards: counts as 0
+        histogram.record(42);
+        assertEquals(0, histogram.getMin());
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMax());
+        assertEquals(0, histogram.getPercentile(99));
+    }
+}
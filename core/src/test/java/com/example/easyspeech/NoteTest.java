@@ -0,0 +1,27 @@
+package com.example.easyspeech;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link Note}.
+ */
+public class NoteTest {
+
+    @Test
+    public void equalityCoversContentAndStableIdFollowsDocument() {
+        Note note = new Note("doc1", "alice", "hello", null, 1_700_000_000L, 0);
+        Note edited = new Note("doc1", "alice", "hello", "bonjour", 1_700_000_000L, 0);
+        assertNotEquals(note, edited); // Same row, new contents: rebound
+        assertEquals(note.getStableId(), edited.getStableId());
+        assertNotEquals(note.getStableId(), new Note("doc2", "alice", "hello", null, 1_700_000_000L, 0).getStableId());
+        assertEquals(note, new Note("doc1", "alice", "hello", "", 1_700_000_000L, 0));
+    }
+
+    @Test
+    public void displayTimestampIsFormattedUpFront() {
+        Note note = new Note("doc1", "alice", "hello", "", 1_700_000_000L, 0);
+        assertTrue(note.getDisplayTimestamp(), note.getDisplayTimestamp().contains("2023"));
+    }
+}
@@ -0,0 +1,132 @@
+package com.example.easyspeech;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link NotesPager} over the integers 999..0 (newest first), with loads
+ * run inline.
+ */
+public class NotesPagerTest {
+
+    private static final int TOTAL = 1000;
+    private static final int PAGE = 20;
+    private static final int MAX_PAGES = 3;
+
+    private int loads;
+    private NotesPager<Integer> pager;
+
+    @Before
+    public void setUp() {
+        NotesPager.PageSource<Integer> source = new NotesPager.PageSource<Integer>() {
+            @Override
+            public List<Integer> loadOlder(Integer anchor, int limit) {
+                loads++;
+                List<Integer> page = new ArrayList<>();
+                for (int i = anchor == null ? TOTAL - 1 : anchor - 1; i >= 0 && page.size() < limit; i--) {
+                    page.add(i);
+                }
+                return page;
+            }
+
+            @Override
+            public List<Integer> loadNewer(Integer anchor, int limit) {
+                loads++;
+                List<Integer> page = new ArrayList<>();
+                for (int i = Math.min(TOTAL - 1, anchor + limit); i > anchor; i--) {
+                    page.add(i);
+                }
+                return page;
+            }
+        };
+        pager = new NotesPager<>(source, Runnable::run, Runnable::run, PAGE, 5, MAX_PAGES);
+    }
+
+    @Test
+    public void prefetchesOnlyNearTheEnd() {
+        pager.loadFirst();
+        assertEquals(PAGE, pager.getItems().size());
+        assertEquals(999, (int) pager.getItems().get(0));
+
+        pager.onScrolled(0, 10);
+        assertEquals(1, loads);
+        pager.onScrolled(5, 14); // Within 5 rows of the end
+        assertEquals(2, loads);
+        assertEquals(2 * PAGE, pager.getItems().size());
+        assertTrue(pager.getFirstPageMillis() >= 0);
+    }
+
+    @Test
+    public void windowStaysBoundedAndScrollsBack() {
+        pager.loadFirst();
+        // Scroll to the very end, always showing the last rows of the window
+        while (true) {
+            int before = loads;
+            int size = pager.getItems().size();
+            pager.onScrolled(size - 10, size - 1);
+            assertTrue(pager.getItems().size() <= MAX_PAGES * PAGE);
+            if (loads == before || pager.getItems().get(pager.getItems().size() - 1) == 0) {
+                break;
+            }
+        }
+        assertEquals(0, (int) pager.getItems().get(pager.getItems().size() - 1));
+        assertEquals(MAX_PAGES, pager.getPageCount());
+
+        // And back up to the top, in order
+        while (pager.getItems().get(0) != TOTAL - 1) {
+            pager.onScrolled(0, 9);
+            assertTrue(pager.getItems().size() <= MAX_PAGES * PAGE);
+        }
+        List<Integer> items = pager.getItems();
+        for (int i = 1; i < items.size(); i++) {
+            assertEquals(items.get(i - 1) - 1, (int) items.get(i));
+        }
+    }
+
+    @Test
+    public void removeKeepsPagesConsistent() {
+        pager.loadFirst();
+        pager.removeAll(Collections.singletonList(990));
+        assertEquals(PAGE - 1, pager.getItems().size());
+        assertFalse(pager.getItems().contains(990));
+        pager.onScrolled(0, PAGE - 2);
+        assertEquals(2 * PAGE - 1, pager.getItems().size());
+        assertEquals(960, (int) pager.getItems().get(pager.getItems().size() - 1));
+    }
+
+    @Test
+    public void rolledBackItemsReturnToTheirPositions() {
+        pager.loadFirst();
+        pager.onScrolled(0, PAGE - 1);
+        List<Integer> before = new ArrayList<>(pager.getItems());
+        List<Integer> deleted = Arrays.asList(999, 985, 970, 960);
+        pager.removeAll(new HashSet<>(deleted));
+        assertEquals(before.size() - deleted.size(), pager.getItems().size());
+
+        pager.insertSorted(deleted, Comparator.reverseOrder());
+        // 960 now sorts after the last loaded row, so it comes back with the next page
+        assertEquals(before.subList(0, before.size() - 1), pager.getItems());
+        pager.onScrolled(0, pager.getItems().size() - 1);
+        List<Integer> items = pager.getItems();
+        for (int i = 1; i < items.size(); i++) {
+            assertEquals(items.get(i - 1) - 1, (int) items.get(i));
+        }
+        assertEquals(941, (int) items.get(items.size() - 1));
+    }
+
+    @Test
+    public void insertOutsideTheWindowIsLeftToPaging() {
+        pager.loadFirst();
+        pager.insertSorted(Collections.singletonList(-1), Comparator.reverseOrder()); // Older than the window
+        assertEquals(PAGE, pager.getItems().size());
+    }
+}
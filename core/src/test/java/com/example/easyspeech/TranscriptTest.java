@@ -0,0 +1,147 @@
+package com.example.easyspeech;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link Transcript}, in memory and spooled to a session log.
+ */
+public class TranscriptTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void joinsSegmentsIncrementally() throws Exception {
+        Transcript transcript = new Transcript();
+        transcript.append("hello");
+        assertEquals("hello", transcript.getText());
+        transcript.append("world");
+        assertEquals("hello\nworld", transcript.getText());
+        assertEquals(transcript.getText().length(), transcript.length());
+        assertEquals(0, transcript.getWindowStart());
+        assertEquals(Arrays.asList("hello", "world"), transcript.snapshot().getTexts());
+    }
+
+    @Test
+    public void segmentsLeavingTheWindowAreReadBackFromTheLog() throws Exception {
+        Transcript transcript = new Transcript(new File(folder.getRoot(), "session.log"), 3);
+        HypothesisParser parser = new HypothesisParser();
+        parser.parse(WordTimingsTest.RESULT);
+        transcript.append("hello world", WordTimings.from(parser, "hello world", 100, 12));
+        for (int i = 1; i < 10; i++) {
+            transcript.append("segment " + i);
+        }
+        assertEquals(10, transcript.size());
+        assertEquals(3, transcript.getWindowCount());
+        assertEquals(7, transcript.getWindowStart());
+
+        TranscriptSegment first = transcript.get(0);
+        assertEquals("hello world", first.getText());
+        assertEquals(2, first.getWords().size());
+        assertEquals(100, first.getWords().getAudioPosition());
+        assertEquals("segment 5", transcript.get(5).getText());
+        assertEquals("segment 9", transcript.get(9).getText());
+        assertTrue(transcript.getText().startsWith("hello world\nsegment 1\n"));
+        assertEquals(transcript.getText().length(), transcript.length());
+
+        transcript.clear();
+        assertTrue(transcript.isEmpty());
+        transcript.append("again");
+        assertEquals("again", transcript.getText());
+    }
+
+    @Test
+    public void segmentsStayOnTheHeapWhenTheLogCannotBeWritten() throws Exception {
+        File log = new File(new File(folder.getRoot(), "missing"), "session.log");
+        Transcript transcript = new Transcript(log, 3);
+        for (int i = 0; i < 10; i++) {
+            transcript.append("segment " + i);
+        }
+        assertEquals(0, transcript.getWindowStart()); // Nothing could be read back, so nothing left
+        assertEquals("segment 0", transcript.get(0).getText());
+        assertEquals(10, transcript.snapshot().getTexts().size());
+
+        // A new session tries the log again
+        assertTrue(log.getParentFile().mkdir());
+        transcript.clear();
+        for (int i = 0; i < 10; i++) {
+            transcript.append("segment " + i);
+        }
+        assertEquals(7, transcript.getWindowStart());
+        assertEquals("segment 0", transcript.get(0).getText());
+    }
+
+    @Test
+    public void snapshotReadsOnAnotherThreadWhileTheTranscriptGrows() throws Exception {
+        Transcript transcript = new Transcript(new File(folder.getRoot(), "session.log"), 3);
+        for (int i = 0; i < 10; i++) {
+            transcript.append("segment " + i);
+        }
+        String expected = transcript.getText();
+        Transcript.Snapshot snapshot = transcript.snapshot();
+        transcript.append("segment 10"); // Not in the snapshot
+        transcript.get(2); // Moves the transcript's own file pointer
+
+        ExecutorService background = Executors.newSingleThreadExecutor();
+        try {
+            assertEquals(expected, background.submit(snapshot::getText).get());
+            List<String> texts = background.submit(snapshot::getTexts).get();
+            assertEquals(10, texts.size());
+            assertEquals("segment 0", texts.get(0));
+            assertEquals("segment 9", texts.get(9));
+        } finally {
+            background.shutdown();
+        }
+
+        transcript.clear();
+        try {
+            snapshot.getText();
+            fail("Read a cleared transcript");
+        } catch (IOException expectedFailure) {
+            // The log it pointed into is gone
+        }
+    }
+
+    // Three hours of dictation at 150 words a minute: the heap holds the window, the rest is on disk,
+    // and appending stays cheap however long the session gets
+    @Test
+    public void threeHourSessionKeepsOnlyTheWindowOnTheHeap() throws Exception {
+        File log = new File(folder.getRoot(), "session.log");
+        Transcript transcript = new Transcript(log, 200);
+        int segments = 3 * 60 * 150 / 12;
+        long[] appendNanos = new long[segments];
+        for (int i = 0; i < segments; i++) {
+            String text = String.format(Locale.US, "segment %d of the lecture on audio signal processing", i);
+            long start = System.nanoTime();
+            transcript.append(text);
+            appendNanos[i] = System.nanoTime() - start;
+        }
+
+        assertEquals(segments, transcript.size());
+        assertEquals(200, transcript.getWindowCount());
+        assertEquals(segments - 200, transcript.getWindowStart());
+        assertTrue(log.length() > 100_000);
+        assertEquals(String.format(Locale.US, "segment %d of the lecture on audio signal processing", 42),
+                transcript.get(42).getText());
+        // The window has wrapped around its ring many times by now
+        for (int i = transcript.getWindowStart(); i < segments; i++) {
+            assertTrue(transcript.get(i).getText().startsWith("segment " + i + " "));
+        }
+        Arrays.sort(appendNanos);
+        long p99Micros = appendNanos[segments * 99 / 100] / 1000;
+        assertTrue("append p99 " + p99Micros + " us", p99Micros < 5_000);
+        transcript.clear();
+    }
+}
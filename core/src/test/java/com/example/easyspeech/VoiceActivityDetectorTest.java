@@ -0,0 +1,95 @@
+package com.example.easyspeech;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link VoiceActivityDetector}.
+ */
+public class VoiceActivityDetectorTest {
+
+    private static final int RATE = 16000;
+    private static final int FRAME = 320; // 20 ms
+
+    private final short[] silence = new short[FRAME];
+    private final short[] loud = tone(8000);
+    private final short[] hiss = noise(100); // Below the energy threshold, but many zero crossings
+
+    @Test
+    public void skipsSilenceAndDetectsSpeech() {
+        VoiceActivityDetector vad = new VoiceActivityDetector(new VoiceActivityDetector.Config(), RATE, FRAME);
+        assertEquals(VoiceActivityDetector.SILENCE, vad.process(silence, FRAME));
+        assertEquals(VoiceActivityDetector.SPEECH_START, vad.process(loud, FRAME));
+        assertEquals(VoiceActivityDetector.SPEECH, vad.process(loud, FRAME));
+        assertEquals(1, vad.getSkippedFrames());
+    }
+
+    @Test
+    public void hangoverKeepsWordEndsThenEndsUtterance() {
+        VoiceActivityDetector.Config config = new VoiceActivityDetector.Config();
+        config.hangoverMillis = 100; // 5 frames
+        VoiceActivityDetector vad = new VoiceActivityDetector(config, RATE, FRAME);
+        vad.process(loud, FRAME);
+        for (int i = 0; i < 5; i++) {
+            assertEquals(VoiceActivityDetector.SPEECH, vad.process(silence, FRAME));
+        }
+        assertEquals(VoiceActivityDetector.SPEECH_END, vad.process(silence, FRAME));
+        assertEquals(VoiceActivityDetector.SILENCE, vad.process(silence, FRAME));
+    }
+
+    @Test
+    public void quietFricativesCountAsSpeech() {
+        VoiceActivityDetector vad = new VoiceActivityDetector(new VoiceActivityDetector.Config(), RATE, FRAME);
+        assertEquals(VoiceActivityDetector.SILENCE, vad.process(tone(100), FRAME)); // Same level, low-pitched hum
+        assertEquals(VoiceActivityDetector.SPEECH_START, vad.process(hiss, FRAME));
+    }
+
+    @Test
+    public void preRollReplaysMostRecentSilenceInOrder() {
+        VoiceActivityDetector.Config config = new VoiceActivityDetector.Config();
+        config.preRollMillis = 40; // 2 frames
+        VoiceActivityDetector vad = new VoiceActivityDetector(config, RATE, FRAME);
+        for (int i = 1; i <= 3; i++) {
+            short[] frame = new short[FRAME];
+            frame[0] = (short) i; // Marker, far below the threshold
+            vad.process(frame, FRAME);
+        }
+        assertEquals(VoiceActivityDetector.SPEECH_START, vad.process(loud, FRAME));
+
+        List<Short> markers = new ArrayList<>();
+        vad.drainPreRoll((frame, length) -> markers.add(frame[0]));
+        assertEquals(2, markers.size());
+        assertEquals(2, (short) markers.get(0));
+        assertEquals(3, (short) markers.get(1));
+        assertEquals(1, vad.getSkippedFrames()); // Replayed frames were decoded after all
+    }
+
+    @Test
+    public void disabledPassesEverything() {
+        VoiceActivityDetector.Config config = new VoiceActivityDetector.Config();
+        config.enabled = false;
+        VoiceActivityDetector vad = new VoiceActivityDetector(config, RATE, FRAME);
+        assertEquals(VoiceActivityDetector.SPEECH, vad.process(silence, FRAME));
+        assertEquals(0f, vad.getSkippedRatio(), 0f);
+    }
+
+    private static short[] tone(int amplitude) {
+        short[] frame = new short[FRAME];
+        for (int i = 0; i < FRAME; i++) {
+            frame[i] = (short) (amplitude * Math.sin(2 * Math.PI * 200 * i / RATE));
+        }
+        return frame;
+    }
+
+    private static short[] noise(int amplitude) {
+        short[] frame = new short[FRAME];
+        for (int i = 0; i < FRAME; i++) {
+            frame[i] = (short) (i % 2 == 0 ? amplitude : -amplitude);
+        }
+        return frame;
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.easyspeech;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.util.Locale;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link WordTimings} built from parsed Vosk results.
+ */
+public class WordTimingsTest {
+
+    static final String RESULT = "{\n  \"result\" : [{\n      \"conf\" : 1.000000,\n      \"end\" : 12.51,\n"
+            + "      \"start\" : 12.21,\n      \"word\" : \"hello\"\n    }, {\n"
+            + "      \"conf\" : 0.4,\n      \"end\" : 12.99,\n"
+            + "      \"start\" : 12.51,\n      \"word\" : \"world\"\n    }],\n"
+            + "  \"text\" : \"hello world\"\n}";
+
+    @Test
+    public void wordsAreLocatedInTheTextAndTimedFromTheAudio() {
+        HypothesisParser parser = new HypothesisParser();
+        assertTrue(parser.parse(RESULT));
+        WordTimings words = WordTimings.from(parser, parser.getText(), 32000, 12.0);
+
+        assertEquals(2, words.size());
+        assertEquals(6, words.getTextStart(1));
+        assertEquals(11, words.getTextEnd(1));
+        assertEquals(0.51f, words.getStart(1), 1e-4f);
+        assertEquals(0.4f, words.getConfidence(1), 0f);
+        assertEquals(32000 + 8160, words.getAudioPosition(1, 16000));
+
+        assertEquals(0, words.wordAtChar(0));
+        assertEquals(0, words.wordAtChar(4));
+        assertEquals(1, words.wordAtChar(5)); // The space goes with the next word
+        assertEquals(1, words.wordAtChar(10));
+        assertEquals(-1, words.wordAtChar(11));
+    }
+
+    @Test
+    public void serializedFormRoundTrips() throws Exception {
+        HypothesisParser parser = new HypothesisParser();
+        parser.parse(RESULT);
+        WordTimings words = WordTimings.from(parser, parser.getText(), -1, 0);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        words.writeTo(new DataOutputStream(bytes));
+        assertEquals(12 + 2 * 20, bytes.size());
+        WordTimings read = WordTimings.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        assertEquals(-1, read.getAudioPosition());
+        assertEquals(-1, read.getAudioPosition(0, 16000));
+        assertEquals(words.size(), read.size());
+        for (int i = 0; i < words.size(); i++) {
+            assertEquals(words.getTextStart(i), read.getTextStart(i));
+            assertEquals(words.getEnd(i), read.getEnd(i), 0f);
+            assertEquals(words.getConfidence(i), read.getConfidence(i), 0f);
+        }
+    }
+
+    @Test
+    public void columnsAreSmallerThanTheResultJson() throws Exception {
+        String[] vocabulary = {"the", "meeting", "is", "moved", "to", "thursday", "afternoon", "because",
+                "of", "budget", "review", "and", "travel"};
+        HypothesisParser parser = new HypothesisParser();
+        ByteArrayOutputStream serialized = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(serialized);
+        long jsonChars = 0;
+        long columnBytes = 0;
+        double time = 0;
+        for (int s = 0; s < 750; s++) { // An hour at 150 words a minute, 12 words per result
+            StringBuilder json = new StringBuilder("{\n  \"result\" : [");
+            StringBuilder text = new StringBuilder();
+            for (int w = 0; w < 12; w++) {
+                String word = vocabulary[(s * 7 + w) % vocabulary.length];
+                json.append(w > 0 ? ", " : "").append(String.format(Locale.US,
+                        "{\n      \"conf\" : %f,\n      \"end\" : %f,\n      \"start\" : %f,\n      \"word\" : \"%s\"\n    }",
+                        0.5 + (w % 5) / 10.0, time + 0.3, time, word));
+                text.append(w > 0 ? " " : "").append(word);
+                time += 0.4;
+            }
+            json.append("],\n  \"text\" : \"").append(text).append("\"\n}");
+            jsonChars += json.length();
+
+            assertTrue(parser.parse(json.toString()));
+            WordTimings words = WordTimings.from(parser, parser.getText(), s * 160_000L, 0);
+            assertEquals(12, words.size());
+            columnBytes += words.heapBytes();
+            words.writeTo(out);
+        }
+        long jsonHeapBytes = 2 * jsonChars; // Kept as Strings, UTF-16
+        assertTrue(columnBytes + " vs " + jsonHeapBytes, columnBytes * 4 < jsonHeapBytes);
+        assertTrue(serialized.size() + " vs " + jsonChars, serialized.size() * 4 < jsonChars);
+    }
+
+    @Test
+    public void resultsWithoutWordsHaveNoTimings() {
+        HypothesisParser parser = new HypothesisParser();
+        parser.parse("{\"text\" : \"hello\"}");
+        assertSame(WordTimings.EMPTY, WordTimings.from(parser, "hello", 0, 0));
+    }
+}